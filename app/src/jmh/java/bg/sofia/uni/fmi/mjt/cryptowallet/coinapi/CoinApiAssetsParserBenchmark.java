@@ -0,0 +1,106 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.coinapi;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.BadRequestToRestApiException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.TooManyRequestsException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UnauthorizedException;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the streaming parser with deserializing the whole /v1/assets body on a synthetic payload
+ * shaped like the real one, and measures whole refreshes against the fake CoinAPI, with the body sent
+ * at once or dripping in slowly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CoinApiAssetsParserBenchmark {
+
+    private static final int ASSETS_COUNT = 20_000;
+    private static final Type CRYPTO_SET_TYPE = new TypeToken<Set<CryptoInformation>>() { }.getType();
+
+    private byte[] body;
+
+    @State(Scope.Benchmark)
+    public static class FakeCoinApi {
+
+        private static final int DRIP_CHUNK_BYTES = 64 * 1024;
+
+        @Param({"false", "true"})
+        private boolean isDripping;
+
+        private FakeCoinApiServer fake;
+        private CoinApiData coinApiData;
+
+        @Setup
+        public void start() throws IOException {
+            fake = FakeCoinApiServer.generating(0, ASSETS_COUNT).start();
+            if (isDripping) {
+                fake.setBehavior(FakeCoinApiServer.Behavior.normal().withDrip(DRIP_CHUNK_BYTES, Duration.ofMillis(1)));
+            }
+            coinApiData = new CoinApiData(CoinApiData.newHttpClient(), fake.endpoint(), "key");
+        }
+
+        @TearDown
+        public void stop() {
+            fake.close();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        body = FakeCoinApiServer.syntheticAssets(ASSETS_COUNT);
+    }
+
+    @Benchmark
+    public Set<CryptoInformation> gsonWholeBody() {
+        Set<CryptoInformation> all = new Gson().fromJson(new String(body, StandardCharsets.UTF_8), CRYPTO_SET_TYPE);
+
+        return all.stream()
+                .filter(e -> e.isCrypto() == 1)
+                .filter(e -> e.price() != 0)
+                .limit(CoinApiData.MAX_CRYPTOCURRENCIES)
+                .collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public Set<CryptoInformation> streamingWithLimit() throws IOException {
+        return CoinApiAssetsParser.parse(new ByteArrayInputStream(body), CoinApiData.MAX_CRYPTOCURRENCIES);
+    }
+
+    @Benchmark
+    public Set<CryptoInformation> streamingFullScan() throws IOException {
+        return CoinApiAssetsParser.parse(new ByteArrayInputStream(body), Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public Set<CryptoInformation> refresh(FakeCoinApi fakeCoinApi) throws BadRequestToRestApiException,
+            TooManyRequestsException, UnauthorizedException {
+        return fakeCoinApi.coinApiData.getCryptocurrenciesInfo().cryptocurrencies();
+    }
+}
@@ -0,0 +1,20 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.command;
+
+/**
+ * Lines a client sends for each command, with the arguments the benchmarks run it with.
+ */
+final class BenchmarkCommands {
+
+    private BenchmarkCommands() {
+    }
+
+    static String line(CommandType type, String username, String password, String assetID) {
+        return switch (type) {
+            case register, login -> type + " " + username + " " + password;
+            case deposit_money -> "deposit_money 250.75";
+            case buy -> "buy " + assetID + " 0.5";
+            case sell -> "sell " + assetID;
+            default -> type.name();
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.command;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandCreatorBenchmark {
+
+    @Param
+    private CommandType type;
+
+    private String line;
+
+    @Setup
+    public void setUp() {
+        line = BenchmarkCommands.line(type, "benchmark", "password", "A1");
+    }
+
+    @Benchmark
+    public Command of() {
+        return CommandCreator.of(line);
+    }
+}
@@ -0,0 +1,83 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.command;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserNotFound;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.Log;
+import bg.sofia.uni.fmi.mjt.cryptowallet.storage.WalletFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes every command type as a logged in user of a wallet with usersCount users. Commands that
+ * change the user's state are undone after each call: buy and sell restore the portfolio and
+ * disconnect logs the user in again. Every register adds a new user.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandExecutorBenchmark {
+
+    @Param
+    private CommandType type;
+
+    @Param({"10000"})
+    private int usersCount;
+
+    @Param({"20"})
+    private int holdingsCount;
+
+    private WalletFixture fixture;
+    private CommandExecutor executor;
+    private SocketChannel channel;
+    private Command command;
+    private long registeredCount;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = new WalletFixture(usersCount, holdingsCount);
+        executor = new CommandExecutor(fixture.wallet(), new Log());
+        channel = fixture.channel();
+        command = CommandCreator.of(BenchmarkCommands.line(type, WalletFixture.USERNAME, WalletFixture.PASSWORD,
+                fixture.asset(0).assetID()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public String execute() throws UserNotFound {
+        return switch (type) {
+            case register -> executor.execute(new Command(CommandType.register,
+                    new String[]{"registered" + registeredCount++, WalletFixture.PASSWORD}), channel);
+            case buy, sell -> {
+                String response = executor.execute(command, channel);
+                fixture.resetPortfolio();
+                yield response;
+            }
+            case disconnect -> {
+                String response = executor.execute(command, channel);
+                fixture.wallet().login(channel, WalletFixture.USERNAME, WalletFixture.PASSWORD);
+                yield response;
+            }
+            default -> executor.execute(command, channel);
+        };
+    }
+}
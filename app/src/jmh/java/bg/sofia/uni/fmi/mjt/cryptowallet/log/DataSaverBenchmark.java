@@ -0,0 +1,87 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.storage.WalletFixture;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves and loads every user, as on each disconnect and on startup, with usersCount users holding
+ * holdingsCount cryptocurrencies each. The json format is the UsersInformation.txt of earlier
+ * versions, read the way the migration reads it; binary is the current UsersInformation.bin.
+ * Every call rewrites or rereads the whole file, so these run as single shots.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class DataSaverBenchmark {
+
+    private static final int ASSETS_COUNT = 50;
+    private static final double PRICE_STEP = 0.125;
+    private static final String JSON = "json";
+    private static final Path JSON_USERS_FILE = Path.of("UsersInformation.txt");
+    private static final Gson GSON = new Gson();
+
+    @Param({"10000", "100000", "1000000"})
+    private int usersCount;
+
+    @Param({"2"})
+    private int holdingsCount;
+
+    @Param({"json", "binary"})
+    private String format;
+
+    private DataSaver dataSaver;
+    private Set<User> users;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataSaver = new DataSaver();
+        List<CryptoInformation> assets = new ArrayList<>();
+        for (int i = 0; i < ASSETS_COUNT; i++) {
+            assets.add(new CryptoInformation("A" + i, "Asset number " + i, 1, 1 + i * PRICE_STEP));
+        }
+        users = WalletFixture.users(usersCount, holdingsCount, assets);
+        save();
+    }
+
+    @Benchmark
+    public Set<User> save() throws IOException {
+        if (format.equals(JSON)) {
+            try (Writer writer = Files.newBufferedWriter(JSON_USERS_FILE)) {
+                GSON.toJson(users, writer);
+            }
+        } else {
+            dataSaver.saveUsersInfoToFile(users);
+        }
+        return users;
+    }
+
+    @Benchmark
+    public Set<User> load() throws IOException {
+        return format.equals(JSON) ? DataSaver.readJsonUsers(JSON_USERS_FILE) : DataSaver.loadUsersInfoFromFile();
+    }
+}
@@ -0,0 +1,91 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.InsufficientAvailabilityException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.InvalidSellingException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserNotFound;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.BoughtCryptocurrency;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.SoldCryptocurrency;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the wallet operations of one logged in user holding holdingsCount cryptocurrencies,
+ * among usersCount registered users. Buying and selling restore the user's portfolio after each call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CryptoCurrencyWalletBenchmark {
+
+    private static final double INVESTING_MONEY = 0.5;
+
+    @Param({"10000", "100000"})
+    private int usersCount;
+
+    @Param({"10", "200"})
+    private int holdingsCount;
+
+    private WalletFixture fixture;
+    private CryptoCurrencyWallet wallet;
+    private SocketChannel channel;
+    private String assetID;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = new WalletFixture(usersCount, holdingsCount);
+        wallet = fixture.wallet();
+        channel = fixture.channel();
+        assetID = fixture.asset(0).assetID();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public User login() throws UserNotFound {
+        return wallet.login(channel, WalletFixture.USERNAME, WalletFixture.PASSWORD);
+    }
+
+    @Benchmark
+    public BoughtCryptocurrency buy() throws UserNotFound, InsufficientAvailabilityException {
+        try {
+            return wallet.buy(channel, assetID, INVESTING_MONEY);
+        } finally {
+            fixture.resetPortfolio();
+        }
+    }
+
+    @Benchmark
+    public SoldCryptocurrency sell() throws UserNotFound, InvalidSellingException {
+        try {
+            return wallet.sell(channel, assetID);
+        } finally {
+            fixture.resetPortfolio();
+        }
+    }
+
+    @Benchmark
+    public StringBuilder getWalletOverAllSummary() throws UserNotFound {
+        return wallet.getWalletOverAllSummary(channel);
+    }
+}
@@ -0,0 +1,137 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.CircuitBreaker;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.CircuitBreakerConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.CoinApiData;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.FakeCoinApiServer;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.DataSaver;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.JournalConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.BoughtCryptocurrency;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.Portfolio;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A wallet set up the way the server runs it: prices come from a local fake CoinAPI, changes go to a
+ * journal and usersCount users are registered. One of them, USERNAME, is logged in on a loopback
+ * channel and holds holdingsCount cryptocurrencies. The journal is not forced to disk and does not
+ * wait for batches to fill, so the benchmarks measure the wallet rather than the disk.
+ * The wallet reads and writes its files in the working directory.
+ */
+public class WalletFixture implements AutoCloseable {
+
+    public static final String USERNAME = "benchmark";
+    public static final String PASSWORD = "password";
+    private static final String CRYPTO_INFO_FILE = "CryptoInformation.txt";
+    private static final int ASSETS_COUNT = 200;
+    private static final double MONEY = 1e12;
+    private static final double OTHER_USERS_MONEY = 100;
+    private final FakeCoinApiServer coinApi;
+    private final DataSaver dataSaver;
+    private final Path journalDirectory;
+    private final CryptoCurrencyWallet wallet;
+    private final ServerSocketChannel listener;
+    private final SocketChannel channel;
+    private final SocketChannel accepted;
+    private final List<CryptoInformation> assets;
+    private final Portfolio baseline;
+
+    public WalletFixture(int usersCount, int holdingsCount) throws Exception {
+        coinApi = FakeCoinApiServer.generating(0, ASSETS_COUNT).start();
+        dataSaver = new DataSaver(new CoinApiData(CoinApiData.newHttpClient(), coinApi.endpoint(), "key"),
+                new CircuitBreaker(CircuitBreakerConfig.defaults()));
+        Files.writeString(Path.of(CRYPTO_INFO_FILE), "");
+        assets = List.copyOf(dataSaver.getCryptocurrenciesFromApi().cryptocurrencies());
+        dataSaver.saveUsersInfoToFile(users(usersCount - 1, 1, assets));
+
+        journalDirectory = Files.createTempDirectory("wallet-benchmark-journal");
+        wallet = new CryptoCurrencyWallet(dataSaver, new JournalConfig(journalDirectory,
+                JournalConfig.defaultMaxBatchRecords(), 0, false, JournalConfig.defaultSnapshotIntervalSeconds()));
+
+        listener = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        channel = SocketChannel.open(listener.getLocalAddress());
+        accepted = listener.accept();
+        wallet.register(USERNAME, PASSWORD);
+        wallet.login(channel, USERNAME, PASSWORD);
+        wallet.depositMoney(channel, MONEY);
+        for (int i = 0; i < holdingsCount; i++) {
+            wallet.buy(channel, asset(i).assetID(), i + 1);
+        }
+        baseline = wallet.user(channel).portfolio();
+    }
+
+    /**
+     * Creates count users named user0, user1, ... each holding holdingsCount of the given assets.
+     */
+    public static Set<User> users(int count, int holdingsCount, List<CryptoInformation> assets) {
+        Set<User> users = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            Set<BoughtCryptocurrency> holdings = new HashSet<>();
+            for (int j = 0; j < holdingsCount; j++) {
+                CryptoInformation asset = assets.get((i + j) % assets.size());
+                holdings.add(new BoughtCryptocurrency(asset, asset.price(), 1));
+            }
+
+            User user = new User("user" + i, Integer.toHexString(i));
+            user.setPortfolio(new Portfolio(OTHER_USERS_MONEY, holdings, Set.of()));
+            users.add(user);
+        }
+
+        return users;
+    }
+
+    public CryptoCurrencyWallet wallet() {
+        return wallet;
+    }
+
+    public DataSaver dataSaver() {
+        return dataSaver;
+    }
+
+    public SocketChannel channel() {
+        return channel;
+    }
+
+    public List<CryptoInformation> assets() {
+        return assets;
+    }
+
+    public CryptoInformation asset(int index) {
+        return assets.get(index % assets.size());
+    }
+
+    /**
+     * Puts back the portfolio the logged in user had after the setup, so buying and selling in a loop
+     * does not grow or empty it.
+     */
+    public void resetPortfolio() {
+        wallet.user(channel).setPortfolio(baseline);
+    }
+
+    @Override
+    public void close() throws IOException {
+        wallet.close();
+        channel.close();
+        accepted.close();
+        listener.close();
+        coinApi.close();
+        try (Stream<Path> files = Files.walk(journalDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
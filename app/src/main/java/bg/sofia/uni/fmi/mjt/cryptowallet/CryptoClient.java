@@ -1,24 +1,26 @@
 package bg.sofia.uni.fmi.mjt.cryptowallet;
 
+import bg.sofia.uni.fmi.mjt.cryptowallet.client.WalletClient;
 import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandType;
+import bg.sofia.uni.fmi.mjt.cryptowallet.loadgen.CommandMix;
+import bg.sofia.uni.fmi.mjt.cryptowallet.loadgen.LoadConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.loadgen.LoadGenerator;
 import bg.sofia.uni.fmi.mjt.cryptowallet.log.Log;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.InetSocketAddress;
-import java.nio.channels.Channels;
-import java.nio.channels.SocketChannel;
 import java.util.Scanner;
+import java.util.concurrent.CompletionException;
 
 public class CryptoClient {
 
-    private static final String CS_NAME = "UTF-8";
     private static final String HELP = "help";
+    private static final String LOAD_MODE = "load";
     private static final String INVALID_INPUT = "User's input is invalid, check the help menu";
     private static final String DISCONNECT = "User saved and disconnected successfully";
     private static final String NOT_LOGGED = "User is not currently logged in";
     private static final String SPACE = " ";
+    private static final String STATS_SEPARATOR = "; ";
     private static final Log log = new Log();
 
     public static StringBuilder help() {
@@ -31,6 +33,8 @@ public class CryptoClient {
         builder.append(System.lineSeparator());
         builder.append("list_offerings - See information about currently available cryptocurrencies");
         builder.append(System.lineSeparator());
+        builder.append("get_offerings_age - See how long ago the offered prices were updated");
+        builder.append(System.lineSeparator());
         builder.append("buy <cryptoID> <invested_money> - Buy cryptocurrency into your wallet");
         builder.append(System.lineSeparator());
         builder.append("sell <cryptoID> - Sell cryptocurrency from your wallet");
@@ -41,6 +45,8 @@ public class CryptoClient {
                     " and your currently profit/loss");
         builder.append(System.lineSeparator());
         builder.append("disconnect - Save your current activity and exit");
+        builder.append(System.lineSeparator());
+        builder.append("stats - See the server metrics (only on the server machine)");
 
         return builder;
     }
@@ -60,6 +66,9 @@ public class CryptoClient {
     }
 
     public static String formatStringOutput(String message, String serverAnswer) {
+        if (message.equals(CommandType.stats.name())) {
+            return serverAnswer.replace(STATS_SEPARATOR, System.lineSeparator());
+        }
 
         if (checkIfCommandIsList(message, serverAnswer) || checkIfCommandIsSummary(message, serverAnswer)
                 || checkIfCommandIsOverallSummary(message, serverAnswer)) {
@@ -70,15 +79,46 @@ public class CryptoClient {
         return serverAnswer;
     }
 
+    private static long getEnvOrDefault(String name, long defaultValue) {
+        return Long.parseLong(getEnvOrDefault(name, String.valueOf(defaultValue)));
+    }
+
+    private static String getEnvOrDefault(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value.strip();
+    }
+
+    /**
+     * Runs a load test against the server instead of the interactive session, configured by
+     * the LOAD_* variables, and prints its report.
+     */
+    private static void runLoadTest(InetSocketAddress server) {
+        LoadConfig config = LoadConfig.of(
+                (int) getEnvOrDefault("LOAD_CONNECTIONS", LoadConfig.defaultConnectionsCount()),
+                Double.parseDouble(getEnvOrDefault("LOAD_RATE", String.valueOf(LoadConfig.defaultRequestsPerSecond()))),
+                getEnvOrDefault("LOAD_DURATION_SECONDS", LoadConfig.defaultDurationSeconds()),
+                getEnvOrDefault("LOAD_WARMUP_SECONDS", LoadConfig.defaultWarmupSeconds()),
+                getEnvOrDefault("LOAD_MIX", CommandMix.defaultSpec()));
+        System.out.println("Load testing " + server + " with " + config.mix());
+        try {
+            System.out.print(new LoadGenerator(server, config).run().render());
+        } catch (IOException e) {
+            log.saveServerException(e);
+            throw new RuntimeException("There is a problem with the network communication", e);
+        }
+    }
+
     public static void main(String[] args) {
-        try (SocketChannel socketChannel = SocketChannel.open();
-            BufferedReader reader = new BufferedReader(Channels.newReader(socketChannel, CS_NAME));
-            PrintWriter writer = new PrintWriter(Channels.newWriter(socketChannel, CS_NAME), true);
-            Scanner scanner = new Scanner(System.in)) {
+        String hostName = System.getenv("HOST_NAME");
+        int serverPort = Integer.parseInt(System.getenv("SERVER_PORT"));
+        InetSocketAddress server = new InetSocketAddress(hostName, serverPort);
+        if (args.length > 0 && args[0].equals(LOAD_MODE)) {
+            runLoadTest(server);
+            return;
+        }
 
-            String hostName = System.getenv("HOST_NAME");
-            int serverPort = Integer.parseInt(System.getenv("SERVER_PORT"));
-            socketChannel.connect(new InetSocketAddress(hostName, serverPort));
+        try (WalletClient client = WalletClient.connect(server);
+             Scanner scanner = new Scanner(System.in)) {
 
             System.out.println("Connected to the server.");
             System.out.println("You can enter help to see the instructions");
@@ -91,8 +131,7 @@ public class CryptoClient {
                     continue;
                 }
 
-                writer.println(message);
-                String reply = reader.readLine();
+                String reply = client.send(message).join();
 
                 if (reply.equals(DISCONNECT)) {
                     break;
@@ -102,7 +141,7 @@ public class CryptoClient {
 
                 System.out.println("The server replied: " + System.lineSeparator() + reply + System.lineSeparator());
             }
-        } catch (IOException e) {
+        } catch (IOException | CompletionException e) {
             log.saveServerException(e);
             throw new RuntimeException("There is a problem with the network communication", e);
         }
@@ -1,45 +1,87 @@
 package bg.sofia.uni.fmi.mjt.cryptowallet;
 
-import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandCreator;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.CircuitBreaker;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.CircuitBreakerConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.CoinApiData;
 import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.AsyncLogWriter;
 import bg.sofia.uni.fmi.mjt.cryptowallet.log.DataSaver;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.JournalConfig;
 import bg.sofia.uni.fmi.mjt.cryptowallet.log.Log;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.LogConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.LogRateLimitConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.LogRateLimiter;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.MetricsHttpServer;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.MetricsRegistry;
+import bg.sofia.uni.fmi.mjt.cryptowallet.server.Reactor;
+import bg.sofia.uni.fmi.mjt.cryptowallet.server.ServerConfig;
 import bg.sofia.uni.fmi.mjt.cryptowallet.storage.CryptoCurrencyWallet;
+import bg.sofia.uni.fmi.mjt.cryptowallet.storage.PriceRefreshConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.storage.PriceRefresher;
+import bg.sofia.uni.fmi.mjt.cryptowallet.storage.PriceSnapshot;
+import bg.sofia.uni.fmi.mjt.cryptowallet.storage.UserStoreConfig;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
+import java.net.URI;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class CryptoServer {
 
-    private static final int BUFFER_SIZE = 10000;
-    private static final String INVALID_REQUEST = "This request is invalid, please check help menu!";
-    private static final String DISCONNECT = "User saved and disconnected successfully";
+    private static final int DEFAULT_REACTORS_COUNT = 1;
+    private static final int DEFAULT_METRICS_PORT = 9464;
     private final CommandExecutor commandExecutor;
     private final int port;
     private final Log log;
-    private boolean isServerWorking;
-    private ByteBuffer buffer;
+    private final ServerConfig config;
+    private final Reactor[] reactors;
+    private final ExecutorService workers;
+    private int nextReactor;
+    private volatile boolean isServerWorking;
     private Selector selector;
 
     public CryptoServer(int port, CommandExecutor commandExecutor) {
+        this(port, commandExecutor, DEFAULT_REACTORS_COUNT);
+    }
+
+    public CryptoServer(int port, CommandExecutor commandExecutor, int reactorsCount) {
+        this(port, commandExecutor, reactorsCount, ServerConfig.defaultWorkersCount());
+    }
+
+    public CryptoServer(int port, CommandExecutor commandExecutor, int reactorsCount, int workersCount) {
+        this(port, commandExecutor, ServerConfig.of(reactorsCount, workersCount));
+    }
+
+    public CryptoServer(int port, CommandExecutor commandExecutor, ServerConfig config) {
         log = new Log();
         this.port = port;
         this.commandExecutor = commandExecutor;
+        this.config = config;
+        this.reactors = new Reactor[config.reactorsCount()];
+        this.workers = Executors.newFixedThreadPool(config.workersCount(), namedThreadFactory("crypto-worker-"));
+        if (workers instanceof ThreadPoolExecutor pool) {
+            MetricsRegistry.global().gauge("wallet_worker_queue_depth", "Commands waiting for a worker thread",
+                    () -> pool.getQueue().size());
+        }
     }
 
     public void start() {
         try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
             selector = Selector.open();
             configureServerSocketChannel(serverSocketChannel, selector);
-            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            startReactors();
             isServerWorking = true;
             while (isServerWorking) {
                 try {
@@ -51,46 +93,28 @@ public class CryptoServer {
                     Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
                     while (keyIterator.hasNext()) {
                         SelectionKey key = keyIterator.next();
-                        if (key.isReadable()) {
-                            SocketChannel clientChannel = (SocketChannel) key.channel();
-                            String clientInput = getClientInput(clientChannel);
-                            if (clientInput == null) {
-                                continue;
-                            }
-                            System.out.println("Client " + clientChannel.getRemoteAddress() + ": " + clientInput);
-
-                            String response = "";
-                            try {
-                                response = commandExecutor.execute(CommandCreator.of(clientInput), clientChannel);
-                                if (!response.endsWith(System.lineSeparator())) {
-                                    response += System.lineSeparator();
-                                }
-                            } catch (IllegalArgumentException e) {
-                                log.saveServerException(e);
-                                response = INVALID_REQUEST + System.lineSeparator();
-                            }
-                            finally {
-                                writeClientOutput(clientChannel, response);
-                            }
-                        } else if (key.isAcceptable()) {
-                            accept(selector, key);
+                        if (key.isAcceptable()) {
+                            accept(key);
                         }
                         keyIterator.remove();
                     }
                 } catch (IOException e) {
                     log.saveServerException(e);
-                    System.out.println("Error occurred while processing client request");
+                    System.out.println("Error occurred while accepting client connection");
                 }
             }
         } catch (IOException e) {
             log.saveServerException(e);
             throw new UncheckedIOException("Failed to start server", e);
+        } finally {
+            stopReactors();
+            workers.shutdown();
         }
     }
 
     public void stop() {
         this.isServerWorking = false;
-        if (selector.isOpen()) {
+        if (selector != null && selector.isOpen()) {
             selector.wakeup();
         }
     }
@@ -101,50 +125,148 @@ public class CryptoServer {
         channel.register(selector, SelectionKey.OP_ACCEPT);
     }
 
-    private String getClientInput(SocketChannel clientChannel) throws IOException {
-        buffer.clear();
+    private void startReactors() {
+        for (int i = 0; i < reactors.length; i++) {
+            reactors[i] = new Reactor(commandExecutor, workers, config, log);
+            Thread reactorThread = new Thread(reactors[i], "crypto-reactor-" + i);
+            reactorThread.start();
+        }
+    }
 
-        int readBytes = clientChannel.read(buffer);
-        if (readBytes <= 0) {
-            System.out.println("Client has closed the connection");
-            clientChannel.close();
-            return null;
+    private void stopReactors() {
+        for (Reactor reactor : reactors) {
+            if (reactor != null) {
+                reactor.stop();
+            }
+        }
+    }
+
+    private void accept(SelectionKey key) throws IOException {
+        ServerSocketChannel sockChannel = (ServerSocketChannel) key.channel();
+        SocketChannel accept = sockChannel.accept();
+        if (accept == null) {
+            return;
         }
 
-        buffer.flip();
+        reactors[nextReactor].register(accept);
+        nextReactor = (nextReactor + 1) % reactors.length;
+    }
 
-        byte[] clientInputBytes = new byte[buffer.remaining()];
-        buffer.get(clientInputBytes);
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 
-        return new String(clientInputBytes, StandardCharsets.UTF_8);
+    private static long getEnvOrDefault(String name, long defaultValue) {
+        return Long.parseLong(getEnvOrDefault(name, String.valueOf(defaultValue)));
     }
 
-    private void writeClientOutput(SocketChannel clientChannel, String output) throws IOException {
-        buffer.clear();
-        buffer.put(output.getBytes());
-        buffer.flip();
+    private static String getEnvOrDefault(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value.strip();
+    }
 
-        clientChannel.write(buffer);
-        if (output.equals(DISCONNECT)) {
-            clientChannel.close();
-        }
+    private static void registerMetrics(MetricsRegistry metrics, PriceRefresher priceRefresher,
+                                        LogRateLimiter logLimiter) {
+        metrics.counter("wallet_price_refreshes_total", "Price refreshes started", "",
+                priceRefresher::issuedRefreshes);
+        metrics.counter("wallet_price_refreshes_coalesced_total", "Price refreshes joined by another reader", "",
+                priceRefresher::coalescedRefreshes);
+        metrics.gauge("wallet_price_snapshot_age_seconds", "Age of the offered prices, -1 when unknown", () -> {
+            PriceSnapshot snapshot = priceRefresher.current();
+            Duration age = snapshot == null ? null : snapshot.age();
+            return age == null ? -1 : age.toSeconds();
+        });
+        metrics.counter("wallet_log_events_dropped_total", "Log events dropped because the log buffer was full", "",
+                () -> AsyncLogWriter.shared().droppedCount());
+        metrics.counter("wallet_log_events_suppressed_total", "Error log events suppressed by the rate limiter", "",
+                logLimiter::suppressedCount);
     }
 
-    private void accept(Selector selector, SelectionKey key) throws IOException {
-        ServerSocketChannel sockChannel = (ServerSocketChannel) key.channel();
-        SocketChannel accept = sockChannel.accept();
+    /**
+     * Serves the metrics on the given local port, or nowhere when the port is negative.
+     */
+    private static MetricsHttpServer startMetricsServer(int port) {
+        if (port < 0) {
+            return null;
+        }
 
-        accept.configureBlocking(false);
-        accept.register(selector, SelectionKey.OP_READ);
+        try {
+            return new MetricsHttpServer(port, MetricsRegistry.global()).start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start metrics server", e);
+        }
     }
 
     public static void main(String[] args) {
-        DataSaver saver = new DataSaver();
-        CryptoCurrencyWallet wallet = new CryptoCurrencyWallet(saver);
+        AsyncLogWriter.configureShared(LogConfig.of(Path.of(getEnvOrDefault("LOG_DIR", LogConfig.defaultDirectory())),
+                (int) getEnvOrDefault("LOG_BUFFER_CAPACITY", LogConfig.defaultBufferCapacity()),
+                getEnvOrDefault("LOG_MAX_FILE_BYTES", LogConfig.defaultMaxFileBytes()),
+                getEnvOrDefault("LOG_ROTATION_SECONDS", LogConfig.defaultRotationSeconds())));
+        CircuitBreakerConfig breakerConfig = CircuitBreakerConfig.of(
+                (int) getEnvOrDefault("COINAPI_FAILURE_THRESHOLD", CircuitBreakerConfig.defaultFailureThreshold()),
+                getEnvOrDefault("COINAPI_BACKOFF_BASE_SECONDS", CircuitBreakerConfig.defaultBaseBackoffSeconds()),
+                getEnvOrDefault("COINAPI_BACKOFF_MAX_SECONDS", CircuitBreakerConfig.defaultMaxBackoffSeconds()));
+        URI coinApiEndpoint = URI.create(getEnvOrDefault("COINAPI_ENDPOINT", CoinApiData.defaultEndpoint()));
+        int maxAssets = (int) getEnvOrDefault("COINAPI_MAX_ASSETS", CoinApiData.MAX_CRYPTOCURRENCIES);
+        Duration fetchTimeout = Duration.ofSeconds(getEnvOrDefault("COINAPI_FETCH_TIMEOUT_SECONDS",
+                CoinApiData.defaultFetchTimeoutSeconds()));
+        CoinApiData coinApiData = new CoinApiData(CoinApiData.newHttpClient(), coinApiEndpoint,
+                System.getenv("API_KEY"), maxAssets, fetchTimeout);
+        DataSaver saver = new DataSaver(coinApiData, new CircuitBreaker(breakerConfig));
+        JournalConfig journalConfig = new JournalConfig(Path.of(getEnvOrDefault("JOURNAL_DIR", "journal")),
+                (int) getEnvOrDefault("JOURNAL_BATCH_RECORDS", JournalConfig.defaultMaxBatchRecords()),
+                getEnvOrDefault("JOURNAL_BATCH_DELAY_MS", JournalConfig.defaultMaxBatchDelayMillis()),
+                Boolean.parseBoolean(getEnvOrDefault("JOURNAL_FSYNC", "true")),
+                getEnvOrDefault("SNAPSHOT_INTERVAL_SECONDS", JournalConfig.defaultSnapshotIntervalSeconds()));
+        PriceRefreshConfig priceRefreshConfig = PriceRefreshConfig.of(
+                getEnvOrDefault("PRICE_REFRESH_INTERVAL_SECONDS", PriceRefreshConfig.defaultIntervalSeconds()),
+                getEnvOrDefault("PRICE_REFRESH_JITTER_SECONDS", PriceRefreshConfig.defaultJitterSeconds()),
+                getEnvOrDefault("PRICE_REFRESH_WAIT_MS", PriceRefreshConfig.defaultMaxWaitMillis()));
+        UserStoreConfig userStoreConfig = new UserStoreConfig(Path.of(getEnvOrDefault("USERS_DIR", "users")),
+                (int) getEnvOrDefault("MAX_RESIDENT_USERS", UserStoreConfig.defaultMaxResidentUsers()),
+                Duration.ofMillis(getEnvOrDefault("USERS_FLUSH_INTERVAL_MS",
+                        UserStoreConfig.defaultFlushIntervalMillis())));
+        CryptoCurrencyWallet wallet = new CryptoCurrencyWallet(saver, journalConfig, priceRefreshConfig,
+                userStoreConfig);
         Log log = new Log();
-        CommandExecutor executor = new CommandExecutor(wallet, log);
+        LogRateLimiter logLimiter = new LogRateLimiter(LogRateLimitConfig.of(
+                Double.parseDouble(getEnvOrDefault("LOG_RATE_PER_SECOND",
+                        String.valueOf(LogRateLimitConfig.defaultEventsPerSecond()))),
+                (int) getEnvOrDefault("LOG_RATE_BURST", LogRateLimitConfig.defaultBurst()),
+                (int) getEnvOrDefault("LOG_SAMPLE_EVERY", LogRateLimitConfig.defaultSampleEvery()),
+                getEnvOrDefault("LOG_SUMMARY_SECONDS", LogRateLimitConfig.defaultSummarySeconds())), log);
+        logLimiter.start();
+        registerMetrics(MetricsRegistry.global(), wallet.priceRefresher(), logLimiter);
+        MetricsHttpServer metricsServer = startMetricsServer((int) getEnvOrDefault("METRICS_PORT",
+                DEFAULT_METRICS_PORT));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                wallet.close();
+            } catch (IOException e) {
+                log.saveServerException(e);
+            } finally {
+                if (metricsServer != null) {
+                    metricsServer.close();
+                }
+                logLimiter.close();
+                AsyncLogWriter.shared().close();
+            }
+        }));
+        CommandExecutor executor = new CommandExecutor(wallet, log, logLimiter);
         int listenPort = Integer.parseInt(System.getenv("LISTEN_PORT"));
-        CryptoServer server = new CryptoServer(listenPort, executor);
+        int reactorsCount = (int) getEnvOrDefault("REACTORS_COUNT", Runtime.getRuntime().availableProcessors());
+        int workersCount = (int) getEnvOrDefault("WORKERS_COUNT", ServerConfig.defaultWorkersCount());
+        long highWaterMark = getEnvOrDefault("OUTBOUND_HIGH_WATER_MARK", ServerConfig.defaultOutboundHighWaterMark());
+        int pendingCommandsHighWaterMark = (int) getEnvOrDefault("PENDING_COMMANDS_HIGH_WATER_MARK",
+                ServerConfig.defaultPendingCommandsHighWaterMark());
+        ServerConfig config = ServerConfig.of(reactorsCount, workersCount, highWaterMark,
+                pendingCommandsHighWaterMark);
+        CryptoServer server = new CryptoServer(listenPort, executor, config);
         server.start();
     }
 }
@@ -0,0 +1,94 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The thread doing the socket I/O of one or more WalletClients. Clients hand it new connections and
+ * pending writes through queues and wake it up, the same way the server's Reactor takes accepted
+ * channels and responses from the workers.
+ */
+class ClientReactor implements Runnable, AutoCloseable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private final Selector selector;
+    private final Queue<WalletClient> pendingClients;
+    private final Queue<WalletClient> pendingWrites;
+    private final ByteBuffer readBuffer;
+    private volatile boolean isReactorWorking;
+
+    ClientReactor() throws IOException {
+        this.selector = Selector.open();
+        this.pendingClients = new ConcurrentLinkedQueue<>();
+        this.pendingWrites = new ConcurrentLinkedQueue<>();
+        this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        this.isReactorWorking = true;
+        Thread thread = new Thread(this, "wallet-client-io");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void register(WalletClient client) {
+        pendingClients.add(client);
+        selector.wakeup();
+    }
+
+    void scheduleWrite(WalletClient client) {
+        pendingWrites.add(client);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (isReactorWorking) {
+            try {
+                selector.select();
+                while (!pendingClients.isEmpty()) {
+                    pendingClients.poll().attach(selector);
+                }
+                while (!pendingWrites.isEmpty()) {
+                    pendingWrites.poll().flush();
+                }
+
+                Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+                while (keyIterator.hasNext()) {
+                    SelectionKey key = keyIterator.next();
+                    keyIterator.remove();
+                    WalletClient client = (WalletClient) key.attachment();
+                    if (key.isValid() && key.isWritable()) {
+                        client.flush();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        client.read(readBuffer);
+                    }
+                }
+            } catch (IOException e) {
+                isReactorWorking = false;
+            }
+        }
+
+        IOException closed = new IOException("The client was closed");
+        for (SelectionKey key : selector.keys()) {
+            ((WalletClient) key.attachment()).fail(closed);
+        }
+        while (!pendingClients.isEmpty()) {
+            pendingClients.poll().fail(closed);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // nothing is left to release
+        }
+    }
+
+    @Override
+    public void close() {
+        isReactorWorking = false;
+        selector.wakeup();
+    }
+}
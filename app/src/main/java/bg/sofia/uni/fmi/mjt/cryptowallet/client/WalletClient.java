@@ -0,0 +1,269 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.client;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A connection to the wallet server. Every command is sent at once, without waiting for the replies
+ * to earlier ones, and completes its future with the server's reply. The server answers the commands
+ * of a connection in the order they were sent, so replies are matched to commands in that order.
+ * Replies complete their futures on the client's I/O thread; dependent actions that block should
+ * use the async variants of CompletableFuture.
+ * The server keeps the logged in user per connection, so a WalletClient is one user's session.
+ */
+public class WalletClient implements AutoCloseable {
+
+    private static final byte NEW_LINE = '\n';
+    private static final String CARRIAGE_RETURN = "\r";
+    private final SocketChannel channel;
+    private final ClientReactor reactor;
+    private final boolean ownsReactor;
+    private final Queue<CompletableFuture<String>> pendingReplies;
+    private final Queue<ByteBuffer> outbound;
+    private final ByteArrayOutputStream reply;
+    private SelectionKey key;
+    private boolean isClosed;
+
+    private WalletClient(SocketChannel channel, ClientReactor reactor, boolean ownsReactor) {
+        this.channel = channel;
+        this.reactor = reactor;
+        this.ownsReactor = ownsReactor;
+        this.pendingReplies = new ArrayDeque<>();
+        this.outbound = new ArrayDeque<>();
+        this.reply = new ByteArrayOutputStream();
+    }
+
+    /**
+     * Connects to the server with an I/O thread of its own.
+     */
+    public static WalletClient connect(InetSocketAddress server) throws IOException {
+        ClientReactor reactor = new ClientReactor();
+        try {
+            return connect(server, reactor, true);
+        } catch (IOException e) {
+            reactor.close();
+            throw e;
+        }
+    }
+
+    static WalletClient connect(InetSocketAddress server, ClientReactor reactor, boolean ownsReactor)
+            throws IOException {
+        WalletClient client = new WalletClient(SocketChannel.open(server), reactor, ownsReactor);
+        reactor.register(client);
+        return client;
+    }
+
+    public CompletableFuture<String> register(String username, String password) {
+        return send(CommandType.register, username, password);
+    }
+
+    public CompletableFuture<String> login(String username, String password) {
+        return send(CommandType.login, username, password);
+    }
+
+    public CompletableFuture<String> depositMoney(double amount) {
+        return send(CommandType.deposit_money, String.valueOf(amount));
+    }
+
+    public CompletableFuture<String> listOfferings() {
+        return send(CommandType.list_offerings);
+    }
+
+    public CompletableFuture<String> getOfferingsAge() {
+        return send(CommandType.get_offerings_age);
+    }
+
+    public CompletableFuture<String> buy(String assetID, double investingAmount) {
+        return send(CommandType.buy, assetID, String.valueOf(investingAmount));
+    }
+
+    public CompletableFuture<String> sell(String assetID) {
+        return send(CommandType.sell, assetID);
+    }
+
+    public CompletableFuture<String> getWalletSummary() {
+        return send(CommandType.get_wallet_summary);
+    }
+
+    public CompletableFuture<String> getWalletOverallSummary() {
+        return send(CommandType.get_wallet_overall_summary);
+    }
+
+    /**
+     * Saves the session on the server, which then closes the connection.
+     */
+    public CompletableFuture<String> disconnect() {
+        return send(CommandType.disconnect);
+    }
+
+    public CompletableFuture<String> stats() {
+        return send(CommandType.stats);
+    }
+
+    /**
+     * Sends a command line as it was typed, e.g. "buy BTC 100". Fails the future if the connection
+     * is closed before the reply arrives.
+     */
+    public CompletableFuture<String> send(String commandLine) {
+        if (commandLine.indexOf(NEW_LINE) >= 0) {
+            throw new IllegalArgumentException("A command must fit on a single line");
+        }
+
+        byte[] bytes = (commandLine + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        synchronized (this) {
+            if (isClosed) {
+                return CompletableFuture.failedFuture(new IOException("The connection is closed"));
+            }
+            pendingReplies.add(future);
+            outbound.add(ByteBuffer.wrap(bytes));
+        }
+        reactor.scheduleWrite(this);
+
+        return future;
+    }
+
+    /**
+     * Commands sent and not answered yet.
+     */
+    public synchronized int inFlightCount() {
+        return pendingReplies.size();
+    }
+
+    public synchronized boolean isOpen() {
+        return !isClosed;
+    }
+
+    @Override
+    public void close() {
+        fail(new IOException("The connection is closed"));
+        if (ownsReactor) {
+            reactor.close();
+        }
+    }
+
+    void attach(Selector selector) {
+        try {
+            synchronized (this) {
+                if (isClosed) {
+                    return;
+                }
+                channel.configureBlocking(false);
+                key = channel.register(selector, SelectionKey.OP_READ, this);
+            }
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        flush();
+    }
+
+    /**
+     * Writes as many of the queued commands as the socket takes, all in one gathering write.
+     */
+    void flush() {
+        try {
+            synchronized (this) {
+                if (key == null || isClosed) {
+                    return;
+                }
+
+                channel.write(outbound.toArray(new ByteBuffer[0]));
+                while (!outbound.isEmpty() && !outbound.peek().hasRemaining()) {
+                    outbound.poll();
+                }
+                key.interestOps(outbound.isEmpty() ? SelectionKey.OP_READ
+                        : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    void read(ByteBuffer buffer) {
+        try {
+            buffer.clear();
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("The server closed the connection");
+            }
+
+            buffer.flip();
+            int start = buffer.position();
+            for (int i = start; i < buffer.limit(); i++) {
+                if (buffer.get(i) == NEW_LINE) {
+                    reply.write(buffer.array(), start, i - start);
+                    complete(nextReply());
+                    start = i + 1;
+                }
+            }
+            reply.write(buffer.array(), start, buffer.limit() - start);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Closes the connection and fails every command still waiting for a reply.
+     */
+    void fail(IOException cause) {
+        Queue<CompletableFuture<String>> unanswered;
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            unanswered = new ArrayDeque<>(pendingReplies);
+            pendingReplies.clear();
+            outbound.clear();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+
+        for (CompletableFuture<String> future : unanswered) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    private CompletableFuture<String> send(CommandType type, String... arguments) {
+        StringBuilder commandLine = new StringBuilder(type.name());
+        for (String argument : arguments) {
+            if (argument == null || argument.isBlank() || argument.chars().anyMatch(Character::isWhitespace)) {
+                throw new IllegalArgumentException("Arguments of " + type + " must be single words");
+            }
+            commandLine.append(' ').append(argument);
+        }
+
+        return send(commandLine.toString());
+    }
+
+    private String nextReply() {
+        String line = reply.toString(StandardCharsets.UTF_8);
+        reply.reset();
+        return line.endsWith(CARRIAGE_RETURN) ? line.substring(0, line.length() - 1) : line;
+    }
+
+    private void complete(String line) {
+        CompletableFuture<String> future;
+        synchronized (this) {
+            future = pendingReplies.poll();
+        }
+        if (future != null) {
+            future.complete(line);
+        }
+    }
+}
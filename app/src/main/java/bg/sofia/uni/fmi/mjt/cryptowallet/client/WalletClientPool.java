@@ -0,0 +1,63 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A fixed number of connections to the server sharing one I/O thread, for spreading independent
+ * commands over several connections. Since the server keeps the logged in user per connection,
+ * commands of one session must keep going through the same client.
+ */
+public class WalletClientPool implements AutoCloseable {
+
+    private final ClientReactor reactor;
+    private final List<WalletClient> clients;
+
+    private WalletClientPool(ClientReactor reactor, List<WalletClient> clients) {
+        this.reactor = reactor;
+        this.clients = clients;
+    }
+
+    public static WalletClientPool connect(InetSocketAddress server, int size) throws IOException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+
+        ClientReactor reactor = new ClientReactor();
+        List<WalletClient> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < size; i++) {
+                clients.add(WalletClient.connect(server, reactor, false));
+            }
+        } catch (IOException e) {
+            clients.forEach(WalletClient::close);
+            reactor.close();
+            throw e;
+        }
+
+        return new WalletClientPool(reactor, List.copyOf(clients));
+    }
+
+    /**
+     * Returns the open client with the fewest commands waiting for a reply.
+     */
+    public WalletClient next() {
+        return clients.stream()
+                .filter(WalletClient::isOpen)
+                .min(Comparator.comparingInt(WalletClient::inFlightCount))
+                .orElseThrow(() -> new IllegalStateException("Every connection of the pool is closed"));
+    }
+
+    public List<WalletClient> clients() {
+        return clients;
+    }
+
+    @Override
+    public void close() {
+        clients.forEach(WalletClient::close);
+        reactor.close();
+    }
+}
@@ -0,0 +1,195 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.coinapi;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.CircuitOpenException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.TooManyRequestsException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UnauthorizedException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Guards the calls to CoinAPI. While closed every call goes through. Too many failures in a row, a
+ * rejected key or a rate limit open it, and while open calls fail fast with {@link CircuitOpenException}
+ * without reaching CoinAPI. Once the backoff, or the wait CoinAPI asked for if that is longer, has
+ * passed a single trial call is let through: its success closes the breaker, its failure opens it
+ * again for twice as long.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public interface Listener {
+        default void onStateChange(State from, State to, Duration openFor) {
+        }
+
+        default void onCall(Duration latency, boolean isSuccessful) {
+        }
+    }
+
+    public record Stats(State state, long successCount, long failureCount, long rejectedCount,
+                        Duration lastLatency, Duration maxLatency, Duration totalLatency) { }
+
+    private static final int MAX_BACKOFF_SHIFT = 30;
+    private final CircuitBreakerConfig config;
+    private final LongSupplier nanoClock;
+    private final List<Listener> listeners;
+    private State state;
+    private int consecutiveFailures;
+    private int consecutiveOpenings;
+    private long openUntilNanos;
+    private boolean isTrialRunning;
+    private long successCount;
+    private long failureCount;
+    private long rejectedCount;
+    private long lastLatencyNanos;
+    private long maxLatencyNanos;
+    private long totalLatencyNanos;
+
+    public CircuitBreaker(CircuitBreakerConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    public CircuitBreaker(CircuitBreakerConfig config, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.state = State.CLOSED;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts the call if the breaker lets it through and records its outcome once it completes.
+     * Otherwise returns a future failed with {@link CircuitOpenException}.
+     */
+    public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> call) {
+        Duration remaining = tryAcquire();
+        if (remaining != null) {
+            return CompletableFuture.failedFuture(new CircuitOpenException(
+                    "CoinAPI calls are suspended for another " + remaining.toSeconds() + " seconds"));
+        }
+
+        long start = nanoClock.getAsLong();
+        CompletableFuture<T> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+
+        return started.whenComplete((result, e) -> {
+            long latency = nanoClock.getAsLong() - start;
+            if (e == null) {
+                onSuccess(latency);
+            } else {
+                onFailure(unwrap(e), latency);
+            }
+        });
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(state, successCount, failureCount, rejectedCount, Duration.ofNanos(lastLatencyNanos),
+                Duration.ofNanos(maxLatencyNanos), Duration.ofNanos(totalLatencyNanos));
+    }
+
+    private synchronized Duration tryAcquire() {
+        long now = nanoClock.getAsLong();
+        if (state == State.OPEN && now - openUntilNanos >= 0) {
+            transition(State.HALF_OPEN, null);
+        }
+        if (state == State.CLOSED) {
+            return null;
+        }
+        if (state == State.HALF_OPEN && !isTrialRunning) {
+            isTrialRunning = true;
+            return null;
+        }
+
+        rejectedCount++;
+        return Duration.ofNanos(Math.max(0, openUntilNanos - now));
+    }
+
+    private synchronized void onSuccess(long latencyNanos) {
+        recordLatency(latencyNanos);
+        successCount++;
+        consecutiveFailures = 0;
+        consecutiveOpenings = 0;
+        isTrialRunning = false;
+        if (state != State.CLOSED) {
+            transition(State.CLOSED, null);
+        }
+        notifyCall(latencyNanos, true);
+    }
+
+    private synchronized void onFailure(Throwable cause, long latencyNanos) {
+        recordLatency(latencyNanos);
+        failureCount++;
+        consecutiveFailures++;
+        isTrialRunning = false;
+
+        boolean isRejected = cause instanceof TooManyRequestsException || cause instanceof UnauthorizedException;
+        if (state == State.HALF_OPEN || isRejected || consecutiveFailures >= config.failureThreshold()) {
+            Duration retryAfter = cause instanceof TooManyRequestsException e ? e.retryAfter() : null;
+            open(retryAfter);
+        }
+        notifyCall(latencyNanos, false);
+    }
+
+    private void open(Duration retryAfter) {
+        Duration backoff = backoff(consecutiveOpenings++);
+        if (retryAfter != null && retryAfter.compareTo(backoff) > 0) {
+            backoff = retryAfter;
+        }
+
+        openUntilNanos = nanoClock.getAsLong() + backoff.toNanos();
+        transition(State.OPEN, backoff);
+    }
+
+    private Duration backoff(int openings) {
+        long base = config.baseBackoff().toNanos();
+        int shift = Math.min(openings, MAX_BACKOFF_SHIFT);
+        long exponential = base > (config.maxBackoff().toNanos() >> shift) ? config.maxBackoff().toNanos()
+                : base << shift;
+        double jitter = config.jitterRatio() * ThreadLocalRandom.current().nextDouble();
+
+        return Duration.ofNanos((long) (exponential * (1 - jitter)));
+    }
+
+    private void transition(State to, Duration openFor) {
+        State from = state;
+        state = to;
+        for (Listener listener : listeners) {
+            listener.onStateChange(from, to, openFor);
+        }
+    }
+
+    private void recordLatency(long latencyNanos) {
+        lastLatencyNanos = latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+        totalLatencyNanos += latencyNanos;
+    }
+
+    private void notifyCall(long latencyNanos, boolean isSuccessful) {
+        for (Listener listener : listeners) {
+            listener.onCall(Duration.ofNanos(latencyNanos), isSuccessful);
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
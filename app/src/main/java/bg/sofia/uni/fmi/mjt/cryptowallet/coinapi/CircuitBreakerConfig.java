@@ -0,0 +1,47 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.coinapi;
+
+import java.time.Duration;
+
+/**
+ * Settings of the CoinAPI circuit breaker. It opens after failureThreshold consecutive failures, or
+ * at once when CoinAPI rejects the key or the rate, for baseBackoff doubled on every opening in a row
+ * up to maxBackoff. Each backoff is shortened by a random fraction of up to jitterRatio.
+ */
+public record CircuitBreakerConfig(int failureThreshold, Duration baseBackoff, Duration maxBackoff,
+                                   double jitterRatio) {
+
+    private static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    private static final long DEFAULT_BASE_BACKOFF_SECONDS = 30;
+    private static final long DEFAULT_MAX_BACKOFF_SECONDS = 3600;
+    private static final double DEFAULT_JITTER_RATIO = 0.2;
+
+    public CircuitBreakerConfig {
+        if (failureThreshold <= 0 || baseBackoff.isNegative() || maxBackoff.compareTo(baseBackoff) < 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive and backoffs ordered");
+        }
+        if (jitterRatio < 0 || jitterRatio >= 1) {
+            throw new IllegalArgumentException("Jitter ratio must be in [0, 1)");
+        }
+    }
+
+    public static CircuitBreakerConfig of(int failureThreshold, long baseBackoffSeconds, long maxBackoffSeconds) {
+        return new CircuitBreakerConfig(failureThreshold, Duration.ofSeconds(baseBackoffSeconds),
+                Duration.ofSeconds(maxBackoffSeconds), DEFAULT_JITTER_RATIO);
+    }
+
+    public static CircuitBreakerConfig defaults() {
+        return of(DEFAULT_FAILURE_THRESHOLD, DEFAULT_BASE_BACKOFF_SECONDS, DEFAULT_MAX_BACKOFF_SECONDS);
+    }
+
+    public static int defaultFailureThreshold() {
+        return DEFAULT_FAILURE_THRESHOLD;
+    }
+
+    public static long defaultBaseBackoffSeconds() {
+        return DEFAULT_BASE_BACKOFF_SECONDS;
+    }
+
+    public static long defaultMaxBackoffSeconds() {
+        return DEFAULT_MAX_BACKOFF_SECONDS;
+    }
+}
@@ -0,0 +1,82 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.coinapi;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads the /v1/assets array as a stream. Only the four fields of {@link CryptoInformation} are
+ * read, every other field is skipped without being materialized, assets that are not priced
+ * cryptocurrencies are dropped as soon as they are read, and reading stops once limit assets are kept.
+ */
+public final class CoinApiAssetsParser {
+
+    private static final String ASSET_ID = "asset_id";
+    private static final String NAME = "name";
+    private static final String TYPE_IS_CRYPTO = "type_is_crypto";
+    private static final String PRICE_USD = "price_usd";
+    private static final int CRYPTO = 1;
+
+    private CoinApiAssetsParser() {
+    }
+
+    public static Set<CryptoInformation> parse(InputStream body, int limit) throws IOException {
+        Set<CryptoInformation> assets = new HashSet<>();
+        JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        reader.setLenient(true);
+
+        reader.beginArray();
+        int keptCount = 0;
+        while (keptCount < limit && reader.hasNext()) {
+            CryptoInformation asset = readAsset(reader);
+            if (asset != null) {
+                assets.add(asset);
+                keptCount++;
+            }
+        }
+
+        return assets;
+    }
+
+    private static CryptoInformation readAsset(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+
+        String assetID = null;
+        String assetName = null;
+        int isCrypto = 0;
+        double price = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+
+            switch (field) {
+                case ASSET_ID -> assetID = reader.nextString();
+                case NAME -> assetName = reader.nextString();
+                case TYPE_IS_CRYPTO -> isCrypto = reader.nextInt();
+                case PRICE_USD -> price = reader.nextDouble();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (isCrypto != CRYPTO || price == 0) {
+            return null;
+        }
+
+        return new CryptoInformation(assetID, assetName, isCrypto, price);
+    }
+}
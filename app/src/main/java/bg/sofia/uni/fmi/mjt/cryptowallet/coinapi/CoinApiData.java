@@ -5,69 +5,194 @@ import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.Cryptocurrencies;
 import bg.sofia.uni.fmi.mjt.cryptowallet.exception.BadRequestToRestApiException;
 import bg.sofia.uni.fmi.mjt.cryptowallet.exception.TooManyRequestsException;
 import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UnauthorizedException;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import bg.sofia.uni.fmi.mjt.cryptowallet.jfr.CoinApiFetchEvent;
 
-import java.lang.reflect.Type;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
 
 public class CoinApiData {
 
-    private static final String API_ENDPOINT_SCHEME = "https";
-    private static final String API_ENDPOINT_HOST = "rest.coinapi.io";
-    private static final String API_ENDPOINT_PATH = "/v1/assets";
+    private static final String API_ENDPOINT = "https://rest.coinapi.io/v1/assets";
     private static final String API_HEADER_TEXT = "X-CoinAPI-Key";
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String GZIP = "gzip";
+    private static final String RETRY_AFTER = "Retry-After";
+    private static final String RATE_LIMIT_RESET = "X-RateLimit-Reset";
     private static final String TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long DEFAULT_FETCH_TIMEOUT_SECONDS = 60;
+    private static final int NO_RESPONSE = -1;
+    private static final int BODY_READERS_COUNT = 2;
+    private static final ExecutorService BODY_READERS = Executors.newFixedThreadPool(BODY_READERS_COUNT, runnable -> {
+        Thread thread = new Thread(runnable, "coinapi-body-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
     public static final int TOO_MANY_REQUESTS = 429;
     public static final int MAX_CRYPTOCURRENCIES = 50;
-    private static final Gson GSON = new Gson();
     private final HttpClient client;
+    private final URI endpoint;
+    private final String apiKey;
+    private final int maxCryptocurrencies;
+    private final Duration fetchTimeout;
 
     public CoinApiData(HttpClient client) {
+        this(client, URI.create(API_ENDPOINT), System.getenv("API_KEY"));
+    }
+
+    public CoinApiData(HttpClient client, URI endpoint, String apiKey) {
+        this(client, endpoint, apiKey, MAX_CRYPTOCURRENCIES);
+    }
+
+    public CoinApiData(HttpClient client, URI endpoint, String apiKey, int maxCryptocurrencies) {
+        this(client, endpoint, apiKey, maxCryptocurrencies, Duration.ofSeconds(DEFAULT_FETCH_TIMEOUT_SECONDS));
+    }
+
+    public CoinApiData(HttpClient client, URI endpoint, String apiKey, int maxCryptocurrencies,
+                       Duration fetchTimeout) {
         this.client = client;
+        this.endpoint = endpoint;
+        this.apiKey = apiKey;
+        this.maxCryptocurrencies = maxCryptocurrencies;
+        this.fetchTimeout = fetchTimeout;
     }
 
-    private HttpResponse<String> sendRequest() throws BadRequestToRestApiException {
-        HttpResponse<String> response;
+    public static String defaultEndpoint() {
+        return API_ENDPOINT;
+    }
 
-        try {
-            URI uri = new URI(API_ENDPOINT_SCHEME, API_ENDPOINT_HOST, API_ENDPOINT_PATH, null); 
-            String apiKey = System.getenv("API_KEY");
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(uri)
-                    .setHeader(API_HEADER_TEXT, apiKey)
-                    .build();
+    public static long defaultFetchTimeoutSeconds() {
+        return DEFAULT_FETCH_TIMEOUT_SECONDS;
+    }
+
+    /**
+     * Creates the client meant to be shared by every request of a server. It prefers HTTP/2 and
+     * keeps its connections open, so only the first request pays for the TCP and TLS handshakes.
+     */
+    public static HttpClient newHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
 
-            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    private CompletableFuture<HttpResponse<InputStream>> sendRequest() {
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder()
+                    .uri(endpoint)
+                    .timeout(REQUEST_TIMEOUT)
+                    .setHeader(ACCEPT_ENCODING, GZIP);
+            if (apiKey != null) {
+                request.setHeader(API_HEADER_TEXT, apiKey);
+            }
 
-            return response;
+            return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofInputStream());
         } catch (Exception e) {
-            throw new BadRequestToRestApiException("There is a problem with your request", e);
+            return CompletableFuture.failedFuture(
+                    new BadRequestToRestApiException("There is a problem with your request", e));
         }
     }
 
+    /**
+     * Requests the offerings without blocking the caller. The returned future completes exceptionally
+     * with the same exceptions {@link #getCryptocurrenciesInfo()} throws. The request timeout only
+     * bounds the wait for the headers, so the whole fetch has a deadline of its own, after which the
+     * body is closed and a stalled read of it fails. The body is read and parsed on a few threads of
+     * its own rather than on the common pool, which a slow body would otherwise hold.
+     */
+    public CompletableFuture<Cryptocurrencies> getCryptocurrenciesInfoAsync() {
+        CoinApiFetchEvent event = new CoinApiFetchEvent();
+        event.begin();
+        BodyGuard bodyGuard = new BodyGuard();
+        CompletableFuture<Cryptocurrencies> fetch = sendRequest().handleAsync((response, e) -> {
+            if (e != null) {
+                event.commit(NO_RESPONSE, 0, 0);
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof BadRequestToRestApiException) {
+                    throw new CompletionException(cause);
+                }
+                throw new CompletionException(new BadRequestToRestApiException("There is a problem with your request",
+                        cause));
+            }
+
+            CountingInputStream body = new CountingInputStream(response.body());
+            bodyGuard.open(body);
+            int assetsCount = 0;
+            try (body) {
+                Cryptocurrencies cryptocurrencies = toCryptocurrencies(response, body);
+                assetsCount = cryptocurrencies.cryptocurrencies().size();
+                return cryptocurrencies;
+            } catch (IOException ex) {
+                throw new CompletionException(new BadRequestToRestApiException("Failed to read the response", ex));
+            } catch (BadRequestToRestApiException | TooManyRequestsException | UnauthorizedException ex) {
+                throw new CompletionException(ex);
+            } finally {
+                event.commit(response.statusCode(), body.count(), assetsCount);
+            }
+        }, BODY_READERS);
+
+        return fetch.orTimeout(fetchTimeout.toMillis(), TimeUnit.MILLISECONDS).handle((cryptocurrencies, e) -> {
+            if (e == null) {
+                return cryptocurrencies;
+            }
+
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof TimeoutException) {
+                bodyGuard.close();
+                throw new CompletionException(new BadRequestToRestApiException(
+                        "CoinAPI did not send the offerings in " + fetchTimeout.toMillis() + " ms", cause));
+            }
+            throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+        });
+    }
+
     public Cryptocurrencies getCryptocurrenciesInfo() throws BadRequestToRestApiException, TooManyRequestsException,
             UnauthorizedException {
 
-        HttpResponse<String> response = sendRequest();
+        try {
+            return getCryptocurrenciesInfoAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BadRequestToRestApiException cause) {
+                throw cause;
+            } else if (e.getCause() instanceof TooManyRequestsException cause) {
+                throw cause;
+            } else if (e.getCause() instanceof UnauthorizedException cause) {
+                throw cause;
+            }
+            throw new BadRequestToRestApiException("There is a problem with your request", e.getCause());
+        }
+    }
+
+    private Cryptocurrencies toCryptocurrencies(HttpResponse<InputStream> response, InputStream body)
+            throws IOException, BadRequestToRestApiException, TooManyRequestsException, UnauthorizedException {
 
         if (response.statusCode() == HttpURLConnection.HTTP_OK) {
-            Type cryptoListType = new TypeToken<Set<CryptoInformation>>() { }.getType();
-            Set<CryptoInformation> cryptoInformationSet = GSON.fromJson(response.body(), cryptoListType);
-
-            Set<CryptoInformation> onlyCryptoInfo = cryptoInformationSet.stream()
-                    .filter(e -> e.isCrypto() == 1)
-                    .filter(e -> e.price() != 0)
-                    .limit(MAX_CRYPTOCURRENCIES)
-                    .collect(Collectors.toSet());
+            Set<CryptoInformation> onlyCryptoInfo = CoinApiAssetsParser.parse(decode(response, body),
+                    maxCryptocurrencies);
 
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern(TIME_FORMAT);
             String formattedTime = LocalDateTime.now().format(formatter);
@@ -79,9 +204,132 @@ public class CoinApiData {
         } else if (response.statusCode() == HttpURLConnection.HTTP_UNAUTHORIZED) {
             throw new UnauthorizedException("Your API key is wrong or invalid");
         } else if (response.statusCode() == TOO_MANY_REQUESTS) {
-            throw new TooManyRequestsException("You have made too many requests to the server, try again later");
+            throw new TooManyRequestsException("You have made too many requests to the server, try again later",
+                    retryAfter(response.headers(), Instant.now()));
         }
 
-        return null;
+        throw new BadRequestToRestApiException("Unexpected response status " + response.statusCode());
+    }
+
+    /**
+     * Reads how long to wait from Retry-After, given in seconds or as a date, or else from the
+     * X-RateLimit-Reset instant CoinAPI sends. Returns null when neither header can be used.
+     */
+    static Duration retryAfter(HttpHeaders headers, Instant now) {
+        Duration retryAfter = headers.firstValue(RETRY_AFTER)
+                .map(value -> parseRetryAfter(value.strip(), now))
+                .orElse(null);
+        if (retryAfter != null) {
+            return retryAfter;
+        }
+
+        return headers.firstValue(RATE_LIMIT_RESET)
+                .map(value -> parseInstant(value.strip(), now))
+                .orElse(null);
+    }
+
+    private static Duration parseRetryAfter(String value, Instant now) {
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            try {
+                return nonNegative(Duration.between(now,
+                        ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()));
+            } catch (DateTimeParseException ex) {
+                return null;
+            }
+        }
+    }
+
+    private static Duration parseInstant(String value, Instant now) {
+        try {
+            return nonNegative(Duration.between(now, Instant.parse(value)));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Duration nonNegative(Duration duration) {
+        return duration.isNegative() ? Duration.ZERO : duration;
+    }
+
+    private static InputStream decode(HttpResponse<InputStream> response, InputStream body) throws IOException {
+        boolean isGzipped = response.headers().firstValue(CONTENT_ENCODING)
+                .map(encoding -> encoding.equalsIgnoreCase(GZIP))
+                .orElse(false);
+
+        return isGzipped ? new GZIPInputStream(body) : body;
+    }
+
+    /**
+     * Holds the body being read, so the deadline of the fetch can close it from another thread.
+     */
+    private static final class BodyGuard {
+
+        private InputStream body;
+        private boolean isClosed;
+
+        private synchronized void open(InputStream newBody) {
+            body = newBody;
+            if (isClosed) {
+                closeBody();
+            }
+        }
+
+        private synchronized void close() {
+            isClosed = true;
+            if (body != null) {
+                closeBody();
+            }
+        }
+
+        private void closeBody() {
+            try {
+                body.close();
+            } catch (IOException e) {
+                // The body is abandoned, a failure to close it changes nothing
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes read from the response body as they arrived, before any decompression.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long bytesCount) throws IOException {
+            long skipped = super.skip(bytesCount);
+            count += skipped;
+            return skipped;
+        }
+
+        private long count() {
+            return count;
+        }
     }
 }
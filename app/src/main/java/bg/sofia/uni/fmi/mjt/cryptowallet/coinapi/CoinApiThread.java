@@ -1,30 +1,28 @@
 package bg.sofia.uni.fmi.mjt.cryptowallet.coinapi;
 
 import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.Cryptocurrencies;
-import bg.sofia.uni.fmi.mjt.cryptowallet.exception.BadRequestToRestApiException;
-import bg.sofia.uni.fmi.mjt.cryptowallet.exception.TooManyRequestsException;
-import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UnauthorizedException;
 import bg.sofia.uni.fmi.mjt.cryptowallet.log.Log;
 
-import java.net.http.HttpClient;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
 
 public class CoinApiThread implements Callable<Cryptocurrencies> {
     private final Log log = new Log();
+    private final CoinApiData data;
+    private final CircuitBreaker circuitBreaker;
+
+    public CoinApiThread(CoinApiData data, CircuitBreaker circuitBreaker) {
+        this.data = data;
+        this.circuitBreaker = circuitBreaker;
+    }
 
     @Override
     public Cryptocurrencies call() {
-
-        HttpClient client = HttpClient.newBuilder().build();
-        CoinApiData data = new CoinApiData(client);
-
-        Cryptocurrencies crypto;
         try {
-            crypto = data.getCryptocurrenciesInfo();
-            return crypto;
-        } catch (BadRequestToRestApiException | TooManyRequestsException | UnauthorizedException e) {
+            return circuitBreaker.call(data::getCryptocurrenciesInfoAsync).join();
+        } catch (CompletionException e) {
             log.saveServerException(e);
-            throw new RuntimeException(e);
+            throw new RuntimeException(e.getCause());
         }
     }
 }
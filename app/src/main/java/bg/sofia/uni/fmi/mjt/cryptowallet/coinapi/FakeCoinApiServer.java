@@ -0,0 +1,246 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.coinapi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stand-in for the CoinAPI /v1/assets endpoint, for tests and benchmarks that must run offline.
+ * It replays a recorded or generated payload and can be told to answer late, to reject bursts of
+ * requests with 429 and to drip the body in small chunks.
+ */
+public class FakeCoinApiServer implements AutoCloseable {
+
+    /**
+     * How the server misbehaves. Every burstEvery-th request starts a burst of burstLength requests
+     * rejected with 429 and a Retry-After of retryAfter; a burstEvery of 0 disables bursts. A positive
+     * dripChunkBytes sends the body in chunks of that size with dripDelay after each.
+     */
+    public record Behavior(Duration latency, int burstEvery, int burstLength, Duration retryAfter,
+                           int dripChunkBytes, Duration dripDelay) {
+
+        public static Behavior normal() {
+            return new Behavior(Duration.ZERO, 0, 0, Duration.ZERO, 0, Duration.ZERO);
+        }
+
+        public Behavior withLatency(Duration newLatency) {
+            return new Behavior(newLatency, burstEvery, burstLength, retryAfter, dripChunkBytes, dripDelay);
+        }
+
+        public Behavior withBursts(int newBurstEvery, int newBurstLength, Duration newRetryAfter) {
+            return new Behavior(latency, newBurstEvery, newBurstLength, newRetryAfter, dripChunkBytes, dripDelay);
+        }
+
+        public Behavior withDrip(int newDripChunkBytes, Duration newDripDelay) {
+            return new Behavior(latency, burstEvery, burstLength, retryAfter, newDripChunkBytes, newDripDelay);
+        }
+    }
+
+    private static final String ASSETS_PATH = "/v1/assets";
+    private static final String GZIP = "gzip";
+    private static final int OK = 200;
+    private static final int DEFAULT_PORT = 8089;
+    private static final int DEFAULT_ASSETS_COUNT = 15_000;
+    private static final int PRICED_EVERY = 5;
+    private static final int FIAT_EVERY = 3;
+    private static final double HOUR_VOLUME_STEP = 13.37;
+    private static final double DAY_VOLUME_STEP = 321.5;
+    private static final double MONTH_VOLUME_STEP = 9876.25;
+    private static final double PRICE_STEP = 0.125;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final AtomicLong requestsCount;
+    private final AtomicLong rejectedCount;
+    private volatile byte[] payload;
+    private volatile byte[] gzippedPayload;
+    private volatile Behavior behavior;
+
+    public FakeCoinApiServer(int port, byte[] payload) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.handlers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-coinapi");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.requestsCount = new AtomicLong();
+        this.rejectedCount = new AtomicLong();
+        this.behavior = Behavior.normal();
+        setPayload(payload);
+        server.createContext(ASSETS_PATH, this::handle);
+        server.setExecutor(handlers);
+    }
+
+    public static FakeCoinApiServer replaying(int port, Path recordedPayload) throws IOException {
+        return new FakeCoinApiServer(port, Files.readAllBytes(recordedPayload));
+    }
+
+    public static FakeCoinApiServer generating(int port, int assetsCount) throws IOException {
+        return new FakeCoinApiServer(port, syntheticAssets(assetsCount));
+    }
+
+    public FakeCoinApiServer start() {
+        server.start();
+        return this;
+    }
+
+    public URI endpoint() {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + ASSETS_PATH);
+    }
+
+    public void setBehavior(Behavior newBehavior) {
+        this.behavior = newBehavior;
+    }
+
+    public final void setPayload(byte[] newPayload) {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(newPayload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.payload = newPayload;
+        this.gzippedPayload = gzipped.toByteArray();
+    }
+
+    public long requestsCount() {
+        return requestsCount.get();
+    }
+
+    public long rejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    /**
+     * Generates a /v1/assets body shaped like the real one: every third asset is not a cryptocurrency,
+     * every fifth has no price and each carries the fields the wallet never reads.
+     */
+    public static byte[] syntheticAssets(int assetsCount) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < assetsCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"asset_id\":\"A").append(i).append("\",\"name\":\"Asset number ").append(i)
+                    .append("\",\"type_is_crypto\":").append(i % FIAT_EVERY == 0 ? 0 : 1)
+                    .append(",\"data_quote_start\":\"2014-02-24T17:43:05.0000000Z\"")
+                    .append(",\"data_quote_end\":\"2023-09-05T00:00:00.0000000Z\"")
+                    .append(",\"data_orderbook_start\":\"2014-02-24T17:43:05.0000000Z\"")
+                    .append(",\"data_trade_start\":\"2010-07-17T23:09:17.0000000Z\"")
+                    .append(",\"data_symbols_count\":").append(i)
+                    .append(",\"volume_1hrs_usd\":").append(i * HOUR_VOLUME_STEP)
+                    .append(",\"volume_1day_usd\":").append(i * DAY_VOLUME_STEP)
+                    .append(",\"volume_1mth_usd\":").append(i * MONTH_VOLUME_STEP);
+            if (i % PRICED_EVERY != 0) {
+                json.append(",\"price_usd\":").append(1 + i * PRICE_STEP);
+            }
+            json.append(",\"chain_addresses\":[{\"chain_id\":\"ETHEREUM\",\"network_id\":\"MAINNET\",")
+                    .append("\"address\":\"0x").append(Integer.toHexString(i)).append("\"}]")
+                    .append(",\"id_icon\":\"4caf2b16-a017-4e26-a348-2cea69c34cba\"}");
+        }
+
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            long request = requestsCount.incrementAndGet();
+            Behavior current = behavior;
+            sleep(current.latency());
+
+            if (isInBurst(request, current)) {
+                rejectedCount.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(current.retryAfter().toSeconds()));
+                exchange.sendResponseHeaders(CoinApiData.TOO_MANY_REQUESTS, -1);
+                return;
+            }
+
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean isGzipped = acceptEncoding != null && acceptEncoding.contains(GZIP);
+            byte[] body = isGzipped ? gzippedPayload : payload;
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (isGzipped) {
+                exchange.getResponseHeaders().set("Content-Encoding", GZIP);
+            }
+            exchange.sendResponseHeaders(OK, body.length);
+            writeBody(exchange.getResponseBody(), body, current);
+        }
+    }
+
+    private static boolean isInBurst(long request, Behavior current) {
+        if (current.burstEvery() <= 0 || current.burstLength() <= 0) {
+            return false;
+        }
+
+        long position = (request - 1) % (current.burstEvery() + current.burstLength());
+        return position >= current.burstEvery();
+    }
+
+    private static void writeBody(OutputStream out, byte[] body, Behavior current) throws IOException {
+        if (current.dripChunkBytes() <= 0) {
+            out.write(body);
+            return;
+        }
+
+        for (int offset = 0; offset < body.length; offset += current.dripChunkBytes()) {
+            out.write(body, offset, Math.min(current.dripChunkBytes(), body.length - offset));
+            out.flush();
+            sleep(current.dripDelay());
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(duration.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long getEnvOrDefault(String name, long defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.strip());
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = (int) getEnvOrDefault("FAKE_COINAPI_PORT", DEFAULT_PORT);
+        String recorded = System.getenv("FAKE_COINAPI_PAYLOAD");
+        FakeCoinApiServer fake = recorded == null || recorded.isBlank()
+                ? generating(port, (int) getEnvOrDefault("FAKE_COINAPI_ASSETS", DEFAULT_ASSETS_COUNT))
+                : replaying(port, Path.of(recorded));
+        fake.setBehavior(Behavior.normal()
+                .withLatency(Duration.ofMillis(getEnvOrDefault("FAKE_COINAPI_LATENCY_MS", 0)))
+                .withBursts((int) getEnvOrDefault("FAKE_COINAPI_BURST_EVERY", 0),
+                        (int) getEnvOrDefault("FAKE_COINAPI_BURST_LENGTH", 0),
+                        Duration.ofSeconds(getEnvOrDefault("FAKE_COINAPI_RETRY_AFTER_SECONDS", 1)))
+                .withDrip((int) getEnvOrDefault("FAKE_COINAPI_DRIP_CHUNK_BYTES", 0),
+                        Duration.ofMillis(getEnvOrDefault("FAKE_COINAPI_DRIP_DELAY_MS", 0))));
+        fake.start();
+        System.out.println("Fake CoinAPI is listening on " + fake.endpoint());
+    }
+}
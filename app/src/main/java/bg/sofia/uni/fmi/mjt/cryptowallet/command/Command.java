@@ -1,3 +1,16 @@
 package bg.sofia.uni.fmi.mjt.cryptowallet.command;
 
-public record Command(CommandType type, String[] arguments) { }
+public record Command(CommandType type, String[] arguments, double parsedNumber) {
+
+    public Command(CommandType type, String[] arguments) {
+        this(type, arguments, Double.NaN);
+    }
+
+    public double number(int index) {
+        if (index == type.numberArgumentIndex() && !Double.isNaN(parsedNumber)) {
+            return parsedNumber;
+        }
+
+        return Double.parseDouble(arguments[index]);
+    }
+}
@@ -1,15 +1,19 @@
 package bg.sofia.uni.fmi.mjt.cryptowallet.command;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public class CommandCreator {
-    private static final String SPACE = " ";
 
     public static Command of(String clientInput) {
-        String[] words = clientInput.split(SPACE);
+        ByteBuffer input = ByteBuffer.wrap(clientInput.getBytes(StandardCharsets.UTF_8));
+        CommandParser parser = new CommandParser();
 
-        CommandType type = CommandType.valueOf(words[0].strip());
-        String[] arguments = new String[words.length - 1];
-        System.arraycopy(words, 1, arguments, 0, words.length - 1);
+        ParseResult result = parser.parse(input, input.position(), input.limit());
+        if (result != ParseResult.OK) {
+            throw new IllegalArgumentException("Invalid command: " + result);
+        }
 
-        return new Command(type, arguments);
+        return parser.command();
     }
 }
@@ -4,11 +4,21 @@ import bg.sofia.uni.fmi.mjt.cryptowallet.exception.InsufficientAvailabilityExcep
 import bg.sofia.uni.fmi.mjt.cryptowallet.exception.InvalidSellingException;
 import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserAlreadyDefined;
 import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserNotFound;
+import bg.sofia.uni.fmi.mjt.cryptowallet.jfr.CommandExecutionEvent;
 import bg.sofia.uni.fmi.mjt.cryptowallet.log.Log;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.LogRateLimitConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.LogRateLimiter;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.UserFiles;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.LatencyHistogram;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.MetricsRegistry;
 import bg.sofia.uni.fmi.mjt.cryptowallet.storage.CryptoCurrencyWallet;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 public class CommandExecutor {
 
@@ -20,40 +30,158 @@ public class CommandExecutor {
     private static final String INVALID_DEPOSIT = "Deposited amount of money must be positive";
     private static final String SUCCESSFUL_BUY = "You successfully bought";
     private static final String SUCCESSFUL_SELL = "You successfully sold";
+    private static final String OFFERINGS_AGE = "Offerings were updated %d seconds ago";
+    private static final String UNKNOWN_OFFERINGS_AGE = "Offerings update time is unknown";
+    private static final String STALE_OFFERINGS = " (CoinAPI is unavailable, prices may be outdated)";
+    private static final String STATS_NOT_ALLOWED = "Server statistics are only available on the server machine";
+    private static final String OUTCOME_COMPLETED = "completed";
+    private static final String OUTCOME_INVALID_INPUT = "invalid_input";
+    private static final String OUTCOME_FAILED = "failed";
+    private static final String INVALID_COMMAND_ERROR = "invalid_command";
     private static final double INITIAL_MONEY = 0.0;
     private final CryptoCurrencyWallet cryptoCurrencyWallet;
     private final Log log;
+    private final LogRateLimiter logLimiter;
+    private final MetricsRegistry metrics;
+    private final LatencyHistogram[] commandDurations;
 
     public CommandExecutor(CryptoCurrencyWallet cryptoCurrencyWallet, Log log) {
+        this(cryptoCurrencyWallet, log, new LogRateLimiter(LogRateLimitConfig.defaults(), log));
+    }
+
+    public CommandExecutor(CryptoCurrencyWallet cryptoCurrencyWallet, Log log, LogRateLimiter logLimiter) {
+        this(cryptoCurrencyWallet, log, logLimiter, MetricsRegistry.global());
+    }
+
+    public CommandExecutor(CryptoCurrencyWallet cryptoCurrencyWallet, Log log, LogRateLimiter logLimiter,
+                           MetricsRegistry metrics) {
         this.cryptoCurrencyWallet = cryptoCurrencyWallet;
         this.log = log;
+        this.logLimiter = logLimiter;
+        this.metrics = metrics;
+        this.commandDurations = new LatencyHistogram[CommandType.values().length];
+        for (CommandType type : CommandType.values()) {
+            commandDurations[type.ordinal()] = metrics.histogram("wallet_command_duration_seconds",
+                    "Time spent executing a command", MetricsRegistry.label("command", type.name()));
+        }
     }
 
     public String execute(Command cmd, SocketChannel channel) {
+        CommandExecutionEvent event = new CommandExecutionEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        String outcome = OUTCOME_FAILED;
+        try {
+            String response = dispatch(cmd, channel);
+            outcome = INVALID_INPUT.equals(response) ? OUTCOME_INVALID_INPUT : OUTCOME_COMPLETED;
+            return response;
+        } finally {
+            commandDurations[cmd.type().ordinal()].recordSince(startNanos);
+            event.commit(cmd.type().name(), outcome);
+        }
+    }
+
+    /**
+     * Ends the wallet session of a connection that closed without disconnect.
+     */
+    public void connectionClosed(SocketChannel channel) {
+        cryptoCurrencyWallet.endSession(channel);
+    }
+
+    /**
+     * Logs a line that could not be parsed, rate limited per client like the errors of the commands.
+     */
+    public void invalidCommand(SocketChannel channel, ParseResult result) {
+        if (logLimiter.tryAcquire(clientAddress(channel), null, INVALID_COMMAND_ERROR)) {
+            log.saveServerError("Error occurred: Invalid command - " + result);
+        }
+    }
+
+    private String dispatch(Command cmd, SocketChannel channel) {
         return switch(cmd.type()) {
-            case register -> register(cmd.arguments());
+            case register -> register(channel, cmd.arguments());
             case login -> login(channel, cmd.arguments());
-            case list_offerings -> list(cmd.arguments());
-            case deposit_money -> deposit(channel, cmd.arguments());
-            case buy -> buy(channel, cmd.arguments());
+            case list_offerings -> list(channel, cmd.arguments());
+            case get_offerings_age -> offeringsAge(channel, cmd.arguments());
+            case deposit_money -> deposit(channel, cmd);
+            case buy -> buy(channel, cmd);
             case sell -> sell(channel, cmd.arguments());
             case get_wallet_summary -> getWalletSummary(channel, cmd.arguments());
             case get_wallet_overall_summary -> getWalletOverallSummary(channel, cmd.arguments());
             case disconnect -> disconnect(channel, cmd.arguments());
+            case stats -> stats(channel, cmd.arguments());
         };
     }
 
+    private void logServerError(SocketChannel channel, String msg) {
+        if (logLimiter.tryAcquire(clientAddress(channel), null, msg)) {
+            log.saveServerError(msg);
+        }
+    }
+
+    private void logServerException(SocketChannel channel, String username, Exception e) {
+        if (logLimiter.tryAcquire(clientAddress(channel), username, e.getClass().getSimpleName())) {
+            log.saveServerException(e);
+        }
+    }
+
+    private void logUserError(SocketChannel channel, String username, Exception e) {
+        if (logLimiter.tryAcquire(clientAddress(channel), username, e.getClass().getSimpleName())) {
+            log.saveUserError(username, e);
+        }
+    }
+
+    /**
+     * Shows the server metrics, only to clients connecting from the server's own machine.
+     */
+    private String stats(SocketChannel channel, String[] args) {
+        if (args.length != 0) {
+            logServerError(channel, "Error occurred: Invalid use of stats - argument list is not as expected");
+            return INVALID_INPUT;
+        }
+        if (!isLocalClient(channel)) {
+            logServerError(channel, "Error occurred: Invalid use of stats - client is not local");
+            return STATS_NOT_ALLOWED;
+        }
+
+        return metrics.describe();
+    }
+
+    private static boolean isLocalClient(SocketChannel channel) {
+        try {
+            SocketAddress address = channel == null ? null : channel.getRemoteAddress();
+            return address instanceof InetSocketAddress inetAddress && inetAddress.getAddress() != null
+                    && inetAddress.getAddress().isLoopbackAddress();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String clientAddress(SocketChannel channel) {
+        try {
+            SocketAddress address = channel == null ? null : channel.getRemoteAddress();
+            return address instanceof InetSocketAddress inetAddress ? inetAddress.getHostString() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     private boolean checkNullEmptyBlank(String arg) {
         return arg == null || arg.isEmpty() || arg.isBlank();
     }
 
-    private String register(String[] args) {
+    private String register(SocketChannel channel, String[] args) {
         if (args.length != 2) {
-            log.saveServerError("Error occurred: Invalid use of register - argument list is not as expected");
+            logServerError(channel, "Error occurred: Invalid use of register - argument list is not as expected");
             return INVALID_INPUT;
         }
         if (checkNullEmptyBlank(args[0]) || checkNullEmptyBlank(args[1])) {
-            log.saveServerError("Error occurred: Invalid use of register - some of the arguments are null or empty");
+            logServerError(channel, "Error occurred: Invalid use of register " +
+                    "- some of the arguments are null or empty");
+            return INVALID_INPUT;
+        }
+        if (args[0].getBytes(StandardCharsets.UTF_8).length > UserFiles.MAX_USERNAME_BYTES) {
+            logServerError(channel, "Error occurred: Invalid use of register - username is too long");
             return INVALID_INPUT;
         }
 
@@ -61,7 +189,7 @@ public class CommandExecutor {
         try {
             cryptoCurrencyWallet.register(args[0], args[1]);
         } catch (UserAlreadyDefined e) {
-            log.saveServerException(e);
+            logServerException(channel, args[0], e);
             response = e.getMessage();
         }
 
@@ -70,11 +198,11 @@ public class CommandExecutor {
 
     private String login(SocketChannel channel, String[] args) {
         if (args.length != 2) {
-            log.saveServerError("Error occurred: Invalid use of login - argument list is not as expected");
+            logServerError(channel, "Error occurred: Invalid use of login - argument list is not as expected");
             return INVALID_INPUT;
         }
         if (checkNullEmptyBlank(args[0]) || checkNullEmptyBlank(args[1])) {
-            log.saveServerError("Error occurred: Invalid use of login - some of the arguments are null or empty");
+            logServerError(channel, "Error occurred: Invalid use of login - some of the arguments are null or empty");
             return INVALID_INPUT;
         }
 
@@ -82,26 +210,27 @@ public class CommandExecutor {
         try {
             cryptoCurrencyWallet.login(channel, args[0], args[1]);
         } catch (UserNotFound e) {
-            log.saveUserError(args[0], e);
+            logUserError(channel, args[0], e);
             response = e.getMessage();
         }
 
         return response;
     }
 
-    private String deposit(SocketChannel channel, String[] args) {
+    private String deposit(SocketChannel channel, Command cmd) {
+        String[] args = cmd.arguments();
         if (args.length != 1) {
-            log.saveServerError("Error occurred: Invalid use of deposit_money - argument list is not as expected");
+            logServerError(channel, "Error occurred: Invalid use of deposit_money - argument list is not as expected");
             return INVALID_INPUT;
         }
         if (checkNullEmptyBlank(args[0])) {
-            log.saveServerError("Error occurred: Invalid use of deposit_money - argument list is not as expected");
+            logServerError(channel, "Error occurred: Invalid use of deposit_money - argument list is not as expected");
             return INVALID_INPUT;
         }
 
-        double amount = Double.parseDouble(args[0]);
+        double amount = cmd.number(0);
         if (amount <= INITIAL_MONEY) {
-            log.saveServerError("Error occurred: Invalid use of deposit_money - negative amount");
+            logServerError(channel, "Error occurred: Invalid use of deposit_money - negative amount");
             return INVALID_DEPOSIT;
         }
         String response = SUCCESSFUL_DEPOSIT;
@@ -109,15 +238,15 @@ public class CommandExecutor {
         try {
             cryptoCurrencyWallet.depositMoney(channel, amount);
         } catch (UserNotFound e) {
-            log.saveServerException(e);
+            logServerException(channel, null, e);
             response = e.getMessage();
         }
         return response;
     }
 
-    private String list(String[] args) {
+    private String list(SocketChannel channel, String[] args) {
         if (args.length != 0) {
-            log.saveServerError("Error occurred: Invalid use of list_offerings - argument list is not as expected");
+            logServerError(channel, "Error occurred: Invalid use of list_offerings - argument list is not as expected");
             return INVALID_INPUT;
         }
 
@@ -125,14 +254,27 @@ public class CommandExecutor {
         return response.toString();
     }
 
-    private String buy(SocketChannel channel, String[] args) {
+    private String offeringsAge(SocketChannel channel, String[] args) {
+        if (args.length != 0) {
+            logServerError(channel, "Error occurred: Invalid use of get_offerings_age " +
+                    "- argument list is not as expected");
+            return INVALID_INPUT;
+        }
+
+        Duration age = cryptoCurrencyWallet.getOfferingsAge();
+        String response = age == null ? UNKNOWN_OFFERINGS_AGE : String.format(OFFERINGS_AGE, age.toSeconds());
+        return cryptoCurrencyWallet.areOfferingsStale() ? response + STALE_OFFERINGS : response;
+    }
+
+    private String buy(SocketChannel channel, Command cmd) {
+        String[] args = cmd.arguments();
         if (args.length != 2) {
-            log.saveServerError("Error occurred: Invalid use of buy - argument list is not as expected");
+            logServerError(channel, "Error occurred: Invalid use of buy - argument list is not as expected");
             return INVALID_INPUT;
         }
-        double investingMoney = Double.parseDouble(args[1]);
+        double investingMoney = cmd.number(1);
         if (investingMoney <= INITIAL_MONEY || checkNullEmptyBlank(args[0])) {
-            log.saveServerError("Error occurred: Invalid use of buy - argument is invalid");
+            logServerError(channel, "Error occurred: Invalid use of buy - argument is invalid");
             return INVALID_INPUT;
         }
 
@@ -142,10 +284,10 @@ public class CommandExecutor {
 
         } catch (InsufficientAvailabilityException e) {
             String currUsername = cryptoCurrencyWallet.getUsername(channel);
-            log.saveUserError(currUsername, e);
+            logUserError(channel, currUsername, e);
             response = e.getMessage();
         } catch (IllegalArgumentException | UserNotFound e) {
-            log.saveServerException(e);
+            logServerException(channel, null, e);
             response = e.getMessage();
         }
 
@@ -154,11 +296,11 @@ public class CommandExecutor {
 
     private String sell(SocketChannel channel, String[] args) {
         if (args.length != 1) {
-            log.saveServerError("Error occurred: Invalid use of sell - argument list is not as expected");
+            logServerError(channel, "Error occurred: Invalid use of sell - argument list is not as expected");
             return INVALID_INPUT;
         }
         if (checkNullEmptyBlank(args[0])) {
-            log.saveServerError("Error occurred: Invalid use of sell - argument is null or empty");
+            logServerError(channel, "Error occurred: Invalid use of sell - argument is null or empty");
             return INVALID_INPUT;
         }
         String response = SUCCESSFUL_SELL + " " + args[0];
@@ -166,10 +308,10 @@ public class CommandExecutor {
         try {
             cryptoCurrencyWallet.sell(channel, args[0]);
         } catch (UserNotFound | IllegalArgumentException e) {
-            log.saveServerException(e);
+            logServerException(channel, null, e);
             response = e.getMessage();
         } catch (InvalidSellingException e) {
-            log.saveUserError(cryptoCurrencyWallet.getUsername(channel), e);
+            logUserError(channel, cryptoCurrencyWallet.getUsername(channel), e);
             response = e.getMessage();
         }
 
@@ -178,7 +320,7 @@ public class CommandExecutor {
 
     private String getWalletSummary(SocketChannel channel, String[] args) {
         if (args.length != 0) {
-            log.saveServerError("Error occurred: Invalid use of get_wallet_summary " +
+            logServerError(channel, "Error occurred: Invalid use of get_wallet_summary " +
                     "- argument list is not as expected");
 
             return INVALID_INPUT;
@@ -189,7 +331,7 @@ public class CommandExecutor {
             builder = cryptoCurrencyWallet.getWalletSummary(channel);
 
         } catch (UserNotFound e) {
-            log.saveServerException(e);
+            logServerException(channel, null, e);
             builder = new StringBuilder(e.getMessage());
         }
 
@@ -198,7 +340,7 @@ public class CommandExecutor {
 
     private String getWalletOverallSummary(SocketChannel channel, String[] args) {
         if (args.length != 0) {
-            log.saveServerError("Error occurred: Invalid use of get_wallet_overall_summary " +
+            logServerError(channel, "Error occurred: Invalid use of get_wallet_overall_summary " +
                     "- argument list is not as expected");
 
             return INVALID_INPUT;
@@ -209,7 +351,7 @@ public class CommandExecutor {
             builder = cryptoCurrencyWallet.getWalletOverAllSummary(channel);
 
         } catch (UserNotFound e) {
-            log.saveServerException(e);
+            logServerException(channel, null, e);
             builder = new StringBuilder(e.getMessage());
         }
 
@@ -218,7 +360,7 @@ public class CommandExecutor {
 
     private String disconnect(SocketChannel channel, String[] args) {
         if (args.length != 0) {
-            log.saveServerError("Error occurred: Invalid use of disconnect - argument list is not as expected");
+            logServerError(channel, "Error occurred: Invalid use of disconnect - argument list is not as expected");
             return INVALID_INPUT;
         }
         String response = SUCCESSFUL_DISCONNECT;
@@ -226,10 +368,10 @@ public class CommandExecutor {
         try {
             cryptoCurrencyWallet.disconnect(channel);
         } catch (UserNotFound e) {
-            log.saveServerException(e);
+            logServerException(channel, null, e);
             response = e.getMessage();
         } catch (IOException e) {
-            log.saveServerException(e);
+            logServerException(channel, null, e);
             throw new RuntimeException(e.getMessage());
         }
 
@@ -0,0 +1,253 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.command;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tokenizes a command line straight from a ByteBuffer. The command name is resolved through a
+ * perfect hash table built once over the CommandType names, numeric arguments are parsed from the
+ * bytes without going through a String, and failures are reported as a ParseResult instead of
+ * an exception. An instance reuses its token arrays, so it must be confined to a single thread.
+ */
+public class CommandParser {
+
+    private static final int MAX_ARGUMENTS = 16;
+    private static final int FNV_PRIME = 0x01000193;
+    private static final int MAX_EXACT_DIGITS = 18;
+    private static final int RADIX = 10;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final CommandType[] TYPES = CommandType.values();
+    private static final byte[][] NAMES = new byte[TYPES.length][];
+    private static final int HASH_SEED;
+    private static final int TABLE_MASK;
+    private static final CommandType[] TABLE;
+    private final int[] tokenStarts;
+    private final int[] tokenEnds;
+    private Command command;
+
+    static {
+        for (CommandType type : TYPES) {
+            NAMES[type.ordinal()] = type.name().getBytes(StandardCharsets.US_ASCII);
+        }
+
+        int tableSize = Integer.highestOneBit(TYPES.length) << 2;
+        int seed = 1;
+        CommandType[] table = buildTable(seed, tableSize);
+        while (table == null) {
+            seed++;
+            table = buildTable(seed, tableSize);
+        }
+
+        HASH_SEED = seed;
+        TABLE_MASK = tableSize - 1;
+        TABLE = table;
+    }
+
+    public CommandParser() {
+        this.tokenStarts = new int[MAX_ARGUMENTS + 1];
+        this.tokenEnds = new int[MAX_ARGUMENTS + 1];
+    }
+
+    /**
+     * Parses the bytes between start (inclusive) and end (exclusive) of the buffer. On success the
+     * result is available through {@link #command()} until the next call.
+     */
+    public ParseResult parse(ByteBuffer buffer, int start, int end) {
+        command = null;
+        int tokensCount = tokenize(buffer, start, end);
+        if (tokensCount == 0) {
+            return ParseResult.EMPTY_INPUT;
+        }
+        if (tokensCount > MAX_ARGUMENTS + 1) {
+            return ParseResult.TOO_MANY_ARGUMENTS;
+        }
+
+        CommandType type = lookup(buffer, tokenStarts[0], tokenEnds[0]);
+        if (type == null) {
+            return ParseResult.UNKNOWN_COMMAND;
+        }
+
+        double parsedNumber = Double.NaN;
+        int numberToken = type.numberArgumentIndex() + 1;
+        if (numberToken > 0 && numberToken < tokensCount) {
+            parsedNumber = parseNumber(buffer, tokenStarts[numberToken], tokenEnds[numberToken]);
+            if (Double.isNaN(parsedNumber)) {
+                return ParseResult.INVALID_NUMBER;
+            }
+        }
+
+        String[] arguments = new String[tokensCount - 1];
+        for (int i = 1; i < tokensCount; i++) {
+            arguments[i - 1] = decode(buffer, tokenStarts[i], tokenEnds[i]);
+        }
+        command = new Command(type, arguments, parsedNumber);
+
+        return ParseResult.OK;
+    }
+
+    public Command command() {
+        return command;
+    }
+
+    private int tokenize(ByteBuffer buffer, int start, int end) {
+        int tokensCount = 0;
+        int i = start;
+        while (i < end) {
+            while (i < end && isWhitespace(buffer.get(i))) {
+                i++;
+            }
+            if (i == end) {
+                break;
+            }
+
+            int tokenStart = i;
+            while (i < end && !isWhitespace(buffer.get(i))) {
+                i++;
+            }
+            if (tokensCount <= MAX_ARGUMENTS) {
+                tokenStarts[tokensCount] = tokenStart;
+                tokenEnds[tokensCount] = i;
+            }
+            tokensCount++;
+        }
+
+        return tokensCount;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private static CommandType lookup(ByteBuffer buffer, int start, int end) {
+        CommandType candidate = TABLE[hash(HASH_SEED, buffer, start, end) & TABLE_MASK];
+        if (candidate == null) {
+            return null;
+        }
+
+        byte[] name = NAMES[candidate.ordinal()];
+        if (name.length != end - start) {
+            return null;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (name[i] != buffer.get(start + i)) {
+                return null;
+            }
+        }
+
+        return candidate;
+    }
+
+    private static int hash(int seed, ByteBuffer buffer, int start, int end) {
+        int hash = seed;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ buffer.get(i)) * FNV_PRIME;
+        }
+
+        return hash ^ (hash >>> Short.SIZE);
+    }
+
+    private static CommandType[] buildTable(int seed, int tableSize) {
+        CommandType[] table = new CommandType[tableSize];
+        for (CommandType type : TYPES) {
+            byte[] name = NAMES[type.ordinal()];
+            int slot = hash(seed, ByteBuffer.wrap(name), 0, name.length) & (tableSize - 1);
+            if (table[slot] != null) {
+                return null;
+            }
+            table[slot] = type;
+        }
+
+        return table;
+    }
+
+    /**
+     * Parses a plain decimal number such as 1500, -2.5 or 1e3. Values whose digits and exponent
+     * fit exactly in a double are computed directly; anything longer falls back to the JDK parser.
+     * Returns NaN when the bytes are not a finite decimal number.
+     */
+    private static double parseNumber(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        boolean isNegative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            isNegative = buffer.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        boolean isExact = true;
+        boolean isFraction = false;
+        while (i < end) {
+            byte b = buffer.get(i);
+            if (b == '.' && !isFraction) {
+                isFraction = true;
+            } else if (b >= '0' && b <= '9') {
+                hasDigits = true;
+                if (mantissa != 0 || b != '0') {
+                    significantDigits++;
+                }
+                if (significantDigits <= MAX_EXACT_DIGITS) {
+                    mantissa = mantissa * RADIX + (b - '0');
+                    exponent -= isFraction ? 1 : 0;
+                } else {
+                    isExact = false;
+                    exponent += isFraction ? 0 : 1;
+                }
+            } else {
+                break;
+            }
+            i++;
+        }
+        if (!hasDigits) {
+            return Double.NaN;
+        }
+
+        if (i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+            i++;
+            int exponentStart = i;
+            boolean isExponentNegative = false;
+            if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                isExponentNegative = buffer.get(i) == '-';
+                i++;
+            }
+            int explicitExponent = 0;
+            while (i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+                explicitExponent = Math.min(explicitExponent * RADIX + (buffer.get(i) - '0'), Short.MAX_VALUE);
+                i++;
+            }
+            if (i == exponentStart || !Character.isDigit(buffer.get(i - 1))) {
+                return Double.NaN;
+            }
+            exponent += isExponentNegative ? -explicitExponent : explicitExponent;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+
+        double value;
+        if (isExact && mantissa < MAX_EXACT_MANTISSA && Math.abs(exponent) < POWERS_OF_TEN.length) {
+            value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            value = isNegative ? -value : value;
+        } else {
+            value = Double.parseDouble(decode(buffer, start, end));
+        }
+
+        return Double.isInfinite(value) ? Double.NaN : value;
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        }
+
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -3,11 +3,27 @@ package bg.sofia.uni.fmi.mjt.cryptowallet.command;
 public enum CommandType {
     register,
     login,
-    deposit_money,
+    deposit_money(0),
     list_offerings,
-    buy,
+    get_offerings_age,
+    buy(1),
     sell,
     get_wallet_summary,
     get_wallet_overall_summary,
-    disconnect
+    disconnect,
+    stats;
+
+    private final int numberArgumentIndex;
+
+    CommandType() {
+        this(-1);
+    }
+
+    CommandType(int numberArgumentIndex) {
+        this.numberArgumentIndex = numberArgumentIndex;
+    }
+
+    public int numberArgumentIndex() {
+        return numberArgumentIndex;
+    }
 }
@@ -0,0 +1,9 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.command;
+
+public enum ParseResult {
+    OK,
+    EMPTY_INPUT,
+    UNKNOWN_COMMAND,
+    TOO_MANY_ARGUMENTS,
+    INVALID_NUMBER
+}
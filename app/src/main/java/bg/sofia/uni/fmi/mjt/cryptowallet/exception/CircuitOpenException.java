@@ -0,0 +1,11 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.exception;
+
+public class CircuitOpenException extends Exception {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+
+    public CircuitOpenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
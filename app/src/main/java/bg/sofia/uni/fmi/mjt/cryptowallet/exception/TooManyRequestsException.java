@@ -1,11 +1,28 @@
 package bg.sofia.uni.fmi.mjt.cryptowallet.exception;
 
+import java.time.Duration;
+
 public class TooManyRequestsException extends Exception {
+    private final Duration retryAfter;
+
     public TooManyRequestsException(String message) {
-        super(message);
+        this(message, (Duration) null);
     }
 
     public TooManyRequestsException(String message, Throwable cause) {
         super(message, cause);
+        this.retryAfter = null;
+    }
+
+    public TooManyRequestsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * How long the server asked to wait before the next request, or null if it did not say.
+     */
+    public Duration retryAfter() {
+        return retryAfter;
     }
 }
@@ -0,0 +1,40 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("bg.sofia.uni.fmi.mjt.cryptowallet.CoinApiFetch")
+@Label("CoinAPI Fetch")
+@Category({"Crypto Wallet", "CoinAPI"})
+@Description("A request for the offerings to CoinAPI, from sending it to parsing the body")
+@StackTrace(false)
+@Threshold("0 ms")
+public final class CoinApiFetchEvent extends Event {
+
+    @Label("Status Code")
+    @Description("HTTP status of the response, or -1 when no response arrived")
+    private int statusCode;
+
+    @Label("Body Bytes")
+    @Description("Bytes of the body read before parsing stopped, as sent on the wire")
+    @DataAmount
+    private long bodyBytes;
+
+    @Label("Assets")
+    private int assetsCount;
+
+    public void commit(int responseStatus, long readBytes, int parsedAssets) {
+        if (shouldCommit()) {
+            statusCode = responseStatus;
+            bodyBytes = readBytes;
+            assetsCount = parsedAssets;
+            commit();
+        }
+    }
+}
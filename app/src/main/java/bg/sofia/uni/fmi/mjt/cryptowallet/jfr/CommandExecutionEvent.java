@@ -0,0 +1,33 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("bg.sofia.uni.fmi.mjt.cryptowallet.CommandExecution")
+@Label("Command Execution")
+@Category({"Crypto Wallet", "Commands"})
+@Description("A client command executed by CommandExecutor")
+@StackTrace(false)
+@Threshold("20 ms")
+public final class CommandExecutionEvent extends Event {
+
+    @Label("Command")
+    private String command;
+
+    @Label("Outcome")
+    @Description("completed, invalid_input or failed when the command threw")
+    private String outcome;
+
+    public void commit(String commandName, String commandOutcome) {
+        if (shouldCommit()) {
+            command = commandName;
+            outcome = commandOutcome;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("bg.sofia.uni.fmi.mjt.cryptowallet.CommandParse")
+@Label("Command Parse")
+@Category({"Crypto Wallet", "Commands"})
+@Description("A command line parsed on a reactor thread")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class CommandParseEvent extends Event {
+
+    @Label("Result")
+    private String result;
+
+    @Label("Line Length")
+    @DataAmount
+    private int lineLength;
+
+    public void commit(String parseResult, int lineBytes) {
+        if (shouldCommit()) {
+            result = parseResult;
+            lineLength = lineBytes;
+            commit();
+        }
+    }
+}
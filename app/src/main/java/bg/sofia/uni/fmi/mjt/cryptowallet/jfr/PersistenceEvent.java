@@ -0,0 +1,40 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("bg.sofia.uni.fmi.mjt.cryptowallet.Persistence")
+@Label("Persistence")
+@Category({"Crypto Wallet", "Persistence"})
+@Description("Users or offerings written to disk")
+@StackTrace(false)
+@Threshold("10 ms")
+public final class PersistenceEvent extends Event {
+
+    @Label("Target")
+    @Description("The file or journal written")
+    private String target;
+
+    @Label("Records")
+    private long recordsCount;
+
+    @Label("Bytes")
+    @Description("Bytes written, or -1 when unknown")
+    @DataAmount
+    private long writtenBytes;
+
+    public void commit(String writtenTarget, long records, long bytes) {
+        if (shouldCommit()) {
+            target = writtenTarget;
+            recordsCount = records;
+            writtenBytes = bytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("bg.sofia.uni.fmi.mjt.cryptowallet.SelectorIteration")
+@Label("Selector Iteration")
+@Category({"Crypto Wallet", "Server"})
+@Description("Work a reactor thread did for one wake-up of its selector, without the time spent waiting")
+@StackTrace(false)
+@Threshold("10 ms")
+public final class SelectorIterationEvent extends Event {
+
+    @Label("Selected Keys")
+    private int selectedKeys;
+
+    public void commit(int selectedKeysCount) {
+        if (shouldCommit()) {
+            selectedKeys = selectedKeysCount;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.loadgen;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandType;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Weighted choice of the commands a load test sends, written as "buy:30,sell:10,get_wallet_summary:20".
+ * Weights are relative. Commands that end the session or are not meant for clients can't be mixed in.
+ */
+public class CommandMix {
+
+    private static final Set<CommandType> SUPPORTED = EnumSet.of(CommandType.register, CommandType.login,
+            CommandType.deposit_money, CommandType.list_offerings, CommandType.get_offerings_age, CommandType.buy,
+            CommandType.sell, CommandType.get_wallet_summary, CommandType.get_wallet_overall_summary);
+    private static final String DEFAULT_SPEC = "register:5,login:5,deposit_money:10,buy:25,sell:15,"
+            + "get_wallet_summary:25,get_wallet_overall_summary:15";
+    private final CommandType[] types;
+    private final double[] cumulativeWeights;
+    private final String spec;
+
+    private CommandMix(CommandType[] types, double[] cumulativeWeights, String spec) {
+        this.types = types;
+        this.cumulativeWeights = cumulativeWeights;
+        this.spec = spec;
+    }
+
+    public static CommandMix parse(String spec) {
+        String[] entries = spec.strip().split(",");
+        CommandType[] types = new CommandType[entries.length];
+        double[] cumulativeWeights = new double[entries.length];
+        double total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            String[] parts = entries[i].strip().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Command mix entry must be <command>:<weight>, got " + entries[i]);
+            }
+
+            types[i] = CommandType.valueOf(parts[0].strip());
+            if (!SUPPORTED.contains(types[i])) {
+                throw new IllegalArgumentException("Command " + types[i] + " can't be part of a load test");
+            }
+            double weight = Double.parseDouble(parts[1].strip());
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Command mix weights must be positive");
+            }
+            total += weight;
+            cumulativeWeights[i] = total;
+        }
+
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            cumulativeWeights[i] /= total;
+        }
+        return new CommandMix(types, cumulativeWeights, spec.strip());
+    }
+
+    public static CommandMix defaults() {
+        return parse(DEFAULT_SPEC);
+    }
+
+    public static String defaultSpec() {
+        return DEFAULT_SPEC;
+    }
+
+    /**
+     * Picks a command for a uniformly distributed random number in [0, 1).
+     */
+    public CommandType next(double random) {
+        int index = Arrays.binarySearch(cumulativeWeights, random);
+        int position = index >= 0 ? index + 1 : -index - 1;
+        return types[Math.min(position, types.length - 1)];
+    }
+
+    public Set<CommandType> types() {
+        return EnumSet.copyOf(Arrays.asList(types));
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
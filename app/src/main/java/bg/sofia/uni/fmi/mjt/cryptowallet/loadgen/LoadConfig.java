@@ -0,0 +1,53 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.loadgen;
+
+import java.time.Duration;
+
+/**
+ * Settings of a load test. Requests arrive at requestsPerSecond no matter how fast the server
+ * answers and are spread over connectionsCount connections. Only requests due after the warmup are
+ * measured, for duration.
+ */
+public record LoadConfig(int connectionsCount, double requestsPerSecond, Duration duration, Duration warmup,
+                         CommandMix mix) {
+
+    private static final int DEFAULT_CONNECTIONS_COUNT = 1000;
+    private static final double DEFAULT_REQUESTS_PER_SECOND = 2000;
+    private static final long DEFAULT_DURATION_SECONDS = 60;
+    private static final long DEFAULT_WARMUP_SECONDS = 10;
+
+    public LoadConfig {
+        if (connectionsCount <= 0 || requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("Connections count and request rate must be positive");
+        }
+        if (duration.isNegative() || duration.isZero() || warmup.isNegative()) {
+            throw new IllegalArgumentException("Load test duration must be positive");
+        }
+    }
+
+    public static LoadConfig of(int connectionsCount, double requestsPerSecond, long durationSeconds,
+                                long warmupSeconds, String mix) {
+        return new LoadConfig(connectionsCount, requestsPerSecond, Duration.ofSeconds(durationSeconds),
+                Duration.ofSeconds(warmupSeconds), CommandMix.parse(mix));
+    }
+
+    public static LoadConfig defaults() {
+        return of(DEFAULT_CONNECTIONS_COUNT, DEFAULT_REQUESTS_PER_SECOND, DEFAULT_DURATION_SECONDS,
+                DEFAULT_WARMUP_SECONDS, CommandMix.defaultSpec());
+    }
+
+    public static int defaultConnectionsCount() {
+        return DEFAULT_CONNECTIONS_COUNT;
+    }
+
+    public static double defaultRequestsPerSecond() {
+        return DEFAULT_REQUESTS_PER_SECOND;
+    }
+
+    public static long defaultDurationSeconds() {
+        return DEFAULT_DURATION_SECONDS;
+    }
+
+    public static long defaultWarmupSeconds() {
+        return DEFAULT_WARMUP_SECONDS;
+    }
+}
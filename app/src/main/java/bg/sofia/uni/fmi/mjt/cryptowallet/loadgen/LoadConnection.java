@@ -0,0 +1,164 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.loadgen;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * One simulated user of a load test. It registers, logs in and deposits money before it is given
+ * measured requests, then sends them one at a time: a reply is a single line, so the next line
+ * read answers the request in flight.
+ */
+class LoadConnection {
+
+    record Request(CommandType type, long intendedNanos) { }
+
+    private static final String PASSWORD = "load-password";
+    private static final String SETUP_DEPOSIT = "1000000000";
+    private static final String DEPOSIT = "100";
+    private static final String INVESTMENT = "10";
+    private static final byte NEW_LINE = '\n';
+    private final SocketChannel channel;
+    private final String username;
+    private final List<String> assetIDs;
+    private final SplittableRandom random;
+    private final Deque<String> setupLines;
+    private final Deque<String> boughtAssetIDs;
+    private SelectionKey key;
+    private ByteBuffer output;
+    private Request request;
+    private long sentNanos;
+    private boolean isAwaitingReply;
+    private int registeredCount;
+
+    LoadConnection(SocketChannel channel, String username, List<String> assetIDs, SplittableRandom random) {
+        this.channel = channel;
+        this.username = username;
+        this.assetIDs = assetIDs;
+        this.random = random;
+        this.setupLines = new ArrayDeque<>(List.of(
+                CommandType.register + " " + username + " " + PASSWORD,
+                CommandType.login + " " + username + " " + PASSWORD,
+                CommandType.deposit_money + " " + SETUP_DEPOSIT));
+        this.boughtAssetIDs = new ArrayDeque<>();
+    }
+
+    SocketChannel channel() {
+        return channel;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    boolean isSetUp() {
+        return setupLines.isEmpty() && !isAwaitingReply;
+    }
+
+    Request request() {
+        return request;
+    }
+
+    long sentNanos() {
+        return sentNanos;
+    }
+
+    /**
+     * Sends the next setup command. Returns false when the setup is already done.
+     */
+    boolean sendNextSetupLine() throws IOException {
+        String line = setupLines.poll();
+        if (line == null) {
+            return false;
+        }
+
+        send(line);
+        return true;
+    }
+
+    void send(Request next, long nowNanos) throws IOException {
+        request = next;
+        sentNanos = nowNanos;
+        send(lineFor(next.type()));
+    }
+
+    /**
+     * Finishes writing a request the socket didn't take at once.
+     */
+    void flush() throws IOException {
+        channel.write(output);
+        if (!output.hasRemaining()) {
+            output = null;
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Tells whether bytes just read from the socket end the reply. Requests are answered one at a
+     * time, so nothing follows the end of a reply.
+     */
+    boolean isReplyIn(ByteBuffer input) {
+        while (input.hasRemaining()) {
+            if (input.get() == NEW_LINE) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Marks the request in flight as answered and returns it, or null when a setup command was answered.
+     */
+    Request complete() {
+        Request answered = request;
+        request = null;
+        isAwaitingReply = false;
+        return answered;
+    }
+
+    void close() {
+        request = null;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the connection is dropped either way
+        }
+    }
+
+    private void send(String line) throws IOException {
+        isAwaitingReply = true;
+        output = ByteBuffer.wrap((line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        flush();
+        if (output != null) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private String lineFor(CommandType type) {
+        return switch (type) {
+            case register -> type + " " + username + "-" + registeredCount++ + " " + PASSWORD;
+            case login -> type + " " + username + " " + PASSWORD;
+            case deposit_money -> type + " " + DEPOSIT;
+            case buy -> {
+                String assetID = randomAssetID();
+                boughtAssetIDs.push(assetID);
+                yield type + " " + assetID + " " + INVESTMENT;
+            }
+            case sell -> type + " " + (boughtAssetIDs.isEmpty() ? randomAssetID() : boughtAssetIDs.pop());
+            default -> type.name();
+        };
+    }
+
+    private String randomAssetID() {
+        return assetIDs.get(random.nextInt(assetIDs.size()));
+    }
+}
@@ -0,0 +1,264 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.loadgen;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandType;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a server with many concurrent connections from a single selector thread. Requests fall due
+ * at a fixed rate from the start of the test, whether or not earlier ones were answered (an open
+ * loop). A due request is sent on the next connection without a request in flight, so a slow server
+ * makes requests queue up here rather than slowing down their arrival.
+ */
+public class LoadGenerator {
+
+    private static final long SETUP_TIMEOUT_SECONDS = 60;
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+    private static final long POLL_MILLIS = 10;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final String ASSET_ID_PREFIX = "ID:";
+    private final InetSocketAddress server;
+    private final LoadConfig config;
+    private final SplittableRandom random;
+    private final ByteBuffer readBuffer;
+
+    public LoadGenerator(InetSocketAddress server, LoadConfig config) {
+        this.server = server;
+        this.config = config;
+        this.random = new SplittableRandom();
+        this.readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    }
+
+    /**
+     * Opens the connections, sets up a user on each of them and sends the requests for the warmup
+     * and the measured duration. Returns once every request is answered or the wait for them times out.
+     */
+    public LoadReport run() throws IOException {
+        List<String> assetIDs = fetchAssetIDs();
+        LoadReport report = new LoadReport(config);
+        String usernamePrefix = "load-" + Long.toString(System.currentTimeMillis(), Character.MAX_RADIX) + "-";
+        List<LoadConnection> connections = new ArrayList<>();
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < config.connectionsCount(); i++) {
+                connections.add(connect(selector, usernamePrefix + i, assetIDs, report));
+            }
+
+            Deque<LoadConnection> idle = setUp(selector, connections, report);
+            if (idle.isEmpty()) {
+                throw new IOException("No connection to " + server + " could be set up");
+            }
+            drive(selector, idle, report);
+        } finally {
+            connections.forEach(LoadConnection::close);
+        }
+
+        return report;
+    }
+
+    private List<String> fetchAssetIDs() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(server);
+             BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+             PrintWriter writer = new PrintWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), true)) {
+            writer.println(CommandType.list_offerings.name());
+            String reply = reader.readLine();
+
+            List<String> assetIDs = new ArrayList<>();
+            for (String token : reply == null ? new String[0] : reply.split(" ")) {
+                if (token.startsWith(ASSET_ID_PREFIX) && token.length() > ASSET_ID_PREFIX.length()) {
+                    assetIDs.add(token.substring(ASSET_ID_PREFIX.length()));
+                }
+            }
+            if (assetIDs.isEmpty()) {
+                throw new IOException("The server offers no cryptocurrencies to trade: " + reply);
+            }
+
+            return assetIDs;
+        }
+    }
+
+    private LoadConnection connect(Selector selector, String username, List<String> assetIDs, LoadReport report)
+            throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        LoadConnection connection = new LoadConnection(channel, username, assetIDs, random.split());
+        try {
+            boolean isConnected = channel.connect(server);
+            connection.setKey(channel.register(selector, isConnected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT,
+                    connection));
+            if (isConnected) {
+                connection.sendNextSetupLine();
+            }
+        } catch (IOException e) {
+            report.addFailedConnection();
+            connection.close();
+        }
+
+        return connection;
+    }
+
+    private Deque<LoadConnection> setUp(Selector selector, List<LoadConnection> connections, LoadReport report)
+            throws IOException {
+        Deque<LoadConnection> idle = new ArrayDeque<>();
+        long pendingCount = connections.stream().filter(connection -> connection.channel().isOpen()).count();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SETUP_TIMEOUT_SECONDS);
+        while (pendingCount > 0 && System.nanoTime() < deadline) {
+            selector.select(POLL_MILLIS);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                LoadConnection connection = (LoadConnection) key.attachment();
+                try {
+                    if (key.isConnectable() && connection.channel().finishConnect()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        connection.sendNextSetupLine();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.flush();
+                    }
+                    if (key.isValid() && key.isReadable() && isReplyRead(connection)) {
+                        connection.complete();
+                        if (!connection.sendNextSetupLine()) {
+                            idle.add(connection);
+                            pendingCount--;
+                        }
+                    }
+                } catch (IOException e) {
+                    report.addFailedConnection();
+                    connection.close();
+                    pendingCount--;
+                }
+            }
+        }
+
+        for (LoadConnection connection : connections) {
+            if (connection.channel().isOpen() && !connection.isSetUp()) {
+                report.addFailedConnection();
+                connection.close();
+            }
+        }
+        return idle;
+    }
+
+    private void drive(Selector selector, Deque<LoadConnection> idle, LoadReport report) throws IOException {
+        double intervalNanos = NANOS_PER_SECOND / config.requestsPerSecond();
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+        long drainDeadline = end + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT_SECONDS);
+        Deque<LoadConnection.Request> backlog = new ArrayDeque<>();
+        long dueCount = 0;
+        long nextDue = start;
+        int openCount = idle.size();
+        int inFlightCount = 0;
+
+        while (openCount > 0) {
+            long now = System.nanoTime();
+            while (nextDue <= now && nextDue < end) {
+                backlog.add(new LoadConnection.Request(config.mix().next(random.nextDouble()), nextDue));
+                dueCount++;
+                nextDue = start + (long) (dueCount * intervalNanos);
+            }
+            while (!backlog.isEmpty() && !idle.isEmpty()) {
+                LoadConnection connection = idle.poll();
+                try {
+                    connection.send(backlog.poll(), System.nanoTime());
+                    inFlightCount++;
+                } catch (IOException e) {
+                    countUnanswered(connection.request(), measureFrom, end, report);
+                    report.addFailedConnection();
+                    connection.close();
+                    openCount--;
+                }
+            }
+            if ((nextDue >= end && backlog.isEmpty() && inFlightCount == 0) || now >= drainDeadline) {
+                break;
+            }
+
+            long waitMillis = nextDue < end ? TimeUnit.NANOSECONDS.toMillis(nextDue - now) : POLL_MILLIS;
+            if (waitMillis > 0) {
+                selector.select(waitMillis);
+            } else {
+                selector.selectNow();
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                LoadConnection connection = (LoadConnection) key.attachment();
+                try {
+                    if (key.isWritable()) {
+                        connection.flush();
+                    }
+                    if (key.isValid() && key.isReadable() && isReplyRead(connection)) {
+                        long answeredNanos = System.nanoTime();
+                        long sentNanos = connection.sentNanos();
+                        LoadConnection.Request answered = connection.complete();
+                        if (isMeasured(answered, measureFrom, end)) {
+                            report.record(answered.type(), answered.intendedNanos(), sentNanos, answeredNanos);
+                        }
+                        inFlightCount--;
+                        idle.add(connection);
+                    }
+                } catch (IOException e) {
+                    if (connection.request() != null) {
+                        countUnanswered(connection.request(), measureFrom, end, report);
+                        inFlightCount--;
+                    }
+                    report.addFailedConnection();
+                    connection.close();
+                    openCount--;
+                }
+            }
+        }
+
+        for (LoadConnection.Request request : backlog) {
+            countUnanswered(request, measureFrom, end, report);
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof LoadConnection connection && connection.request() != null) {
+                countUnanswered(connection.request(), measureFrom, end, report);
+            }
+        }
+    }
+
+    private boolean isReplyRead(LoadConnection connection) throws IOException {
+        readBuffer.clear();
+        if (connection.channel().read(readBuffer) < 0) {
+            throw new EOFException("The server closed the connection");
+        }
+
+        readBuffer.flip();
+        return connection.isReplyIn(readBuffer);
+    }
+
+    private static boolean isMeasured(LoadConnection.Request request, long measureFrom, long end) {
+        return request != null && request.intendedNanos() >= measureFrom && request.intendedNanos() < end;
+    }
+
+    private static void countUnanswered(LoadConnection.Request request, long measureFrom, long end,
+                                        LoadReport report) {
+        if (isMeasured(request, measureFrom, end)) {
+            report.addUnanswered(1);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.loadgen;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandType;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latencies of the measured requests of a load test, per command. A request's latency runs from
+ * the moment it was due to be sent, not from when a free connection sent it, so time spent queued
+ * behind a slow server is counted (the coordinated omission correction). The service time, from
+ * sending to the reply, is kept next to it for comparison.
+ */
+public class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double NANOS_PER_MILLISECOND = 1e6;
+    private static final String ROW_FORMAT = "%-28s %9s %10s %10s %10s %10s %10s %15s%n";
+    private final LoadConfig config;
+    private final Map<CommandType, LatencyHistogram> latencies;
+    private final Map<CommandType, LatencyHistogram> serviceTimes;
+    private long failedConnectionsCount;
+    private long unansweredCount;
+
+    LoadReport(LoadConfig config) {
+        this.config = config;
+        this.latencies = new EnumMap<>(CommandType.class);
+        this.serviceTimes = new EnumMap<>(CommandType.class);
+        for (CommandType type : config.mix().types()) {
+            latencies.put(type, new LatencyHistogram());
+            serviceTimes.put(type, new LatencyHistogram());
+        }
+    }
+
+    void record(CommandType type, long intendedNanos, long sentNanos, long answeredNanos) {
+        latencies.get(type).record(answeredNanos - intendedNanos);
+        serviceTimes.get(type).record(answeredNanos - sentNanos);
+    }
+
+    void addFailedConnection() {
+        failedConnectionsCount++;
+    }
+
+    void addUnanswered(long count) {
+        unansweredCount += count;
+    }
+
+    public LatencyHistogram.Snapshot latency(CommandType type) {
+        return latencies.get(type).snapshot();
+    }
+
+    public LatencyHistogram.Snapshot serviceTime(CommandType type) {
+        return serviceTimes.get(type).snapshot();
+    }
+
+    public long answeredCount() {
+        return latencies.values().stream().mapToLong(LatencyHistogram::count).sum();
+    }
+
+    /**
+     * Answered measured requests per second.
+     */
+    public double throughput() {
+        return answeredCount() / seconds(config.duration());
+    }
+
+    public long failedConnectionsCount() {
+        return failedConnectionsCount;
+    }
+
+    /**
+     * Measured requests still unanswered when the load test gave up waiting for them.
+     */
+    public long unansweredCount() {
+        return unansweredCount;
+    }
+
+    public String render() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%d connections, target %.1f req/s, achieved %.1f req/s over %d s%n",
+                config.connectionsCount(), config.requestsPerSecond(), throughput(), config.duration().toSeconds()));
+        text.append(String.format(Locale.ROOT, ROW_FORMAT, "command", "count", "req/s", "p50 ms", "p99 ms",
+                "p999 ms", "max ms", "service p99 ms"));
+        for (Map.Entry<CommandType, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram.Snapshot latency = entry.getValue().snapshot();
+            text.append(String.format(Locale.ROOT, ROW_FORMAT, entry.getKey(), latency.count(),
+                    String.format(Locale.ROOT, "%.1f", latency.count() / seconds(config.duration())),
+                    millis(latency.percentile(PERCENTILES[0])), millis(latency.percentile(PERCENTILES[1])),
+                    millis(latency.percentile(PERCENTILES[2])), millis(latency.maxNanos()),
+                    millis(serviceTime(entry.getKey()).percentile(PERCENTILES[1]))));
+        }
+        text.append(String.format(Locale.ROOT, "failed connections: %d, unanswered requests: %d%n",
+                failedConnectionsCount, unansweredCount));
+
+        return text.toString();
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toNanos() / NANOS_PER_SECOND;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLISECOND);
+    }
+}
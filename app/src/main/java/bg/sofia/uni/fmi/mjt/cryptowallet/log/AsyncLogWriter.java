@@ -0,0 +1,328 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Writes log events from a single background thread. Callers only put the event into a bounded
+ * ring buffer, so logging never blocks and never touches the disk on the request path; when the
+ * buffer is full the new event is dropped and counted, and the count is reported in the server log.
+ * The writer drains the buffer in batches, appends each event to the open file of its category
+ * and flushes every touched file once per batch.
+ */
+public class AsyncLogWriter implements AutoCloseable {
+
+    private record Event(String category, long timeMillis, String message, Exception exception) { }
+
+    private static final DateTimeFormatter FILE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH-mm-ss").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter EVENT_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final String FILE_SUFFIX = ".log";
+    private static final String DROPS_CATEGORY = "server";
+    private static final int MAX_BATCH_EVENTS = 1024;
+    private static final int MAX_OPEN_FILES = 64;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int OUTPUT_BUFFER_SIZE = 16 * 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static AsyncLogWriter shared;
+    private final LogConfig config;
+    private final LongSupplier clock;
+    private final LogRingBuffer<Event> buffer;
+    private final LongAdder droppedCount;
+    private final LongAdder writtenCount;
+    private final LongAdder failedCount;
+    private final Map<String, RollingFile> openFiles;
+    private final Set<RollingFile> touchedFiles;
+    private final StringBuilder line;
+    private long reportedDropped;
+    private Thread writer;
+    private volatile boolean isRunning;
+    private volatile boolean isClosed;
+
+    public AsyncLogWriter(LogConfig config) {
+        this(config, System::currentTimeMillis);
+    }
+
+    public AsyncLogWriter(LogConfig config, LongSupplier clock) {
+        this.config = config;
+        this.clock = clock;
+        this.buffer = new LogRingBuffer<>(config.bufferCapacity());
+        this.droppedCount = new LongAdder();
+        this.writtenCount = new LongAdder();
+        this.failedCount = new LongAdder();
+        this.openFiles = new LinkedHashMap<>(MAX_OPEN_FILES, LOAD_FACTOR, true);
+        this.touchedFiles = new HashSet<>();
+        this.line = new StringBuilder();
+    }
+
+    /**
+     * The writer every {@link Log} created without one uses. It is started with the default settings
+     * on first use unless {@link #configureShared(LogConfig)} was called before.
+     */
+    public static synchronized AsyncLogWriter shared() {
+        if (shared == null) {
+            shared = new AsyncLogWriter(LogConfig.defaults());
+            shared.start();
+        }
+
+        return shared;
+    }
+
+    /**
+     * Replaces the shared writer with one using the given settings and closes the previous one.
+     */
+    public static synchronized void configureShared(LogConfig config) {
+        AsyncLogWriter previous = shared;
+        shared = new AsyncLogWriter(config);
+        shared.start();
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    public synchronized void start() {
+        if (writer != null || isClosed) {
+            return;
+        }
+
+        isRunning = true;
+        writer = new Thread(this::writeLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the event for the given category, a path relative to the log directory. Returns false
+     * when the event was dropped because the buffer is full or the writer is closed.
+     */
+    public boolean write(String category, String message, Exception exception) {
+        if (isClosed || !buffer.offer(new Event(category, clock.getAsLong(), message, exception))) {
+            droppedCount.increment();
+            return false;
+        }
+
+        return true;
+    }
+
+    public long droppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long writtenCount() {
+        return writtenCount.sum();
+    }
+
+    public long failedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * Writes everything queued so far, closes the files and drops every later event.
+     */
+    @Override
+    public void close() {
+        Thread running;
+        synchronized (this) {
+            isClosed = true;
+            isRunning = false;
+            running = writer;
+        }
+        if (running == null) {
+            drainAll();
+            return;
+        }
+
+        LockSupport.unpark(running);
+        try {
+            running.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        while (isRunning) {
+            if (!writeBatch()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        drainAll();
+    }
+
+    private void drainAll() {
+        boolean hasMore = true;
+        while (hasMore) {
+            hasMore = writeBatch();
+        }
+        for (RollingFile file : openFiles.values()) {
+            file.close();
+        }
+        openFiles.clear();
+    }
+
+    private boolean writeBatch() {
+        int eventsCount = 0;
+        while (eventsCount < MAX_BATCH_EVENTS) {
+            Event event = buffer.poll();
+            if (event == null) {
+                break;
+            }
+            append(event.category(), event.timeMillis(), format(event));
+            eventsCount++;
+        }
+        reportDrops();
+
+        for (RollingFile file : touchedFiles) {
+            file.flush();
+        }
+        touchedFiles.clear();
+        return eventsCount > 0;
+    }
+
+    private void reportDrops() {
+        long dropped = droppedCount.sum();
+        if (dropped == reportedDropped) {
+            return;
+        }
+
+        long timeMillis = clock.getAsLong();
+        line.setLength(0);
+        line.append('[').append(EVENT_TIME_FORMAT.format(Instant.ofEpochMilli(timeMillis))).append("] ")
+                .append(dropped - reportedDropped).append(" log events were dropped because the log buffer was full")
+                .append(System.lineSeparator());
+        append(DROPS_CATEGORY, timeMillis, line.toString());
+        reportedDropped = dropped;
+    }
+
+    private String format(Event event) {
+        line.setLength(0);
+        line.append('[').append(EVENT_TIME_FORMAT.format(Instant.ofEpochMilli(event.timeMillis()))).append("] ");
+        if (event.exception() != null) {
+            line.append(event.exception().getMessage()).append(System.lineSeparator())
+                    .append(Arrays.toString(event.exception().getStackTrace()));
+        } else {
+            line.append(event.message());
+        }
+
+        return line.append(System.lineSeparator()).toString();
+    }
+
+    private void append(String category, long timeMillis, String text) {
+        RollingFile file = openFiles.get(category);
+        if (file == null) {
+            file = new RollingFile(config.directory().resolve(category));
+            openFiles.put(category, file);
+            evictIdleFiles();
+        }
+
+        if (file.write(text.getBytes(StandardCharsets.UTF_8), timeMillis)) {
+            writtenCount.increment();
+            touchedFiles.add(file);
+        } else {
+            failedCount.increment();
+        }
+    }
+
+    private void evictIdleFiles() {
+        Iterator<RollingFile> iterator = openFiles.values().iterator();
+        while (openFiles.size() > MAX_OPEN_FILES && iterator.hasNext()) {
+            RollingFile eldest = iterator.next();
+            eldest.flush();
+            eldest.close();
+            touchedFiles.remove(eldest);
+            iterator.remove();
+        }
+    }
+
+    /**
+     * The current file of one category. A new file named after the time it was opened is started
+     * when the current one is full or too old.
+     */
+    private final class RollingFile {
+
+        private final Path directory;
+        private OutputStream out;
+        private long size;
+        private long openedAtMillis;
+
+        private RollingFile(Path directory) {
+            this.directory = directory;
+        }
+
+        private boolean write(byte[] bytes, long timeMillis) {
+            try {
+                if (out == null || size >= config.maxFileBytes()
+                        || timeMillis - openedAtMillis >= config.rotationInterval().toMillis()) {
+                    roll(timeMillis);
+                }
+                out.write(bytes);
+                size += bytes.length;
+                return true;
+            } catch (IOException e) {
+                close();
+                return false;
+            }
+        }
+
+        private void roll(long timeMillis) throws IOException {
+            close();
+            Files.createDirectories(directory);
+            String name = FILE_TIME_FORMAT.format(Instant.ofEpochMilli(timeMillis));
+            Path file = directory.resolve(name + FILE_SUFFIX);
+            for (int suffix = 1; Files.exists(file); suffix++) {
+                file = directory.resolve(name + "-" + suffix + FILE_SUFFIX);
+            }
+
+            out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE), OUTPUT_BUFFER_SIZE);
+            size = 0;
+            openedAtMillis = timeMillis;
+        }
+
+        private void flush() {
+            if (out == null) {
+                return;
+            }
+
+            try {
+                out.flush();
+            } catch (IOException e) {
+                failedCount.increment();
+                close();
+            }
+        }
+
+        private void close() {
+            if (out == null) {
+                return;
+            }
+
+            try {
+                out.close();
+            } catch (IOException e) {
+                failedCount.increment();
+            } finally {
+                out = null;
+            }
+        }
+    }
+}
@@ -1,37 +1,138 @@
 package bg.sofia.uni.fmi.mjt.cryptowallet.log;
 
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.CircuitBreaker;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.CircuitBreakerConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.CoinApiData;
 import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.CoinApiThread;
 import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.Cryptocurrencies;
+import bg.sofia.uni.fmi.mjt.cryptowallet.jfr.PersistenceEvent;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.LatencyHistogram;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.MetricsRegistry;
 import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 public class DataSaver {
 
     private static final Gson GSON = new Gson();
     private static final String CRYPTO_INFO_FILE = "CryptoInformation.txt";
-    private static final String USERS_INFO_FILE = "UsersInformation.txt";
+    private static final String USERS_INFO_FILE = "UsersInformation.bin";
+    private static final String JSON_USERS_INFO_FILE = "UsersInformation.txt";
+    private static final Type USERS_TYPE = new TypeToken<Set<User>>() {
+    }.getType();
     private static final String TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
     private static final int VALID_MINUTES = 30;
+    private static final String FETCH_DURATION = "wallet_coinapi_fetch_duration_seconds";
+    private static final String FETCH_DURATION_HELP = "Time spent fetching the offerings from CoinAPI";
+    private static final LatencyHistogram USERS_SAVE_DURATION = MetricsRegistry.global().histogram(
+            "wallet_users_save_duration_seconds", "Time spent writing every user to UsersInformation.bin");
     private final Log log = new Log();
+    private final CoinApiData coinApiData;
+    private final CircuitBreaker circuitBreaker;
 
-    public void saveUsersInfoToFile(Set<User> registeredUsers) throws IOException {
-        try (Writer writer = new FileWriter(USERS_INFO_FILE, false)) {
-            GSON.toJson(registeredUsers, writer);
+    public DataSaver() {
+        this(new CoinApiData(CoinApiData.newHttpClient()), new CircuitBreaker(CircuitBreakerConfig.defaults()));
+    }
+
+    public DataSaver(CoinApiData coinApiData, CircuitBreaker circuitBreaker) {
+        this.coinApiData = coinApiData;
+        this.circuitBreaker = circuitBreaker;
+        circuitBreaker.addListener(new CircuitBreaker.Listener() {
+            @Override
+            public void onStateChange(CircuitBreaker.State from, CircuitBreaker.State to, Duration openFor) {
+                log.saveServerError("CoinAPI circuit breaker moved from " + from + " to " + to
+                        + (openFor == null ? "" : " for " + openFor.toSeconds() + " seconds"));
+            }
+        });
+        registerMetrics(MetricsRegistry.global());
+    }
+
+    private void registerMetrics(MetricsRegistry metrics) {
+        LatencyHistogram successful = metrics.histogram(FETCH_DURATION, FETCH_DURATION_HELP,
+                MetricsRegistry.label("outcome", "success"));
+        LatencyHistogram failed = metrics.histogram(FETCH_DURATION, FETCH_DURATION_HELP,
+                MetricsRegistry.label("outcome", "failure"));
+        circuitBreaker.addListener(new CircuitBreaker.Listener() {
+            @Override
+            public void onCall(Duration latency, boolean isSuccessful) {
+                (isSuccessful ? successful : failed).record(latency.toNanos());
+            }
+        });
+        metrics.counter("wallet_coinapi_rejected_calls_total", "CoinAPI calls rejected by the open circuit breaker",
+                "", () -> circuitBreaker.stats().rejectedCount());
+        metrics.gauge("wallet_coinapi_circuit_state", "CoinAPI circuit breaker state: 0 closed, 1 open, 2 half open",
+                () -> circuitBreaker.state().ordinal());
+    }
+
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public synchronized void saveUsersInfoToFile(Set<User> registeredUsers) throws IOException {
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        Path usersFile = Path.of(USERS_INFO_FILE);
+        SnapshotFile.write(usersFile, 0, registeredUsers);
+        USERS_SAVE_DURATION.recordSince(startNanos);
+        event.commit(USERS_INFO_FILE, registeredUsers.size(), Files.size(usersFile));
+    }
+
+    /**
+     * Reads the users written by saveUsersInfoToFile. When there is no such file yet, the users are read
+     * from the JSON file of earlier versions and saved in the binary format, so the JSON is parsed once.
+     * The JSON file is left as it was. Without either file no user has registered yet.
+     */
+    public static Set<User> loadUsersInfoFromFile() throws IOException {
+        return loadUsers(Path.of(USERS_INFO_FILE), Path.of(JSON_USERS_INFO_FILE));
+    }
+
+    static Set<User> loadUsers(Path usersFile, Path jsonUsersFile) throws IOException {
+        if (Files.exists(usersFile)) {
+            return new HashSet<>(SnapshotFile.read(usersFile).users());
+        }
+
+        Set<User> users = readJsonUsers(jsonUsersFile);
+        if (!users.isEmpty()) {
+            SnapshotFile.write(usersFile, 0, users);
+        }
+        return users;
+    }
+
+    static Set<User> readJsonUsers(Path jsonUsersFile) throws IOException {
+        if (!Files.exists(jsonUsersFile) || Files.size(jsonUsersFile) == 0) {
+            return Set.of();
+        }
+
+        try (Reader reader = Files.newBufferedReader(jsonUsersFile)) {
+            return GSON.fromJson(reader, USERS_TYPE);
         }
     }
 
     public void saveCryptocurrenciesToFile(Cryptocurrencies cryptocurrencies) throws IOException {
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
         try (Writer writer = new FileWriter(CRYPTO_INFO_FILE)) {
             GSON.toJson(cryptocurrencies, writer);
         }
+        event.commit(CRYPTO_INFO_FILE, cryptocurrencies.cryptocurrencies().size(), new File(CRYPTO_INFO_FILE).length());
     }
 
     public boolean checkCryptocurrenciesForUpdate(Cryptocurrencies cryptocurrencies) {
@@ -43,9 +144,24 @@ public class DataSaver {
         return validUntilTime.isBefore(LocalDateTime.now());
     }
 
+    /**
+     * Fetches the offerings without blocking the caller and saves them once they arrive.
+     */
+    public CompletableFuture<Cryptocurrencies> getCryptocurrenciesFromApiAsync() {
+        return circuitBreaker.call(coinApiData::getCryptocurrenciesInfoAsync).thenApply(cryptocurrencies -> {
+            try {
+                saveCryptocurrenciesToFile(cryptocurrencies);
+            } catch (IOException e) {
+                log.saveServerException(e);
+                throw new UncheckedIOException(e);
+            }
+            return cryptocurrencies;
+        });
+    }
+
     public Cryptocurrencies getCryptocurrenciesFromApi() {
         Cryptocurrencies cryptocurrencies;
-        Callable<Cryptocurrencies> callable = new CoinApiThread();
+        Callable<Cryptocurrencies> callable = new CoinApiThread(coinApiData, circuitBreaker);
         try {
             cryptocurrencies = callable.call();
             saveCryptocurrenciesToFile(cryptocurrencies);
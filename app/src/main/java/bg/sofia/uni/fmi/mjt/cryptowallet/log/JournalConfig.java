@@ -0,0 +1,39 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of the wallet journal. A group commit writes up to maxBatchRecords events, waiting at
+ * most maxBatchDelayMillis for a batch to fill, and forces it to disk when fsync is enabled.
+ * A snapshot is taken every snapshotIntervalSeconds so older journal segments can be deleted.
+ */
+public record JournalConfig(Path directory, int maxBatchRecords, long maxBatchDelayMillis, boolean isFsyncEnabled,
+                            long snapshotIntervalSeconds) {
+
+    private static final int DEFAULT_MAX_BATCH_RECORDS = 512;
+    private static final long DEFAULT_MAX_BATCH_DELAY_MILLIS = 2;
+    private static final long DEFAULT_SNAPSHOT_INTERVAL_SECONDS = 300;
+
+    public JournalConfig {
+        if (maxBatchRecords <= 0 || maxBatchDelayMillis < 0 || snapshotIntervalSeconds <= 0) {
+            throw new IllegalArgumentException("Journal batch size and snapshot interval must be positive");
+        }
+    }
+
+    public static JournalConfig of(Path directory) {
+        return new JournalConfig(directory, DEFAULT_MAX_BATCH_RECORDS, DEFAULT_MAX_BATCH_DELAY_MILLIS, true,
+                DEFAULT_SNAPSHOT_INTERVAL_SECONDS);
+    }
+
+    public static int defaultMaxBatchRecords() {
+        return DEFAULT_MAX_BATCH_RECORDS;
+    }
+
+    public static long defaultMaxBatchDelayMillis() {
+        return DEFAULT_MAX_BATCH_DELAY_MILLIS;
+    }
+
+    public static long defaultSnapshotIntervalSeconds() {
+        return DEFAULT_SNAPSHOT_INTERVAL_SECONDS;
+    }
+}
@@ -0,0 +1,54 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of the asynchronous log writer. Up to bufferCapacity events wait for the writer thread;
+ * events arriving while the buffer is full are dropped. Each category writes to its own file, which
+ * is rolled over once it grows past maxFileBytes or has been open for rotationInterval.
+ */
+public record LogConfig(Path directory, int bufferCapacity, long maxFileBytes, Duration rotationInterval) {
+
+    private static final String DEFAULT_DIRECTORY = "log";
+    private static final int DEFAULT_BUFFER_CAPACITY = 8192;
+    private static final long DEFAULT_MAX_FILE_BYTES = 16L * 1024 * 1024;
+    private static final long DEFAULT_ROTATION_SECONDS = 24 * 60 * 60;
+
+    public LogConfig {
+        if (bufferCapacity <= 0 || Integer.bitCount(bufferCapacity) != 1) {
+            throw new IllegalArgumentException("Log buffer capacity must be a positive power of two");
+        }
+        if (maxFileBytes <= 0 || rotationInterval.isNegative() || rotationInterval.isZero()) {
+            throw new IllegalArgumentException("Log file size and rotation interval must be positive");
+        }
+    }
+
+    public static LogConfig of(Path directory) {
+        return of(directory, DEFAULT_BUFFER_CAPACITY, DEFAULT_MAX_FILE_BYTES, DEFAULT_ROTATION_SECONDS);
+    }
+
+    public static LogConfig of(Path directory, int bufferCapacity, long maxFileBytes, long rotationSeconds) {
+        return new LogConfig(directory, bufferCapacity, maxFileBytes, Duration.ofSeconds(rotationSeconds));
+    }
+
+    public static LogConfig defaults() {
+        return of(Path.of(DEFAULT_DIRECTORY));
+    }
+
+    public static String defaultDirectory() {
+        return DEFAULT_DIRECTORY;
+    }
+
+    public static int defaultBufferCapacity() {
+        return DEFAULT_BUFFER_CAPACITY;
+    }
+
+    public static long defaultMaxFileBytes() {
+        return DEFAULT_MAX_FILE_BYTES;
+    }
+
+    public static long defaultRotationSeconds() {
+        return DEFAULT_ROTATION_SECONDS;
+    }
+}
@@ -0,0 +1,49 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import java.time.Duration;
+
+/**
+ * Settings of the error log rate limiter. Every client and every user may log a burst of events of
+ * one type and then eventsPerSecond more. Over the limit only every sampleEvery-th event is logged,
+ * or none when it is 0, and the rest are summed up once per summaryInterval.
+ */
+public record LogRateLimitConfig(double eventsPerSecond, int burst, int sampleEvery, Duration summaryInterval) {
+
+    private static final double DEFAULT_EVENTS_PER_SECOND = 1.0;
+    private static final int DEFAULT_BURST = 20;
+    private static final int DEFAULT_SAMPLE_EVERY = 1000;
+    private static final long DEFAULT_SUMMARY_SECONDS = 60;
+
+    public LogRateLimitConfig {
+        if (eventsPerSecond <= 0 || burst <= 0 || sampleEvery < 0) {
+            throw new IllegalArgumentException("Log rate and burst must be positive");
+        }
+        if (summaryInterval.isNegative() || summaryInterval.isZero()) {
+            throw new IllegalArgumentException("Log summary interval must be positive");
+        }
+    }
+
+    public static LogRateLimitConfig of(double eventsPerSecond, int burst, int sampleEvery, long summarySeconds) {
+        return new LogRateLimitConfig(eventsPerSecond, burst, sampleEvery, Duration.ofSeconds(summarySeconds));
+    }
+
+    public static LogRateLimitConfig defaults() {
+        return of(DEFAULT_EVENTS_PER_SECOND, DEFAULT_BURST, DEFAULT_SAMPLE_EVERY, DEFAULT_SUMMARY_SECONDS);
+    }
+
+    public static double defaultEventsPerSecond() {
+        return DEFAULT_EVENTS_PER_SECOND;
+    }
+
+    public static int defaultBurst() {
+        return DEFAULT_BURST;
+    }
+
+    public static int defaultSampleEvery() {
+        return DEFAULT_SAMPLE_EVERY;
+    }
+
+    public static long defaultSummarySeconds() {
+        return DEFAULT_SUMMARY_SECONDS;
+    }
+}
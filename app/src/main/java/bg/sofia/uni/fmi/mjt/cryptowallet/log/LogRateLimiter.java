@@ -0,0 +1,181 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether an error event is worth logging. Each client address and each user has a token
+ * bucket per error type, so one client looping bad commands only fills the log with a burst of
+ * its own events. Events over the limit are sampled and the rest are counted and written as a
+ * single "similar events suppressed" line per bucket once per summary interval.
+ */
+public class LogRateLimiter implements AutoCloseable {
+
+    private static final String SUMMARY = "Error occurred: %d similar events suppressed - %s from %s";
+    private static final String UNKNOWN_CLIENT = "unknown";
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private final LogRateLimitConfig config;
+    private final Log log;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<String, Bucket> buckets;
+    private final AtomicLong nextSummaryNanos;
+    private final LongAdder suppressedCount;
+    private ScheduledExecutorService scheduler;
+
+    public LogRateLimiter(LogRateLimitConfig config, Log log) {
+        this(config, log, System::nanoTime);
+    }
+
+    public LogRateLimiter(LogRateLimitConfig config, Log log, LongSupplier nanoClock) {
+        this.config = config;
+        this.log = log;
+        this.nanoClock = nanoClock;
+        this.buckets = new ConcurrentHashMap<>();
+        this.nextSummaryNanos = new AtomicLong(nanoClock.getAsLong() + config.summaryInterval().toNanos());
+        this.suppressedCount = new LongAdder();
+    }
+
+    /**
+     * Writes the summaries on a background thread as well, so they are not delayed until the next error.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-rate-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = config.summaryInterval().toNanos();
+        scheduler.scheduleAtFixedRate(this::summarize, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Takes a token for the event from the bucket of the client and, when known, of the user.
+     * Returns true when the event should be logged.
+     */
+    public boolean tryAcquire(String client, String username, String errorType) {
+        long now = nanoClock.getAsLong();
+        summarizeIfDue(now);
+
+        Bucket byClient = bucket("client " + (client == null ? UNKNOWN_CLIENT : client), errorType);
+        Bucket denied = byClient.tryTake(now) ? null : byClient;
+        if (denied == null && username != null) {
+            Bucket byUser = bucket("user " + username, errorType);
+            denied = byUser.tryTake(now) ? null : byUser;
+        }
+        if (denied == null || denied.isSampled(config.sampleEvery())) {
+            return true;
+        }
+
+        suppressedCount.increment();
+        return false;
+    }
+
+    public long suppressedCount() {
+        return suppressedCount.sum();
+    }
+
+    /**
+     * Logs how many events each bucket suppressed since the last summary and forgets idle buckets.
+     */
+    public void summarize() {
+        long now = nanoClock.getAsLong();
+        Iterator<Bucket> iterator = buckets.values().iterator();
+        while (iterator.hasNext()) {
+            Bucket bucket = iterator.next();
+            long suppressed = bucket.drainSuppressed();
+            if (suppressed > 0) {
+                log.saveServerError(String.format(SUMMARY, suppressed, bucket.errorType, bucket.source));
+            } else if (bucket.isFull(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+        summarize();
+    }
+
+    private void summarizeIfDue(long now) {
+        long next = nextSummaryNanos.get();
+        if (now - next >= 0 && nextSummaryNanos.compareAndSet(next, now + config.summaryInterval().toNanos())) {
+            summarize();
+        }
+    }
+
+    private Bucket bucket(String source, String errorType) {
+        return buckets.computeIfAbsent(source + '|' + errorType, key -> new Bucket(source, errorType));
+    }
+
+    private final class Bucket {
+
+        private final String source;
+        private final String errorType;
+        private double tokens;
+        private long refilledAtNanos;
+        private long deniedCount;
+        private long suppressed;
+
+        private Bucket(String source, String errorType) {
+            this.source = source;
+            this.errorType = errorType;
+            this.tokens = config.burst();
+            this.refilledAtNanos = nanoClock.getAsLong();
+        }
+
+        private synchronized boolean tryTake(long now) {
+            refill(now);
+            if (tokens < 1) {
+                return false;
+            }
+
+            tokens--;
+            return true;
+        }
+
+        private synchronized boolean isSampled(int sampleEvery) {
+            deniedCount++;
+            if (sampleEvery > 0 && deniedCount % sampleEvery == 0) {
+                return true;
+            }
+
+            suppressed++;
+            return false;
+        }
+
+        private synchronized long drainSuppressed() {
+            long drained = suppressed;
+            suppressed = 0;
+            return drained;
+        }
+
+        private synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= config.burst();
+        }
+
+        private void refill(long now) {
+            long elapsed = now - refilledAtNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(config.burst(), tokens + elapsed / NANOS_PER_SECOND * config.eventsPerSecond());
+                refilledAtNanos = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.BoughtCryptocurrency;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.Portfolio;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.SoldCryptocurrency;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The binary layout of a users snapshot:
+ * magic, version, fromSequence, assetsCount, assets, usersCount, (recordLength, user)..., crc32.
+ * Every distinct CryptoInformation is stored once and holdings refer to it by index, so the assets
+ * bought by many users are written and loaded once. A user is a record of fixed-width fields behind
+ * its length, so a reader finds all records in one pass over the lengths and decodes them in parallel
+ * from the memory-mapped file. Files of version 1, which embed the assets in every holding, are still read.
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x43575331;
+    private static final int LEGACY_VERSION = 1;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int NULL_LENGTH = -1;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes the users to a temporary file, forces it and atomically renames it to file, so a crash
+     * leaves either the previous snapshot or the new one.
+     */
+    static void write(Path file, long fromSequence, Collection<User> users) throws IOException {
+        List<User> owners = new ArrayList<>(users);
+        List<Portfolio> portfolios = owners.stream().map(User::portfolio).toList();
+        Map<CryptoInformation, Integer> assetIndexes = new LinkedHashMap<>();
+        for (Portfolio portfolio : portfolios) {
+            for (BoughtCryptocurrency bought : portfolio.boughtCryptocurrencies()) {
+                assetIndexes.putIfAbsent(bought.boughtCrypto(), assetIndexes.size());
+            }
+            for (SoldCryptocurrency sold : portfolio.soldCryptocurrencies()) {
+                assetIndexes.putIfAbsent(sold.soldCrypto(), assetIndexes.size());
+            }
+        }
+
+        Path tempFile = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), WRITE_BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fromSequence);
+            out.writeInt(assetIndexes.size());
+            for (CryptoInformation asset : assetIndexes.keySet()) {
+                writeString(out, asset.assetID());
+                writeString(out, asset.assetName());
+                out.writeInt(asset.isCrypto());
+                out.writeDouble(asset.price());
+            }
+
+            out.writeInt(owners.size());
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream recordOut = new DataOutputStream(record);
+            for (int i = 0; i < owners.size(); i++) {
+                record.reset();
+                writeUser(recordOut, owners.get(i), portfolios.get(i), assetIndexes);
+                out.writeInt(record.size());
+                record.writeTo(out);
+            }
+            out.flush();
+
+            ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES).putLong(0, crc.getValue());
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static WalletSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Wallet snapshot " + file + " is too large to map");
+            }
+            if (size < HEADER_BYTES + Long.BYTES) {
+                throw new IOException("Wallet snapshot is truncated");
+            }
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int end = (int) size - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, end));
+            if (crc.getValue() != buffer.getLong(end)) {
+                throw new IOException("Wallet snapshot checksum mismatch");
+            }
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Unsupported wallet snapshot format");
+            }
+
+            try {
+                return switch (buffer.getInt(Integer.BYTES)) {
+                    case LEGACY_VERSION -> readLegacy(buffer, end);
+                    case VERSION -> readRecords(buffer, end);
+                    default -> throw new IOException("Unsupported wallet snapshot format");
+                };
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw new IOException("Wallet snapshot is corrupted", e);
+            }
+        }
+    }
+
+    private static WalletSnapshot readRecords(ByteBuffer buffer, int end) throws IOException {
+        ByteBuffer in = buffer.slice(0, end).position(HEADER_BYTES);
+        long fromSequence = in.getLong();
+        CryptoInformation[] assets = new CryptoInformation[in.getInt()];
+        for (int i = 0; i < assets.length; i++) {
+            assets[i] = new CryptoInformation(readString(in), readString(in), in.getInt(), in.getDouble());
+        }
+
+        int usersCount = in.getInt();
+        int[] offsets = new int[usersCount];
+        int[] lengths = new int[usersCount];
+        for (int i = 0; i < usersCount; i++) {
+            lengths[i] = in.getInt();
+            offsets[i] = in.position();
+            if (lengths[i] < 0 || lengths[i] > in.remaining()) {
+                throw new IOException("Wallet snapshot is corrupted");
+            }
+            in.position(offsets[i] + lengths[i]);
+        }
+        if (in.hasRemaining()) {
+            throw new IOException("Wallet snapshot is corrupted");
+        }
+
+        List<User> users = IntStream.range(0, usersCount).parallel()
+                .mapToObj(i -> readUser(buffer.slice(offsets[i], lengths[i]), assets))
+                .toList();
+        return new WalletSnapshot(fromSequence, users);
+    }
+
+    private static WalletSnapshot readLegacy(ByteBuffer buffer, int end) throws IOException {
+        byte[] bytes = new byte[end - HEADER_BYTES];
+        buffer.get(HEADER_BYTES, bytes);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        long fromSequence = in.readLong();
+        int usersCount = in.readInt();
+        List<User> users = new ArrayList<>(usersCount);
+        for (int i = 0; i < usersCount; i++) {
+            User user = new User(in.readUTF(), in.readUTF());
+            user.setPortfolio(WalletCodec.readPortfolio(in));
+            users.add(user);
+        }
+
+        return new WalletSnapshot(fromSequence, users);
+    }
+
+    private static void writeUser(DataOutput out, User user, Portfolio portfolio,
+                                  Map<CryptoInformation, Integer> assetIndexes) throws IOException {
+        writeString(out, user.username());
+        writeString(out, user.hashedPassword());
+        out.writeLong(portfolio.version());
+        out.writeDouble(portfolio.money());
+        out.writeInt(portfolio.boughtCryptocurrencies().size());
+        for (BoughtCryptocurrency bought : portfolio.boughtCryptocurrencies()) {
+            out.writeInt(assetIndexes.get(bought.boughtCrypto()));
+            out.writeDouble(bought.buyingPrice());
+            out.writeDouble(bought.buyingCount());
+        }
+        out.writeInt(portfolio.soldCryptocurrencies().size());
+        for (SoldCryptocurrency sold : portfolio.soldCryptocurrencies()) {
+            out.writeInt(assetIndexes.get(sold.soldCrypto()));
+            out.writeDouble(sold.sellingPrice());
+            out.writeDouble(sold.profit());
+        }
+    }
+
+    private static User readUser(ByteBuffer in, CryptoInformation[] assets) {
+        User user = new User(readString(in), readString(in));
+        long version = in.getLong();
+        double money = in.getDouble();
+        Set<BoughtCryptocurrency> bought = new HashSet<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            bought.add(new BoughtCryptocurrency(assets[in.getInt()], in.getDouble(), in.getDouble()));
+        }
+        Set<SoldCryptocurrency> sold = new HashSet<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            sold.add(new SoldCryptocurrency(assets[in.getInt()], in.getDouble(), in.getDouble()));
+        }
+        user.setPortfolio(new Portfolio(money, bought, sold, version));
+
+        return user;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
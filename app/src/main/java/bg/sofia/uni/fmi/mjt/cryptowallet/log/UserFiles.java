@@ -0,0 +1,97 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Every user in a file of its own, under a shard directory picked by the hash of the username so no
+ * directory grows too large. A file is named after the hex encoded username, so any username makes
+ * a valid file name and the usernames are listed without opening the files. Each file is a snapshot
+ * of a single user in the SnapshotFile layout, replaced atomically on every write.
+ */
+public class UserFiles {
+
+    /**
+     * The longest username, in UTF-8 bytes, whose hex encoded file name fits the 255 bytes most
+     * filesystems allow for a name.
+     */
+    public static final int MAX_USERNAME_BYTES = 120;
+
+    private static final int SHARDS_COUNT = 256;
+    private static final String SHARD_FORMAT = "%02x";
+    private static final String SUFFIX = ".user";
+    private static final HexFormat HEX = HexFormat.of();
+    private final Path directory;
+
+    public UserFiles(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    public Set<String> usernames() throws IOException {
+        try (Stream<Path> shards = Files.list(directory)) {
+            List<Path> shardDirectories = shards.filter(Files::isDirectory).toList();
+            Set<String> usernames = ConcurrentHashMap.newKeySet();
+            shardDirectories.parallelStream().forEach(shard -> usernames.addAll(usernamesIn(shard)));
+            return usernames;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns the user saved under the username, or null when there is none.
+     */
+    public User read(String username) throws IOException {
+        Path file = fileOf(username);
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        return SnapshotFile.read(file).users().get(0);
+    }
+
+    /**
+     * Saves the user. Writes of the same user must not run concurrently.
+     */
+    public void write(User user) throws IOException {
+        Path file = fileOf(user.username());
+        Files.createDirectories(file.getParent());
+        SnapshotFile.write(file, 0, List.of(user));
+    }
+
+    /**
+     * Deletes the file of the user, if there is one. Must not run concurrently with a write of the same user.
+     */
+    public void delete(String username) throws IOException {
+        Files.deleteIfExists(fileOf(username));
+    }
+
+    private Path fileOf(String username) {
+        String shard = String.format(SHARD_FORMAT, Math.floorMod(username.hashCode(), SHARDS_COUNT));
+        return directory.resolve(shard).resolve(HEX.formatHex(username.getBytes(StandardCharsets.UTF_8)) + SUFFIX);
+    }
+
+    private static Set<String> usernamesIn(Path shard) {
+        try (Stream<Path> files = Files.list(shard)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> new String(HEX.parseHex(name, 0, name.length() - SUFFIX.length()),
+                            StandardCharsets.UTF_8))
+                    .collect(Collectors.toSet());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.BoughtCryptocurrency;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.Portfolio;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.SoldCryptocurrency;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Binary encoding of the wallet types shared by the journal and its snapshots.
+ */
+public final class WalletCodec {
+
+    private WalletCodec() {
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public static void writeCryptoInformation(DataOutput out, CryptoInformation info) throws IOException {
+        writeString(out, info.assetID());
+        writeString(out, info.assetName());
+        out.writeInt(info.isCrypto());
+        out.writeDouble(info.price());
+    }
+
+    public static CryptoInformation readCryptoInformation(DataInput in) throws IOException {
+        return new CryptoInformation(readString(in), readString(in), in.readInt(), in.readDouble());
+    }
+
+    public static void writeBought(DataOutput out, BoughtCryptocurrency bought) throws IOException {
+        writeCryptoInformation(out, bought.boughtCrypto());
+        out.writeDouble(bought.buyingPrice());
+        out.writeDouble(bought.buyingCount());
+    }
+
+    public static BoughtCryptocurrency readBought(DataInput in) throws IOException {
+        return new BoughtCryptocurrency(readCryptoInformation(in), in.readDouble(), in.readDouble());
+    }
+
+    public static void writeSold(DataOutput out, SoldCryptocurrency sold) throws IOException {
+        writeCryptoInformation(out, sold.soldCrypto());
+        out.writeDouble(sold.sellingPrice());
+        out.writeDouble(sold.profit());
+    }
+
+    public static SoldCryptocurrency readSold(DataInput in) throws IOException {
+        return new SoldCryptocurrency(readCryptoInformation(in), in.readDouble(), in.readDouble());
+    }
+
+    public static void writePortfolio(DataOutput out, Portfolio portfolio) throws IOException {
+        out.writeLong(portfolio.version());
+        out.writeDouble(portfolio.money());
+        out.writeInt(portfolio.boughtCryptocurrencies().size());
+        for (BoughtCryptocurrency bought : portfolio.boughtCryptocurrencies()) {
+            writeBought(out, bought);
+        }
+        out.writeInt(portfolio.soldCryptocurrencies().size());
+        for (SoldCryptocurrency sold : portfolio.soldCryptocurrencies()) {
+            writeSold(out, sold);
+        }
+    }
+
+    public static Portfolio readPortfolio(DataInput in) throws IOException {
+        long version = in.readLong();
+        double money = in.readDouble();
+        int boughtCount = in.readInt();
+        Set<BoughtCryptocurrency> bought = new HashSet<>();
+        for (int i = 0; i < boughtCount; i++) {
+            bought.add(readBought(in));
+        }
+        int soldCount = in.readInt();
+        Set<SoldCryptocurrency> sold = new HashSet<>();
+        for (int i = 0; i < soldCount; i++) {
+            sold.add(readSold(in));
+        }
+
+        return new Portfolio(money, bought, sold, version);
+    }
+}
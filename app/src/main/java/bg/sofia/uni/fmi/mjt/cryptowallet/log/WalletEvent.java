@@ -0,0 +1,74 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.BoughtCryptocurrency;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.Portfolio;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.SoldCryptocurrency;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A single wallet mutation as it is written to the journal. Only the fields of its type are set.
+ */
+public record WalletEvent(Type type, String username, String hashedPassword, double amount,
+                          BoughtCryptocurrency bought, SoldCryptocurrency sold) {
+
+    public enum Type {
+        REGISTER, DEPOSIT, BUY, SELL
+    }
+
+    public static WalletEvent register(String username, String hashedPassword) {
+        return new WalletEvent(Type.REGISTER, username, hashedPassword, 0, null, null);
+    }
+
+    public static WalletEvent deposit(String username, double amount) {
+        return new WalletEvent(Type.DEPOSIT, username, null, amount, null, null);
+    }
+
+    public static WalletEvent buy(String username, BoughtCryptocurrency bought) {
+        return new WalletEvent(Type.BUY, username, null, 0, bought, null);
+    }
+
+    public static WalletEvent sell(String username, SoldCryptocurrency sold) {
+        return new WalletEvent(Type.SELL, username, null, 0, null, sold);
+    }
+
+    /**
+     * Applies a non-register event to the portfolio it was recorded against.
+     */
+    public Portfolio applyTo(Portfolio portfolio) {
+        return switch (type) {
+            case DEPOSIT -> portfolio.deposit(amount);
+            case BUY -> portfolio.buy(bought);
+            case SELL -> portfolio.sell(sold);
+            case REGISTER -> portfolio;
+        };
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeUTF(username);
+        switch (type) {
+            case REGISTER -> out.writeUTF(hashedPassword);
+            case DEPOSIT -> out.writeDouble(amount);
+            case BUY -> WalletCodec.writeBought(out, bought);
+            case SELL -> WalletCodec.writeSold(out, sold);
+        }
+    }
+
+    public static WalletEvent read(DataInput in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= Type.values().length) {
+            throw new IOException("Unknown wallet event type " + ordinal);
+        }
+
+        String username = in.readUTF();
+        return switch (Type.values()[ordinal]) {
+            case REGISTER -> register(username, in.readUTF());
+            case DEPOSIT -> deposit(username, in.readDouble());
+            case BUY -> buy(username, WalletCodec.readBought(in));
+            case SELL -> sell(username, WalletCodec.readSold(in));
+        };
+    }
+}
@@ -0,0 +1,370 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.jfr.PersistenceEvent;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.LatencyHistogram;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.MetricsRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of wallet events split into segments named after their first sequence.
+ * Each record is its payload length, a CRC32 of sequence and payload, the sequence and the payload.
+ * Appends are queued and written by a single thread in group commits; the future returned for an
+ * event completes once the batch holding it is written and, when fsync is enabled, forced to disk.
+ * A failed write stops the journal: the events of its batch and every event queued or appended after
+ * it fail, so nothing written later can build on a change that never reached the disk.
+ */
+public class WalletJournal implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface EventConsumer {
+        void accept(long sequence, WalletEvent event);
+    }
+
+    public record Appended(long sequence, CompletableFuture<Void> written) { }
+
+    @FunctionalInterface
+    interface SegmentOpener {
+        FileChannel open(Path segmentFile) throws IOException;
+    }
+
+    private enum Kind {
+        EVENT, ROTATE, TRUNCATE
+    }
+
+    private record Entry(Kind kind, long sequence, byte[] payload, CompletableFuture<Void> written) { }
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SEGMENT_FORMAT = SEGMENT_PREFIX + "%020d" + SEGMENT_SUFFIX;
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final String JOURNAL_TARGET = "journal";
+    private static final LatencyHistogram FLUSH_DURATION = MetricsRegistry.global().histogram(
+            "wallet_journal_flush_duration_seconds", "Time spent writing and forcing a journal batch to disk");
+    private final Log log = new Log();
+    private final JournalConfig config;
+    private final SegmentOpener segmentOpener;
+    private final BlockingQueue<Entry> pending;
+    private final ByteArrayOutputStream batchBytes;
+    private final CRC32 crc;
+    private int batchRecords;
+    private long lastSequence;
+    private long segmentFirstSequence;
+    private FileChannel segment;
+    private long committedPosition;
+    private Thread writer;
+    private volatile boolean isRunning;
+    private volatile IOException failure;
+
+    public WalletJournal(JournalConfig config) throws IOException {
+        this(config, segmentFile -> FileChannel.open(segmentFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    WalletJournal(JournalConfig config, SegmentOpener segmentOpener) throws IOException {
+        this.config = config;
+        this.segmentOpener = segmentOpener;
+        this.pending = new LinkedBlockingQueue<>();
+        this.batchBytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        this.crc = new CRC32();
+        Files.createDirectories(config.directory());
+    }
+
+    /**
+     * Reads every segment in sequence order and passes the intact records to the consumer. A record
+     * with a bad length or checksum marks a torn write, so the rest of its segment is skipped.
+     * Must be called before {@link #start(long)}.
+     */
+    public long replay(EventConsumer consumer) throws IOException {
+        long replayedCount = 0;
+        for (Path segmentFile : segmentFiles()) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segmentFile));
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 0 || length + Long.BYTES > buffer.remaining()) {
+                    break;
+                }
+
+                crc.reset();
+                crc.update(buffer.array(), buffer.position(), Long.BYTES + length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                long sequence = buffer.getLong();
+                WalletEvent event = WalletEvent.read(new DataInputStream(
+                        new ByteArrayInputStream(buffer.array(), buffer.position(), length)));
+                buffer.position(buffer.position() + length);
+
+                consumer.accept(sequence, event);
+                lastSequence = Math.max(lastSequence, sequence);
+                replayedCount++;
+            }
+        }
+
+        return replayedCount;
+    }
+
+    /**
+     * Opens a fresh segment after every sequence seen so far and starts the writer thread.
+     */
+    public void start(long minLastSequence) throws IOException {
+        lastSequence = Math.max(lastSequence, minLastSequence);
+        openSegment(lastSequence + 1);
+        isRunning = true;
+        MetricsRegistry.global().gauge("wallet_journal_queue_depth", "Journal events waiting to be written",
+                pending::size);
+        writer = new Thread(this::writeLoop, "wallet-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the event for the next group commit.
+     *
+     * @throws IllegalStateException if an earlier write failed and the journal has stopped
+     */
+    public Appended append(WalletEvent event) {
+        byte[] payload = encode(event);
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        synchronized (this) {
+            if (failure != null) {
+                throw new IllegalStateException("Journal stopped after a failed write", failure);
+            }
+            long sequence = ++lastSequence;
+            pending.add(new Entry(Kind.EVENT, sequence, payload, written));
+            return new Appended(sequence, written);
+        }
+    }
+
+    /**
+     * Starts a new segment for all events appended from now on and returns its first sequence.
+     * Every event with a smaller sequence stays in the older segments.
+     */
+    public synchronized long rotate() {
+        long firstSequence = lastSequence + 1;
+        pending.add(new Entry(Kind.ROTATE, firstSequence, null, null));
+        return firstSequence;
+    }
+
+    /**
+     * Deletes the segments holding only events before the given sequence, once a snapshot covers them.
+     */
+    public void truncateBefore(long sequence) {
+        pending.add(new Entry(Kind.TRUNCATE, sequence, null, null));
+    }
+
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        isRunning = false;
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        while (isRunning || !pending.isEmpty()) {
+            try {
+                Entry first = pending.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                fillBatch(batch);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void fillBatch(List<Entry> batch) throws InterruptedException {
+        pending.drainTo(batch, config.maxBatchRecords() - batch.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.maxBatchDelayMillis());
+        while (batch.size() < config.maxBatchRecords()) {
+            long remaining = deadline - System.nanoTime();
+            Entry next = remaining > 0 ? pending.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            pending.drainTo(batch, config.maxBatchRecords() - batch.size());
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        if (failure != null) {
+            failEvents(batch, failure);
+            return;
+        }
+
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        try {
+            for (Entry entry : batch) {
+                switch (entry.kind()) {
+                    case EVENT -> {
+                        writeRecord(entry);
+                        written.add(entry.written());
+                    }
+                    case ROTATE -> {
+                        commit();
+                        openSegment(entry.sequence());
+                    }
+                    case TRUNCATE -> deleteSegmentsBefore(entry.sequence());
+                }
+            }
+            commit();
+            written.forEach(future -> future.complete(null));
+        } catch (IOException e) {
+            log.saveServerException(e);
+            batchBytes.reset();
+            batchRecords = 0;
+            failure = e;
+            failEvents(batch, e);
+            discardTornBytes();
+        }
+    }
+
+    private static void failEvents(List<Entry> batch, IOException failure) {
+        for (Entry entry : batch) {
+            if (entry.written() != null) {
+                entry.written().completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * Cuts the segment back to the end of the last committed batch after a failed write, so the
+     * segment ends with an intact record.
+     */
+    private void discardTornBytes() {
+        try {
+            segment.truncate(committedPosition);
+            segment.position(committedPosition);
+        } catch (IOException e) {
+            log.saveServerException(e);
+        }
+    }
+
+    private void writeRecord(Entry entry) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(entry.payload().length);
+        header.putInt(0);
+        header.putLong(entry.sequence());
+        crc.reset();
+        crc.update(header.array(), Integer.BYTES + Integer.BYTES, Long.BYTES);
+        crc.update(entry.payload());
+        header.putInt(Integer.BYTES, (int) crc.getValue());
+
+        batchBytes.writeBytes(header.array());
+        batchBytes.writeBytes(entry.payload());
+        batchRecords++;
+    }
+
+    private void commit() throws IOException {
+        if (batchBytes.size() == 0) {
+            return;
+        }
+
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        ByteBuffer bytes = ByteBuffer.wrap(batchBytes.toByteArray());
+        int records = batchRecords;
+        batchBytes.reset();
+        batchRecords = 0;
+        while (bytes.hasRemaining()) {
+            segment.write(bytes);
+        }
+        if (config.isFsyncEnabled()) {
+            segment.force(false);
+        }
+        committedPosition = segment.position();
+        FLUSH_DURATION.recordSince(startNanos);
+        event.commit(JOURNAL_TARGET, records, bytes.capacity());
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        if (segment != null) {
+            if (firstSequence == segmentFirstSequence) {
+                return;
+            }
+            segment.close();
+        }
+
+        Path segmentFile = config.directory().resolve(String.format(SEGMENT_FORMAT, firstSequence));
+        segment = segmentOpener.open(segmentFile);
+        segmentFirstSequence = firstSequence;
+        committedPosition = 0;
+    }
+
+    private void deleteSegmentsBefore(long sequence) throws IOException {
+        for (Path segmentFile : segmentFiles()) {
+            long firstSequence = firstSequence(segmentFile);
+            if (firstSequence < sequence && firstSequence != segmentFirstSequence) {
+                Files.deleteIfExists(segmentFile);
+            }
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(config.directory())) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted((first, second) -> Long.compare(firstSequence(first), firstSequence(second))).toList();
+        }
+    }
+
+    private static long firstSequence(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] encode(WalletEvent event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            event.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,32 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * State of all users covering every journal event before fromSequence. It is written to a temporary
+ * file, forced and atomically renamed, so a crash leaves either the previous snapshot or the new one.
+ * The file layout is described in SnapshotFile.
+ */
+public record WalletSnapshot(long fromSequence, List<User> users) {
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    public static WalletSnapshot read(Path directory) throws IOException {
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+
+        return SnapshotFile.read(snapshotFile);
+    }
+
+    public static void write(Path directory, long fromSequence, Collection<User> users) throws IOException {
+        SnapshotFile.write(directory.resolve(SNAPSHOT_FILE), fromSequence, users);
+    }
+}
@@ -0,0 +1,180 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters, gauges and latency histograms of the server. Metrics are registered once and
+ * the returned LongAdder or LatencyHistogram is kept by the code that updates it, so recording
+ * never goes through the registry. Values are only collected when they are read, either as
+ * Prometheus text or as the summary shown by the stats command.
+ */
+public class MetricsRegistry {
+
+    private enum Type {
+        COUNTER, GAUGE, SUMMARY
+    }
+
+    private record Family(String name, String help, Type type, Map<String, Object> series) { }
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+    private static final double[] QUANTILES = {50, 90, 99, 99.9};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999"};
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.9", "0.99", "0.999"};
+    private static final String SERIES_SEPARATOR = "; ";
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double NANOS_PER_MILLISECOND = 1e6;
+    private final Map<String, Family> families;
+
+    public MetricsRegistry() {
+        this.families = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * The registry the server exposes. Classes that always report keep their metrics in static fields
+     * registered here.
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Formats a label for a series, e.g. label("command", "buy") is command="buy".
+     */
+    public static String label(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    public LongAdder counter(String name, String help) {
+        return counter(name, help, "");
+    }
+
+    public LongAdder counter(String name, String help, String labels) {
+        Object series = family(name, help, Type.COUNTER).series().computeIfAbsent(labels, key -> new LongAdder());
+        if (!(series instanceof LongAdder adder)) {
+            throw new IllegalArgumentException("Counter " + name + " is already read from a function");
+        }
+
+        return adder;
+    }
+
+    /**
+     * Registers a counter kept by some other object, replacing any previous series with the same labels.
+     */
+    public void counter(String name, String help, String labels, LongSupplier value) {
+        family(name, help, Type.COUNTER).series().put(labels, value);
+    }
+
+    public void gauge(String name, String help, LongSupplier value) {
+        gauge(name, help, "", value);
+    }
+
+    public void gauge(String name, String help, String labels, LongSupplier value) {
+        family(name, help, Type.GAUGE).series().put(labels, value);
+    }
+
+    public LatencyHistogram histogram(String name, String help) {
+        return histogram(name, help, "");
+    }
+
+    public LatencyHistogram histogram(String name, String help, String labels) {
+        return (LatencyHistogram) family(name, help, Type.SUMMARY).series()
+                .computeIfAbsent(labels, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format. Histograms are exported as
+     * summaries with their quantiles in seconds.
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        for (Family family : families.values()) {
+            text.append("# HELP ").append(family.name()).append(' ').append(family.help()).append('\n');
+            text.append("# TYPE ").append(family.name()).append(' ')
+                    .append(family.type().name().toLowerCase(Locale.ROOT)).append('\n');
+            for (Map.Entry<String, Object> series : family.series().entrySet()) {
+                String labels = series.getKey();
+                if (series.getValue() instanceof LatencyHistogram histogram) {
+                    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+                    for (int i = 0; i < QUANTILES.length; i++) {
+                        String quantileLabel = label("quantile", QUANTILE_LABELS[i]);
+                        sample(text, family.name(), labels.isEmpty() ? quantileLabel : labels + "," + quantileLabel,
+                                seconds(snapshot.percentile(QUANTILES[i])));
+                    }
+                    sample(text, family.name() + "_sum", labels, seconds(snapshot.sumNanos()));
+                    sample(text, family.name() + "_count", labels, String.valueOf(snapshot.count()));
+                } else {
+                    sample(text, family.name(), labels, String.valueOf(valueOf(series.getValue())));
+                }
+            }
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Renders every series on a single line, separated by "; ", with histograms as their count and
+     * latency percentiles in milliseconds.
+     */
+    public String describe() {
+        StringBuilder text = new StringBuilder();
+        for (Family family : families.values()) {
+            for (Map.Entry<String, Object> series : family.series().entrySet()) {
+                if (!text.isEmpty()) {
+                    text.append(SERIES_SEPARATOR);
+                }
+                text.append(family.name());
+                if (!series.getKey().isEmpty()) {
+                    text.append('{').append(series.getKey()).append('}');
+                }
+                if (series.getValue() instanceof LatencyHistogram histogram) {
+                    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+                    text.append(" count=").append(snapshot.count())
+                            .append(" mean=").append(millis(snapshot.meanNanos()));
+                    for (int i = 0; i < QUANTILES.length; i++) {
+                        text.append(' ').append(QUANTILE_NAMES[i]).append('=')
+                                .append(millis(snapshot.percentile(QUANTILES[i])));
+                    }
+                    text.append(" max=").append(millis(snapshot.maxNanos()));
+                } else {
+                    text.append(' ').append(valueOf(series.getValue()));
+                }
+            }
+        }
+
+        return text.toString();
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type,
+                new ConcurrentSkipListMap<>()));
+        if (family.type() != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type());
+        }
+
+        return family;
+    }
+
+    private static void sample(StringBuilder text, String name, String labels, String value) {
+        text.append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ').append(value).append('\n');
+    }
+
+    private static long valueOf(Object series) {
+        return series instanceof LongAdder adder ? adder.sum() : ((LongSupplier) series).getAsLong();
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / NANOS_PER_SECOND);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3fms", nanos / NANOS_PER_MILLISECOND);
+    }
+}
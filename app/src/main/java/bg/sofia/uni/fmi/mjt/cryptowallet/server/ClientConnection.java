@@ -0,0 +1,208 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.server;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ClientConnection {
+
+    @FunctionalInterface
+    public interface LineConsumer {
+        void accept(ByteBuffer buffer, int start, int end);
+    }
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int MAX_GATHERED_BUFFERS = 64;
+    private static final byte NEW_LINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final LongAdder SENT_BYTES = MetricsRegistry.global().counter("wallet_sent_bytes_total",
+            "Bytes sent to clients");
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final Executor commandsExecutor;
+    private final Queue<ByteBuffer> outbound;
+    private final AtomicLong outboundBytes;
+    private final ByteBuffer[] gatheredBuffers;
+    private final int maxLineLength;
+    private final long highWaterMark;
+    private final AtomicInteger pendingCommands;
+    private final int pendingCommandsHighWaterMark;
+    private ByteBuffer readBuffer;
+    private boolean isDiscardingLine;
+    private boolean isReadingPaused;
+    private volatile boolean isClosingAfterFlush;
+
+    public ClientConnection(SelectionKey key, Executor workers, ServerConfig config) {
+        this.key = key;
+        this.channel = (SocketChannel) key.channel();
+        this.commandsExecutor = new SerialExecutor(workers);
+        this.outbound = new ConcurrentLinkedQueue<>();
+        this.outboundBytes = new AtomicLong();
+        this.gatheredBuffers = new ByteBuffer[MAX_GATHERED_BUFFERS];
+        this.maxLineLength = config.maxCommandLength();
+        this.highWaterMark = config.outboundHighWaterMark();
+        this.pendingCommands = new AtomicInteger();
+        this.pendingCommandsHighWaterMark = config.pendingCommandsHighWaterMark();
+        this.readBuffer = ByteBuffer.allocate(Math.min(INITIAL_BUFFER_SIZE, maxLineLength));
+    }
+
+    public SocketChannel channel() {
+        return channel;
+    }
+
+    public SelectionKey key() {
+        return key;
+    }
+
+    public ByteBuffer readBuffer() {
+        if (!readBuffer.hasRemaining() && readBuffer.capacity() < maxLineLength) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.min(readBuffer.capacity() * 2, maxLineLength));
+            readBuffer.flip();
+            bigger.put(readBuffer);
+            readBuffer = bigger;
+        }
+
+        return readBuffer;
+    }
+
+    /**
+     * Passes the byte range of every complete line received on this connection, without its line
+     * terminator, to the consumer in arrival order and keeps any incomplete tail for the next read.
+     * The range is only valid during the callback. A line longer than the maximum length is dropped
+     * and reported once as an empty range, so the client still gets a response for it.
+     */
+    public void drainLines(LineConsumer lineConsumer) {
+        readBuffer.flip();
+        int lineEnd = indexOfNewLine();
+        while (lineEnd >= 0) {
+            int lineStart = readBuffer.position();
+            readBuffer.position(lineEnd + 1);
+            if (isDiscardingLine) {
+                isDiscardingLine = false;
+            } else {
+                lineConsumer.accept(readBuffer, lineStart, contentEnd(lineStart, lineEnd));
+            }
+            lineEnd = indexOfNewLine();
+        }
+
+        if (readBuffer.remaining() >= maxLineLength) {
+            readBuffer.clear();
+            if (!isDiscardingLine) {
+                isDiscardingLine = true;
+                lineConsumer.accept(readBuffer, 0, 0);
+            }
+            return;
+        }
+        readBuffer.compact();
+    }
+
+    /**
+     * Queues the command behind the earlier commands of this connection. It counts as pending until
+     * it starts, so the response it schedules already sees it gone.
+     */
+    public void submit(Runnable command) {
+        pendingCommands.incrementAndGet();
+        commandsExecutor.execute(() -> {
+            pendingCommands.decrementAndGet();
+            command.run();
+        });
+    }
+
+    public void addResponse(ByteBuffer response) {
+        outboundBytes.addAndGet(response.remaining());
+        outbound.add(response);
+    }
+
+    public void closeAfterFlush() {
+        isClosingAfterFlush = true;
+    }
+
+    public boolean isClosingAfterFlush() {
+        return isClosingAfterFlush;
+    }
+
+    /**
+     * Writes as much of the outbound queue as the socket accepts without blocking.
+     * Returns true when the queue was fully drained and false when the socket send buffer is full.
+     */
+    public boolean flush() throws IOException {
+        try {
+            while (!outbound.isEmpty()) {
+                int count = 0;
+                for (ByteBuffer buffer : outbound) {
+                    if (count == MAX_GATHERED_BUFFERS) {
+                        break;
+                    }
+                    gatheredBuffers[count++] = buffer;
+                }
+
+                long writtenBytes = channel.write(gatheredBuffers, 0, count);
+                outboundBytes.addAndGet(-writtenBytes);
+                SENT_BYTES.add(writtenBytes);
+                for (int i = 0; i < count; i++) {
+                    if (gatheredBuffers[i].hasRemaining()) {
+                        return false;
+                    }
+                    outbound.poll();
+                }
+            }
+
+            return true;
+        } finally {
+            Arrays.fill(gatheredBuffers, null);
+        }
+    }
+
+    public long outboundBytes() {
+        return outboundBytes.get();
+    }
+
+    public int pendingCommands() {
+        return pendingCommands.get();
+    }
+
+    /**
+     * Stops reading from a client whose unsent responses or queued commands exceed their high-water
+     * marks and resumes once both drop to half of them, so neither a slow consumer nor a client
+     * pipelining faster than the workers can make the server buffer without bound.
+     */
+    public boolean shouldRead() {
+        long pendingBytes = outboundBytes.get();
+        int pendingCount = pendingCommands.get();
+        if (pendingBytes > highWaterMark || pendingCount > pendingCommandsHighWaterMark) {
+            isReadingPaused = true;
+        } else if (pendingBytes <= highWaterMark / 2 && pendingCount <= pendingCommandsHighWaterMark / 2) {
+            isReadingPaused = false;
+        }
+
+        return !isReadingPaused;
+    }
+
+    private int contentEnd(int lineStart, int lineEnd) {
+        if (lineEnd > lineStart && readBuffer.get(lineEnd - 1) == CARRIAGE_RETURN) {
+            return lineEnd - 1;
+        }
+
+        return lineEnd;
+    }
+
+    private int indexOfNewLine() {
+        for (int i = readBuffer.position(); i < readBuffer.limit(); i++) {
+            if (readBuffer.get(i) == NEW_LINE) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
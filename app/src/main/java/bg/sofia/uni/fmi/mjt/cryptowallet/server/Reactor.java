@@ -0,0 +1,254 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.server;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.Command;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandParser;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.ParseResult;
+import bg.sofia.uni.fmi.mjt.cryptowallet.jfr.CommandParseEvent;
+import bg.sofia.uni.fmi.mjt.cryptowallet.jfr.SelectorIterationEvent;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.Log;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Reactor implements Runnable {
+
+    private static final String INVALID_REQUEST = "This request is invalid, please check help menu!";
+    private static final String DISCONNECT = "User saved and disconnected successfully";
+    private static final LongAdder CONNECTED_CLIENTS = new LongAdder();
+    private static final LongAdder RECEIVED_BYTES = MetricsRegistry.global().counter("wallet_received_bytes_total",
+            "Bytes received from clients");
+    private static final LongAdder INVALID_REQUESTS = MetricsRegistry.global().counter(
+            "wallet_invalid_requests_total", "Requests that could not be parsed");
+    private final CommandExecutor commandExecutor;
+    private final Log log;
+    private final Selector selector;
+    private final Executor workers;
+    private final ServerConfig config;
+    private final CommandParser parser;
+    private final Queue<SocketChannel> pendingChannels;
+    private final Queue<ClientConnection> pendingWrites;
+    private volatile boolean isReactorWorking;
+
+    static {
+        MetricsRegistry.global().gauge("wallet_connected_clients", "Clients currently connected",
+                CONNECTED_CLIENTS::sum);
+    }
+
+    public Reactor(CommandExecutor commandExecutor, Executor workers, ServerConfig config, Log log) {
+        this.commandExecutor = commandExecutor;
+        this.workers = workers;
+        this.config = config;
+        this.log = log;
+        this.parser = new CommandParser();
+        this.pendingChannels = new ConcurrentLinkedQueue<>();
+        this.pendingWrites = new ConcurrentLinkedQueue<>();
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            log.saveServerException(e);
+            throw new UncheckedIOException("Failed to open reactor selector", e);
+        }
+    }
+
+    public void register(SocketChannel clientChannel) {
+        pendingChannels.add(clientChannel);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        isReactorWorking = true;
+        while (isReactorWorking) {
+            try {
+                int selectedKeys = selector.select();
+                SelectorIterationEvent iteration = new SelectorIterationEvent();
+                iteration.begin();
+                registerPendingChannels();
+                writePendingResponses();
+
+                Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+                while (keyIterator.hasNext()) {
+                    SelectionKey key = keyIterator.next();
+                    keyIterator.remove();
+                    ClientConnection connection = (ClientConnection) key.attachment();
+                    if (key.isValid() && key.isWritable()) {
+                        flush(connection);
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        handleRead(connection);
+                    }
+                }
+                iteration.commit(selectedKeys);
+            } catch (IOException e) {
+                log.saveServerException(e);
+                System.out.println("Error occurred while processing client request");
+            }
+        }
+        closeSelector();
+    }
+
+    public void stop() {
+        this.isReactorWorking = false;
+        if (selector.isOpen()) {
+            selector.wakeup();
+        }
+    }
+
+    private void registerPendingChannels() throws IOException {
+        while (!pendingChannels.isEmpty()) {
+            SocketChannel clientChannel = pendingChannels.poll();
+            try {
+                clientChannel.configureBlocking(false);
+                SelectionKey key = clientChannel.register(selector, SelectionKey.OP_READ);
+                key.attach(new ClientConnection(key, workers, config));
+                CONNECTED_CLIENTS.increment();
+            } catch (ClosedChannelException e) {
+                log.saveServerException(e);
+            }
+        }
+    }
+
+    private void writePendingResponses() {
+        while (!pendingWrites.isEmpty()) {
+            flush(pendingWrites.poll());
+        }
+    }
+
+    private void scheduleWrite(ClientConnection connection, String response) {
+        connection.addResponse(ByteBuffer.wrap(response.getBytes(StandardCharsets.UTF_8)));
+        if (response.equals(DISCONNECT + System.lineSeparator())) {
+            connection.closeAfterFlush();
+        }
+        pendingWrites.add(connection);
+        selector.wakeup();
+    }
+
+    private void flush(ClientConnection connection) {
+        SocketChannel clientChannel = connection.channel();
+        if (!clientChannel.isOpen()) {
+            return;
+        }
+
+        try {
+            boolean isFlushed = connection.flush();
+            if (isFlushed && connection.isClosingAfterFlush()) {
+                closeChannel(clientChannel);
+                return;
+            }
+
+            int interestOps = isFlushed ? 0 : SelectionKey.OP_WRITE;
+            if (connection.shouldRead()) {
+                interestOps |= SelectionKey.OP_READ;
+            }
+            connection.key().interestOps(interestOps);
+        } catch (IOException | CancelledKeyException e) {
+            log.saveServerException(e);
+            closeChannel(clientChannel);
+        }
+    }
+
+    private void handleRead(ClientConnection connection) {
+        SocketChannel clientChannel = connection.channel();
+        int readBytes;
+        try {
+            readBytes = clientChannel.read(connection.readBuffer());
+        } catch (IOException e) {
+            log.saveServerException(e);
+            readBytes = -1;
+        }
+        if (readBytes < 0) {
+            System.out.println("Client has closed the connection");
+            closeChannel(clientChannel);
+            return;
+        }
+
+        RECEIVED_BYTES.add(readBytes);
+        connection.drainLines((buffer, start, end) -> {
+            CommandParseEvent event = new CommandParseEvent();
+            event.begin();
+            ParseResult result = parser.parse(buffer, start, end);
+            event.commit(result.name(), end - start);
+            submitCommand(connection, result);
+        });
+        if (!connection.shouldRead()) {
+            connection.key().interestOps(connection.key().interestOps() & ~SelectionKey.OP_READ);
+        }
+    }
+
+    private void submitCommand(ClientConnection connection, ParseResult result) {
+        SocketChannel clientChannel = connection.channel();
+        if (result != ParseResult.OK) {
+            INVALID_REQUESTS.increment();
+            connection.submit(() -> {
+                commandExecutor.invalidCommand(clientChannel, result);
+                scheduleWrite(connection, INVALID_REQUEST + System.lineSeparator());
+            });
+            return;
+        }
+
+        Command cmd = parser.command();
+        connection.submit(() -> scheduleWrite(connection, executeCommand(cmd, clientChannel)));
+    }
+
+    private String executeCommand(Command cmd, SocketChannel clientChannel) {
+        String response;
+        try {
+            response = commandExecutor.execute(cmd, clientChannel);
+            if (!response.endsWith(System.lineSeparator())) {
+                response += System.lineSeparator();
+            }
+        } catch (RuntimeException e) {
+            log.saveServerException(e);
+            response = INVALID_REQUEST + System.lineSeparator();
+        }
+
+        return response;
+    }
+
+    private void closeChannel(SocketChannel clientChannel) {
+        if (!clientChannel.isOpen()) {
+            return;
+        }
+
+        CONNECTED_CLIENTS.decrement();
+        SelectionKey key = clientChannel.keyFor(selector);
+        if (key != null && key.attachment() instanceof ClientConnection connection) {
+            try {
+                connection.submit(() -> commandExecutor.connectionClosed(clientChannel));
+            } catch (RejectedExecutionException e) {
+                // the server is stopping and its sessions end with it
+            }
+        }
+        try {
+            clientChannel.close();
+        } catch (IOException e) {
+            log.saveServerException(e);
+        }
+    }
+
+    private void closeSelector() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                closeChannel((SocketChannel) key.channel());
+            }
+            selector.close();
+        } catch (IOException e) {
+            log.saveServerException(e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.server;
+
+public record ServerConfig(int reactorsCount, int workersCount, int maxCommandLength, long outboundHighWaterMark,
+                           int pendingCommandsHighWaterMark) {
+
+    private static final int WORKERS_PER_CORE = 2;
+    private static final int DEFAULT_MAX_COMMAND_LENGTH = 10000;
+    private static final long DEFAULT_OUTBOUND_HIGH_WATER_MARK = 1024 * 1024;
+    private static final int DEFAULT_PENDING_COMMANDS_HIGH_WATER_MARK = 1024;
+
+    public ServerConfig {
+        if (reactorsCount <= 0 || workersCount <= 0) {
+            throw new IllegalArgumentException("Reactors and workers count must be positive");
+        }
+        if (maxCommandLength <= 0 || outboundHighWaterMark <= 0) {
+            throw new IllegalArgumentException("Command length and outbound high-water mark must be positive");
+        }
+        if (pendingCommandsHighWaterMark <= 0) {
+            throw new IllegalArgumentException("Pending commands high-water mark must be positive");
+        }
+    }
+
+    public static ServerConfig of(int reactorsCount, int workersCount) {
+        return of(reactorsCount, workersCount, DEFAULT_OUTBOUND_HIGH_WATER_MARK);
+    }
+
+    public static ServerConfig of(int reactorsCount, int workersCount, long outboundHighWaterMark) {
+        return of(reactorsCount, workersCount, outboundHighWaterMark, DEFAULT_PENDING_COMMANDS_HIGH_WATER_MARK);
+    }
+
+    public static ServerConfig of(int reactorsCount, int workersCount, long outboundHighWaterMark,
+                                  int pendingCommandsHighWaterMark) {
+        return new ServerConfig(reactorsCount, workersCount, DEFAULT_MAX_COMMAND_LENGTH, outboundHighWaterMark,
+                pendingCommandsHighWaterMark);
+    }
+
+    public static int defaultWorkersCount() {
+        return Runtime.getRuntime().availableProcessors() * WORKERS_PER_CORE;
+    }
+
+    public static long defaultOutboundHighWaterMark() {
+        return DEFAULT_OUTBOUND_HIGH_WATER_MARK;
+    }
+
+    public static int defaultPendingCommandsHighWaterMark() {
+        return DEFAULT_PENDING_COMMANDS_HIGH_WATER_MARK;
+    }
+}
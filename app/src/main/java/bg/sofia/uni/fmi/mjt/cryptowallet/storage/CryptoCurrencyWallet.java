@@ -6,34 +6,51 @@ import bg.sofia.uni.fmi.mjt.cryptowallet.exception.InsufficientAvailabilityExcep
 import bg.sofia.uni.fmi.mjt.cryptowallet.exception.InvalidSellingException;
 import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserAlreadyDefined;
 import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserNotFound;
+import bg.sofia.uni.fmi.mjt.cryptowallet.jfr.PersistenceEvent;
 import bg.sofia.uni.fmi.mjt.cryptowallet.log.DataSaver;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.JournalConfig;
 import bg.sofia.uni.fmi.mjt.cryptowallet.log.Log;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.WalletEvent;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.WalletJournal;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.WalletSnapshot;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.LatencyHistogram;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.MetricsRegistry;
 import bg.sofia.uni.fmi.mjt.cryptowallet.user.BoughtCryptocurrency;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.Portfolio;
 import bg.sofia.uni.fmi.mjt.cryptowallet.user.SoldCryptocurrency;
 import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.lang.reflect.Type;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
 import java.nio.channels.SocketChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 
 public class CryptoCurrencyWallet implements CryptoCurrencyWalletAPI {
 
+    private record Change(User user, Portfolio previous, WalletEvent event, long sequence,
+                          CompletableFuture<Void> written) { }
+
     private static final String CRYPTO_INFO_FILE = "CryptoInformation.txt";
-    private static final String USERS_INFO_FILE = "UsersInformation.txt";
     private static final String SPACE = " ";
     private static final String ID = "ID:";
     private static final String PRICE = "Price:";
@@ -50,32 +67,89 @@ public class CryptoCurrencyWallet implements CryptoCurrencyWalletAPI {
     private static final double INITIAL_MONEY = 0.0;
     private static final String HASH_ALG = "MD5";
     private static final Gson GSON = new Gson();
-    private Cryptocurrencies cryptocurrencies;
-    private Set<User> registeredUsers;
+    private static final String SNAPSHOT_TARGET = "snapshot";
+    private static final long UNKNOWN_BYTES = -1;
+    private static final LatencyHistogram CHECKPOINT_DURATION = MetricsRegistry.global().histogram(
+            "wallet_checkpoint_duration_seconds", "Time spent writing a snapshot of every user");
+    private final UserStore users;
     private final Map<SocketChannel, User> userChannels;
     private final Log log = new Log();
+    private final UserLocks userLocks;
     private final DataSaver infoSaver;
+    private final PriceRefresher priceRefresher;
+    private final JournalConfig journalConfig;
+    private WalletJournal journal;
+    private ScheduledExecutorService checkpointScheduler;
 
     public CryptoCurrencyWallet(DataSaver infoSaver) {
-        userChannels = new HashMap<>();
+        this(infoSaver, null);
+    }
+
+    /**
+     * Creates a wallet whose changes are journaled under the given configuration. Without a journal
+     * configuration users are saved to UsersInformation.bin on every register and disconnect.
+     */
+    public CryptoCurrencyWallet(DataSaver infoSaver, JournalConfig journalConfig) {
+        this(infoSaver, journalConfig, null);
+    }
+
+    /**
+     * Creates a wallet whose prices are refreshed in the background under the given configuration.
+     * Without a refresh configuration outdated prices are fetched on the request that notices them.
+     */
+    public CryptoCurrencyWallet(DataSaver infoSaver, JournalConfig journalConfig,
+                                PriceRefreshConfig priceRefreshConfig) {
+        this(infoSaver, journalConfig, priceRefreshConfig, null);
+    }
+
+    /**
+     * Creates a wallet whose users are kept on disk under the given configuration, each loaded when it
+     * is first used. Without a user store configuration every registered user stays on the heap.
+     */
+    public CryptoCurrencyWallet(DataSaver infoSaver, JournalConfig journalConfig,
+                                PriceRefreshConfig priceRefreshConfig, UserStoreConfig userStoreConfig) {
+        userChannels = new ConcurrentHashMap<>();
+        userLocks = new UserLocks();
+        users = openUserStore(userStoreConfig);
         this.infoSaver = infoSaver;
-        readCryptocurrenciesInfoFromFile();
-        initializeUsers();
+        this.journalConfig = journalConfig;
+        this.priceRefresher = new PriceRefresher(infoSaver, readCryptocurrenciesInfoFromFile(), priceRefreshConfig);
+        if (journalConfig == null) {
+            if (users.isEmpty()) {
+                initializeUsers();
+            }
+        } else {
+            recoverFromJournal();
+        }
     }
 
     @Override
     public User register(String username, String password) throws UserAlreadyDefined {
-        for (User curr : registeredUsers) {
-            if (curr.username().equals(username)) {
-                throw new UserAlreadyDefined("User with this name already existed");
+        try {
+            User newUser = new User(username, hashPassword(password));
+            Change change;
+            Lock lock = userLocks.forUser(username);
+            lock.lock();
+            try {
+                if (!users.add(newUser)) {
+                    throw new UserAlreadyDefined("User with this name already existed");
+                }
+                try {
+                    change = publish(newUser, newUser.portfolio(),
+                            WalletEvent.register(username, newUser.hashedPassword()));
+                } catch (IllegalStateException e) {
+                    users.remove(newUser);
+                    throw e;
+                }
+            } finally {
+                lock.unlock();
             }
-        }
 
-        try {
-            String hashedPassword = hashPassword(password);
-            User newUser = new User(username, hashedPassword);
-            registeredUsers.add(newUser);
-            infoSaver.saveUsersInfoToFile(registeredUsers);
+            if (journal == null) {
+                saveUser(newUser);
+            }
+            awaitWritten(change);
+            users.evictIfNeeded();
 
             return newUser;
 
@@ -87,19 +161,32 @@ public class CryptoCurrencyWallet implements CryptoCurrencyWalletAPI {
 
     @Override
     public User login(SocketChannel channel, String username, String password) throws UserNotFound {
-        for (User currUser : registeredUsers) {
-            if (currUser.username().equals(username)) {
-                try {
-                    String hashPass = hashPassword(password);
-                    if (hashPass.equals(currUser.hashedPassword())) {
-                        userChannels.put(channel, currUser);
-                        return currUser;
+        try {
+            String hashPass = hashPassword(password);
+            Lock lock = userLocks.forUser(username);
+            lock.lock();
+            try {
+                User currUser = users.pin(username);
+                if (currUser != null && hashPass.equals(currUser.hashedPassword())) {
+                    User previous = userChannels.put(channel, currUser);
+                    if (previous != null) {
+                        users.unpin(previous.username());
                     }
-                } catch (NoSuchAlgorithmException e) {
-                    log.saveServerException(e);
-                    throw new RuntimeException(e);
+                    return currUser;
                 }
+                if (currUser != null) {
+                    users.unpin(username);
+                }
+            } finally {
+                lock.unlock();
+                users.evictIfNeeded();
             }
+        } catch (NoSuchAlgorithmException e) {
+            log.saveServerException(e);
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            log.saveServerException(e);
+            throw new UncheckedIOException("Failed to load user " + username, e);
         }
 
         throw new UserNotFound("User didn't logged successfully");
@@ -107,21 +194,29 @@ public class CryptoCurrencyWallet implements CryptoCurrencyWalletAPI {
 
     @Override
     public void depositMoney(SocketChannel channel, double amount) throws UserNotFound {
-        if (!userChannels.containsKey(channel)) {
+        User currUser = userChannels.get(channel);
+        if (currUser == null) {
             throw new UserNotFound("User is not currently logged");
         }
-        double currMoney = userChannels.get(channel).money();
-        userChannels.get(channel).setMoney(currMoney + amount);
+
+        Change change;
+        Lock lock = userLocks.forUser(currUser.username());
+        lock.lock();
+        try {
+            change = publish(currUser, currUser.portfolio().deposit(amount),
+                    WalletEvent.deposit(currUser.username(), amount));
+        } finally {
+            lock.unlock();
+        }
+        awaitWritten(change);
     }
 
     @Override
     public StringBuilder listOfferings() {
-        if (infoSaver.checkCryptocurrenciesForUpdate(cryptocurrencies)) {
-            cryptocurrencies = infoSaver.getCryptocurrenciesFromApi();
-        }
+        PriceSnapshot currentPrices = priceRefresher.revalidateIfStale();
 
         StringBuilder builder = new StringBuilder();
-        for (var currCrypto : cryptocurrencies.cryptocurrencies()) {
+        for (var currCrypto : currentPrices.cryptocurrencies().cryptocurrencies()) {
             builder.append(ID);
             builder.append(currCrypto.assetID());
             builder.append(SPACE);
@@ -141,23 +236,28 @@ public class CryptoCurrencyWallet implements CryptoCurrencyWalletAPI {
     public BoughtCryptocurrency buy(SocketChannel channel, String assetID, double investingMoney) throws UserNotFound,
             InsufficientAvailabilityException {
 
-        User currUser = checkForBuying(channel, investingMoney);
-        CryptoInformation cryptoInfo = getCryptoInfo(assetID);
-
-        currUser.setMoney(currUser.money() - investingMoney);
-        double countBoughtCrypto = investingMoney / cryptoInfo.price();
-        BoughtCryptocurrency boughtCrypto = new BoughtCryptocurrency(cryptoInfo, investingMoney, countBoughtCrypto);
-        if (currUser.boughtCryptocurrencies().contains(boughtCrypto)) {
-            BoughtCryptocurrency crypto = new BoughtCryptocurrency(cryptoInfo, investingMoney * 2,
-                    countBoughtCrypto * 2);
-
-            currUser.boughtCryptocurrencies().remove(boughtCrypto);
-            currUser.boughtCryptocurrencies().add(crypto);
+        User currUser = userChannels.get(channel);
+        if (currUser == null) {
+            throw new UserNotFound("User is not currently logged in");
         }
-        else {
-            currUser.boughtCryptocurrencies().add(boughtCrypto);
+
+        BoughtCryptocurrency boughtCrypto;
+        Change change;
+        Lock lock = userLocks.forUser(currUser.username());
+        lock.lock();
+        try {
+            Portfolio portfolio = currUser.portfolio();
+            checkForBuying(portfolio, investingMoney);
+            CryptoInformation cryptoInfo = getCryptoInfo(assetID);
+
+            double countBoughtCrypto = investingMoney / cryptoInfo.price();
+            boughtCrypto = new BoughtCryptocurrency(cryptoInfo, investingMoney, countBoughtCrypto);
+            change = publish(currUser, portfolio.buy(boughtCrypto),
+                    WalletEvent.buy(currUser.username(), boughtCrypto));
+        } finally {
+            lock.unlock();
         }
-        userChannels.put(channel, currUser);
+        awaitWritten(change);
 
         return boughtCrypto;
     }
@@ -165,59 +265,61 @@ public class CryptoCurrencyWallet implements CryptoCurrencyWalletAPI {
     @Override
     public SoldCryptocurrency sell(SocketChannel channel, String assetID) throws UserNotFound, InvalidSellingException {
 
-        if (!userChannels.containsKey(channel)) {
+        User currUser = userChannels.get(channel);
+        if (currUser == null) {
             throw new UserNotFound("User is not currently logged");
         }
-        User currUser = userChannels.get(channel);
 
-        if (infoSaver.checkCryptocurrenciesForUpdate(cryptocurrencies)) {
-            cryptocurrencies = infoSaver.getCryptocurrenciesFromApi();
-        }
+        priceRefresher.revalidateIfStale();
 
         CryptoInformation info = getCryptoInfo(assetID);
 
-        double currentSellingPrice = info.price();
-        double countBoughtCrypto = INITIAL_MONEY;
-        double givenMoneyBoughtCrypto = INITIAL_MONEY;
-
-        Iterator<BoughtCryptocurrency> iterator = currUser.boughtCryptocurrencies().iterator();
-        while (iterator.hasNext()) {
-            BoughtCryptocurrency boughtCryptocurrency = iterator.next();
-            if (boughtCryptocurrency.boughtCrypto().assetID().equals(assetID.strip())) {
-                countBoughtCrypto += boughtCryptocurrency.buyingCount();
-                givenMoneyBoughtCrypto += boughtCryptocurrency.buyingPrice();
-                iterator.remove();
+        SoldCryptocurrency soldCrypto;
+        Change change;
+        Lock lock = userLocks.forUser(currUser.username());
+        lock.lock();
+        try {
+            Portfolio portfolio = currUser.portfolio();
+            soldCrypto = portfolio.sellingOf(info);
+            if (soldCrypto == null) {
+                throw new InvalidSellingException("You can't sell cryptocurrency that you haven't bought");
             }
+            change = publish(currUser, portfolio.sell(soldCrypto),
+                    WalletEvent.sell(currUser.username(), soldCrypto));
+        } finally {
+            lock.unlock();
         }
-
-        if (countBoughtCrypto == INITIAL_MONEY) {
-            throw new InvalidSellingException("You can't sell cryptocurrency that you haven't bought");
-        }
-        double sumToEarn = countBoughtCrypto * currentSellingPrice;
-        currUser.setMoney(currUser.money() + sumToEarn);
-        double profit = sumToEarn - givenMoneyBoughtCrypto;
-        SoldCryptocurrency soldCrypto = new SoldCryptocurrency(info, sumToEarn, profit);
-        currUser.soldCryptocurrencies().add(soldCrypto);
-        userChannels.put(channel, currUser);
+        awaitWritten(change);
 
         return soldCrypto;
     }
 
+    @Override
+    public Duration getOfferingsAge() {
+        return priceRefresher.revalidateIfStale().age();
+    }
+
+    @Override
+    public boolean areOfferingsStale() {
+        return priceRefresher.current().isStale();
+    }
+
     @Override
     public StringBuilder getWalletSummary(SocketChannel channel) throws UserNotFound {
-        if (!userChannels.containsKey(channel)) {
+        User loggedUser = userChannels.get(channel);
+        if (loggedUser == null) {
             throw new UserNotFound("User is not currently logged in");
         }
-        User currUser = userChannels.get(channel);
+        Portfolio portfolio = loggedUser.portfolio();
         StringBuilder builder = new StringBuilder();
 
         builder.append(MONEY);
-        builder.append(currUser.money());
+        builder.append(portfolio.money());
         builder.append(SPACE);
         builder.append(ACTIVE_INVESTMENTS);
         builder.append(SPACE);
 
-        for (var curr : currUser.boughtCryptocurrencies()) {
+        for (var curr : portfolio.boughtCryptocurrencies()) {
             builder.append(ID);
             builder.append(curr.boughtCrypto().assetID());
             builder.append(SPACE);
@@ -239,51 +341,51 @@ public class CryptoCurrencyWallet implements CryptoCurrencyWalletAPI {
     @Override
     public StringBuilder getWalletOverAllSummary(SocketChannel channel) throws UserNotFound {
 
-        if (!userChannels.containsKey(channel)) {
+        User loggedUser = userChannels.get(channel);
+        if (loggedUser == null) {
             throw new UserNotFound("User is not currently logged in");
         }
-        User currUser = userChannels.get(channel);
+        Portfolio portfolio = loggedUser.portfolio();
 
-        if (infoSaver.checkCryptocurrenciesForUpdate(cryptocurrencies)) {
-            cryptocurrencies = infoSaver.getCryptocurrenciesFromApi();
-        }
+        PriceSnapshot currentPrices = priceRefresher.revalidateIfStale();
 
         StringBuilder builder = new StringBuilder();
         double overallProfit = INITIAL_MONEY;
 
         builder.append(ACTIVE_INVESTMENTS);
         builder.append(SPACE);
-        for (var currCrypto : currUser.boughtCryptocurrencies()) {
-            for (var curr : cryptocurrencies.cryptocurrencies()) {
-                if (currCrypto.boughtCrypto().assetID().equals(curr.assetID())) {
-                    double boughtPrice = currCrypto.buyingPrice();
-                    double currPrice = curr.price();
-                    double profit = (currPrice * currCrypto.buyingCount()) - boughtPrice;
-                    overallProfit += profit;
-
-                    builder.append(ID);
-                    builder.append(curr.assetID());
-                    builder.append(SPACE);
-                    builder.append(NAME);
-                    builder.append(curr.assetName());
-                    builder.append(SPACE);
-                    builder.append(BOUGHT);
-                    builder.append(currCrypto.buyingPrice());
-                    builder.append(SPACE);
-                    builder.append(CURRENT);
-                    builder.append(curr.price() * currCrypto.buyingCount());
-                    builder.append(SPACE);
-                    builder.append(PROFIT);
-                    builder.append(profit);
-                    builder.append(SPACE);
-                    builder.append(SPACE);
-                }
+        for (var currCrypto : portfolio.boughtCryptocurrencies()) {
+            CryptoInformation curr = currentPrices.get(currCrypto.boughtCrypto().assetID());
+            if (curr == null) {
+                continue;
             }
+
+            double boughtPrice = currCrypto.buyingPrice();
+            double currPrice = curr.price();
+            double profit = (currPrice * currCrypto.buyingCount()) - boughtPrice;
+            overallProfit += profit;
+
+            builder.append(ID);
+            builder.append(curr.assetID());
+            builder.append(SPACE);
+            builder.append(NAME);
+            builder.append(curr.assetName());
+            builder.append(SPACE);
+            builder.append(BOUGHT);
+            builder.append(currCrypto.buyingPrice());
+            builder.append(SPACE);
+            builder.append(CURRENT);
+            builder.append(curr.price() * currCrypto.buyingCount());
+            builder.append(SPACE);
+            builder.append(PROFIT);
+            builder.append(profit);
+            builder.append(SPACE);
+            builder.append(SPACE);
         }
-        for (var currCrypto : currUser.soldCryptocurrencies()) {
+        for (var currCrypto : portfolio.soldCryptocurrencies()) {
             overallProfit += currCrypto.profit();
         }
-        builder.append(getFinishedInvestments(currUser));
+        builder.append(getFinishedInvestments(portfolio));
         builder.append(OVERALL_PROFIT);
         builder.append(overallProfit);
         builder.append(SPACE);
@@ -294,50 +396,283 @@ public class CryptoCurrencyWallet implements CryptoCurrencyWalletAPI {
 
     @Override
     public User disconnect(SocketChannel channel) throws UserNotFound, IOException {
-        if (!userChannels.containsKey(channel)) {
+        User user = userChannels.remove(channel);
+        if (user == null) {
             throw new UserNotFound("User is not currently logged");
         }
-
-        User user = userChannels.get(channel);
-        userChannels.remove(channel);
-        infoSaver.saveUsersInfoToFile(registeredUsers);
+        if (journal == null) {
+            saveUser(user);
+        }
+        users.unpin(user.username());
+        users.evictIfNeeded();
 
         return user;
     }
 
+    /**
+     * Ends the session of a connection closed without disconnect. Its changes are saved later, with
+     * the next flush of the dirty users or the next save of every user.
+     */
+    public void endSession(SocketChannel channel) {
+        User user = userChannels.remove(channel);
+        if (user != null) {
+            users.unpin(user.username());
+            users.evictIfNeeded();
+        }
+    }
+
     public String getUsername(SocketChannel channel) {
         return userChannels.get(channel).username();
     }
 
+    private UserStore openUserStore(UserStoreConfig config) {
+        if (config == null) {
+            return UserStore.inMemory(userLocks);
+        }
+
+        try {
+            return UserStore.open(config, userLocks);
+        } catch (IOException e) {
+            log.saveServerException(e);
+            throw new UncheckedIOException("Failed to open the user store", e);
+        }
+    }
+
     private void initializeUsers() {
-        File usersFile = new File(USERS_INFO_FILE);
-        try (Reader reader = new FileReader(usersFile)) {
-            if (usersFile.length() == 0) {
-                registeredUsers = new HashSet<>();
+        try {
+            users.importUsers(DataSaver.loadUsersInfoFromFile());
+        } catch (IOException e) {
+            log.saveServerException(e);
+        }
+    }
+
+    private void saveUsers() throws IOException {
+        infoSaver.saveUsersInfoToFile(new HashSet<>(users.residentUsers()));
+    }
+
+    /**
+     * Saves a change that is not journaled: the user alone, if it is dirty, with an on-disk store, every
+     * user otherwise.
+     */
+    private void saveUser(User user) throws IOException {
+        if (!users.isOnDisk()) {
+            saveUsers();
+            return;
+        }
+
+        Lock lock = userLocks.forUser(user.username());
+        lock.lock();
+        try {
+            users.write(user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of every user and drops the journal segments it covers. Each user is read
+     * under its lock, so the snapshot holds every event journaled before the rotation. With an on-disk
+     * store the dirty users are written back instead, once the events journaled before the rotation
+     * are marked dirty, and the snapshot only records the sequence.
+     */
+    public void checkpoint() throws IOException {
+        if (journal == null) {
+            if (users.isOnDisk()) {
+                users.writeBack();
             } else {
-                Type cryptoListType = new TypeToken<Set<User>>() {
-                }.getType();
-                registeredUsers = GSON.fromJson(reader, cryptoListType);
+                saveUsers();
+            }
+            return;
+        }
+
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        long fromSequence = journal.rotate();
+        List<User> snapshotUsers = new ArrayList<>();
+        int writtenCount = users.dirtyCount();
+        if (users.isOnDisk()) {
+            users.writeBackSettled();
+        } else {
+            snapshotUsers = copyUsers();
+            writtenCount = snapshotUsers.size();
+        }
+        WalletSnapshot.write(journalConfig.directory(), fromSequence, snapshotUsers);
+        journal.truncateBefore(fromSequence);
+        CHECKPOINT_DURATION.recordSince(startNanos);
+        event.commit(SNAPSHOT_TARGET, writtenCount, UNKNOWN_BYTES);
+    }
+
+    private List<User> copyUsers() {
+        List<User> copies = new ArrayList<>();
+        for (User user : users.residentUsers()) {
+            Lock lock = userLocks.forUser(user.username());
+            lock.lock();
+            try {
+                User copy = new User(user.username(), user.hashedPassword());
+                copy.setPortfolio(user.portfolio());
+                copies.add(copy);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return copies;
+    }
+
+    /**
+     * Stops the price refresher and the periodic checkpoints and writes a final checkpoint before
+     * closing the journal and the user store.
+     */
+    public void close() throws IOException {
+        priceRefresher.close();
+        if (journal != null) {
+            checkpointScheduler.shutdownNow();
+            checkpoint();
+            journal.close();
+        }
+        users.close();
+    }
+
+    private void recoverFromJournal() {
+        try {
+            journal = new WalletJournal(journalConfig);
+            WalletSnapshot snapshot = WalletSnapshot.read(journalConfig.directory());
+            if (snapshot == null) {
+                if (users.isEmpty()) {
+                    initializeUsers();
+                }
+            } else if (users.isEmpty()) {
+                users.importUsers(snapshot.users());
+            }
+
+            journal.replay(this::applyJournaled);
+            journal.start(snapshot == null ? 0 : snapshot.fromSequence() - 1);
+            if (snapshot == null) {
+                checkpoint();
+            }
+        } catch (IOException e) {
+            log.saveServerException(e);
+            throw new UncheckedIOException("Failed to recover wallet from journal", e);
+        } catch (UncheckedIOException e) {
+            log.saveServerException(e);
+            throw e;
+        }
+
+        checkpointScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wallet-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = journalConfig.snapshotIntervalSeconds();
+        checkpointScheduler.scheduleWithFixedDelay(this::runCheckpoint, interval, interval, TimeUnit.SECONDS);
+    }
+
+    private void runCheckpoint() {
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            log.saveServerException(e);
+        }
+    }
+
+    private void applyJournaled(long sequence, WalletEvent event) {
+        if (event.type() == WalletEvent.Type.REGISTER) {
+            User user = new User(event.username(), event.hashedPassword());
+            user.setPortfolio(user.portfolio().withVersion(sequence));
+            users.add(user);
+        } else {
+            User user = getUser(event.username());
+            if (user != null && user.portfolio().version() < sequence) {
+                user.setPortfolio(event.applyTo(user.portfolio()).withVersion(sequence));
+                users.markDirty(user);
             }
+        }
+        users.evictIfNeeded();
+    }
+
+    private User getUser(String username) {
+        try {
+            return users.get(username);
         } catch (IOException e) {
-            registeredUsers = new HashSet<>();
+            throw new UncheckedIOException("Failed to load user " + username, e);
+        }
+    }
+
+    /**
+     * Publishes the user's next portfolio and journals the event behind it. Must be called under the
+     * user's lock, so events of one user reach the journal in the order they were applied.
+     */
+    private Change publish(User user, Portfolio next, WalletEvent event) {
+        Portfolio previous = user.portfolio();
+        if (journal == null) {
+            user.setPortfolio(next);
+            users.markDirty(user);
+            return new Change(user, previous, event, 0, CompletableFuture.completedFuture(null));
+        }
+
+        WalletJournal.Appended appended = journal.append(event);
+        user.setPortfolio(next.withVersion(appended.sequence()));
+        users.markDirty(user);
+        return new Change(user, previous, event, appended.sequence(), appended.written());
+    }
+
+    /**
+     * Waits until the change is journaled. A change that failed to be written is undone before the
+     * failure is thrown, so it is never saved by a checkpoint or the user store.
+     */
+    private void awaitWritten(Change change) {
+        try {
+            change.written().join();
+        } catch (CompletionException e) {
             log.saveServerException(e);
+            Lock lock = userLocks.forUser(change.user().username());
+            lock.lock();
+            try {
+                undo(change);
+            } finally {
+                lock.unlock();
+            }
+            throw new IllegalStateException("Failed to journal wallet change", e.getCause());
         }
     }
 
-    private void readCryptocurrenciesInfoFromFile() {
+    /**
+     * Forgets a user whose registration failed, or restores the portfolio the change replaced unless
+     * the user is already back before it. The journal accepts nothing after a failed write, so when
+     * several changes of a user fail together the oldest portfolio is restored in whichever order
+     * they are undone.
+     */
+    private void undo(Change change) {
+        User user = change.user();
+        if (change.event().type() == WalletEvent.Type.REGISTER) {
+            try {
+                users.remove(user);
+            } catch (IOException e) {
+                log.saveServerException(e);
+            }
+            return;
+        }
+
+        if (user.portfolio().version() >= change.sequence()) {
+            user.setPortfolio(change.previous());
+            users.markDirty(user);
+        }
+    }
+
+    private PriceSnapshot readCryptocurrenciesInfoFromFile() {
         File cryptoFile = new File(CRYPTO_INFO_FILE);
 
         try (Reader reader = new FileReader(cryptoFile)) {
             if (cryptoFile.length() == 0) {
-                cryptocurrencies = infoSaver.getCryptocurrenciesFromApi();
+                return PriceSnapshot.of(infoSaver.getCryptocurrenciesFromApi());
             }
             else {
-                cryptocurrencies = GSON.fromJson(reader, Cryptocurrencies.class);
+                return PriceSnapshot.of(GSON.fromJson(reader, Cryptocurrencies.class));
             }
         } catch (IOException e) {
-            cryptocurrencies = infoSaver.getCryptocurrenciesFromApi();
             log.saveServerException(e);
+            return PriceSnapshot.of(infoSaver.getCryptocurrenciesFromApi());
         }
     }
 
@@ -350,29 +685,14 @@ public class CryptoCurrencyWallet implements CryptoCurrencyWalletAPI {
         return bigInt.toString(HASHSUM_LENGTH);
     }
 
-    private User checkForBuying(SocketChannel channel, double investingMoney) throws UserNotFound,
-            InsufficientAvailabilityException {
-
-        if (!userChannels.containsKey(channel)) {
-            throw new UserNotFound("User is not currently logged in");
-        }
-        User currUser = userChannels.get(channel);
-
-        if (investingMoney > currUser.money()) {
+    private void checkForBuying(Portfolio portfolio, double investingMoney) throws InsufficientAvailabilityException {
+        if (investingMoney > portfolio.money()) {
             throw new InsufficientAvailabilityException("You don't have enough money");
         }
-
-        return currUser;
     }
 
     private CryptoInformation getCryptoInfo(String assetID) {
-        CryptoInformation cryptoInfo = null;
-        for (var currInfo : cryptocurrencies.cryptocurrencies()) {
-            if (currInfo.assetID().equals(assetID.strip())) {
-                cryptoInfo = currInfo;
-                break;
-            }
-        }
+        CryptoInformation cryptoInfo = priceRefresher.current().get(assetID.strip());
         if (cryptoInfo == null) {
             throw new IllegalArgumentException("Current cryptocurrency is missing");
         }
@@ -380,11 +700,11 @@ public class CryptoCurrencyWallet implements CryptoCurrencyWalletAPI {
         return cryptoInfo;
     }
 
-    private StringBuilder getFinishedInvestments(User user) {
+    private StringBuilder getFinishedInvestments(Portfolio portfolio) {
         StringBuilder builder = new StringBuilder();
 
         builder.append(FINISHED_INVESTMENTS);
-        for (var currCrypto : user.soldCryptocurrencies()) {
+        for (var currCrypto : portfolio.soldCryptocurrencies()) {
             builder.append(ID);
             builder.append(currCrypto.soldCrypto().assetID());
             builder.append(SPACE);
@@ -400,15 +720,23 @@ public class CryptoCurrencyWallet implements CryptoCurrencyWalletAPI {
         return builder;
     }
 
+    public PriceRefresher priceRefresher() {
+        return priceRefresher;
+    }
+
     public User user(SocketChannel channel) {
         return userChannels.get(channel);
     }
 
+    UserStore users() {
+        return users;
+    }
+
     public Cryptocurrencies getCryptocurrencies() {
-        return cryptocurrencies;
+        return priceRefresher.current().cryptocurrencies();
     }
 
     public void setCryptocurrencies(Cryptocurrencies crypto) {
-        this.cryptocurrencies = crypto;
+        priceRefresher.update(PriceSnapshot.of(crypto));
     }
 }
@@ -10,6 +10,7 @@ import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
 
 import java.io.IOException;
 import java.nio.channels.SocketChannel;
+import java.time.Duration;
 
 public interface CryptoCurrencyWalletAPI {
 
@@ -21,6 +22,16 @@ public interface CryptoCurrencyWalletAPI {
 
     StringBuilder listOfferings();
 
+    /**
+     * Returns how long ago the offered prices were fetched, or null if that is unknown.
+     */
+    Duration getOfferingsAge();
+
+    /**
+     * Tells whether the offered prices are kept only because refreshing them from CoinAPI fails.
+     */
+    boolean areOfferingsStale();
+
     BoughtCryptocurrency buy(SocketChannel channel, String assetID, double investingAmount) throws UserNotFound,
             InsufficientAvailabilityException;
 
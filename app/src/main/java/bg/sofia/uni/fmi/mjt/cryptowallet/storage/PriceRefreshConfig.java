@@ -0,0 +1,42 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import java.time.Duration;
+
+/**
+ * Settings of the background price refresher. Prices are fetched every interval, shifted by a random
+ * amount of up to jitter in either direction so that several servers do not hit CoinAPI together.
+ * A request that finds the prices outdated waits at most maxWait for the refresh in flight and is
+ * served the last known prices after that.
+ */
+public record PriceRefreshConfig(Duration interval, Duration jitter, Duration maxWait) {
+
+    private static final long DEFAULT_INTERVAL_SECONDS = 1500;
+    private static final long DEFAULT_JITTER_SECONDS = 60;
+    private static final long DEFAULT_MAX_WAIT_MILLIS = 250;
+
+    public PriceRefreshConfig {
+        if (interval.isNegative() || interval.isZero() || jitter.isNegative() || jitter.compareTo(interval) >= 0) {
+            throw new IllegalArgumentException("Refresh interval must be positive and larger than its jitter");
+        }
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("Refresh wait timeout must not be negative");
+        }
+    }
+
+    public static PriceRefreshConfig of(long intervalSeconds, long jitterSeconds, long maxWaitMillis) {
+        return new PriceRefreshConfig(Duration.ofSeconds(intervalSeconds), Duration.ofSeconds(jitterSeconds),
+                Duration.ofMillis(maxWaitMillis));
+    }
+
+    public static long defaultIntervalSeconds() {
+        return DEFAULT_INTERVAL_SECONDS;
+    }
+
+    public static long defaultJitterSeconds() {
+        return DEFAULT_JITTER_SECONDS;
+    }
+
+    public static long defaultMaxWaitMillis() {
+        return DEFAULT_MAX_WAIT_MILLIS;
+    }
+}
@@ -0,0 +1,185 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.Cryptocurrencies;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.DataSaver;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.Log;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Owns the current price snapshot. Readers always get the snapshot without waiting for CoinAPI:
+ * when it is outdated a single asynchronous refresh is started, shared by every reader that
+ * notices the outdated prices, and each of them waits for it at most the configured timeout before
+ * falling back to the last snapshot. A failed refresh keeps the last snapshot, marked stale. The
+ * scheduler thread only starts refreshes and never waits for them.
+ * Without a configuration there is no background thread and the first reader to notice outdated
+ * prices fetches them while the others wait for its result.
+ */
+public class PriceRefresher implements AutoCloseable {
+
+    private final Log log = new Log();
+    private final DataSaver infoSaver;
+    private final PriceRefreshConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final SingleFlight<PriceSnapshot> fetches;
+    private volatile PriceSnapshot snapshot;
+
+    public PriceRefresher(DataSaver infoSaver, PriceSnapshot initial) {
+        this(infoSaver, initial, null);
+    }
+
+    public PriceRefresher(DataSaver infoSaver, PriceSnapshot initial, PriceRefreshConfig config) {
+        this.infoSaver = infoSaver;
+        this.config = config;
+        this.snapshot = initial;
+        this.fetches = new SingleFlight<>();
+        if (config == null) {
+            this.scheduler = null;
+        } else {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "price-refresher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduleNext(firstDelay(initial));
+        }
+    }
+
+    public PriceSnapshot current() {
+        return snapshot;
+    }
+
+    public void update(PriceSnapshot newSnapshot) {
+        this.snapshot = newSnapshot;
+    }
+
+    /**
+     * Returns the current snapshot, first joining a refresh if it is outdated. The returned snapshot
+     * is still the outdated one if the refresh fails or does not finish within the wait timeout.
+     */
+    public PriceSnapshot revalidateIfStale() {
+        PriceSnapshot current = snapshot;
+        if (!infoSaver.checkCryptocurrenciesForUpdate(current.cryptocurrencies())) {
+            return current;
+        }
+
+        return await(refresh(), current);
+    }
+
+    /**
+     * Starts a refresh unless one is already in flight and returns the future of the refresh in flight.
+     */
+    public CompletableFuture<PriceSnapshot> refresh() {
+        if (config == null) {
+            return fetches.run(this::fetch, Runnable::run);
+        }
+
+        return fetches.runAsync(() -> infoSaver.getCryptocurrenciesFromApiAsync()
+                .thenApply(this::publish)
+                .whenComplete((published, e) -> {
+                    if (e != null) {
+                        markStale();
+                        log.saveServerError("Error occurred: Failed to refresh prices - " + e.getMessage());
+                    }
+                }));
+    }
+
+    public boolean isRefreshing() {
+        return fetches.isInFlight();
+    }
+
+    /**
+     * Number of refreshes that actually called CoinAPI.
+     */
+    public long issuedRefreshes() {
+        return fetches.issuedCount();
+    }
+
+    /**
+     * Number of refresh requests served by joining a refresh already in flight.
+     */
+    public long coalescedRefreshes() {
+        return fetches.coalescedCount();
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private PriceSnapshot fetch() {
+        try {
+            return publish(infoSaver.getCryptocurrenciesFromApi());
+        } catch (RuntimeException e) {
+            markStale();
+            log.saveServerException(e);
+            throw e;
+        }
+    }
+
+    private void markStale() {
+        snapshot = snapshot.markedStale();
+    }
+
+    private PriceSnapshot publish(Cryptocurrencies fetched) {
+        if (fetched == null) {
+            throw new IllegalStateException("CoinAPI returned no cryptocurrencies");
+        }
+
+        PriceSnapshot fetchedSnapshot = PriceSnapshot.of(fetched);
+        snapshot = fetchedSnapshot;
+        return fetchedSnapshot;
+    }
+
+    private PriceSnapshot await(CompletableFuture<PriceSnapshot> refresh, PriceSnapshot fallback) {
+        try {
+            if (config == null) {
+                return refresh.get();
+            }
+            return refresh.get(config.maxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            return snapshot;
+        } catch (TimeoutException e) {
+            return fallback;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        }
+    }
+
+    private void scheduleNext(Duration delay) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+
+        scheduler.schedule(() -> {
+            refresh();
+            scheduleNext(jittered(config.interval()));
+        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private Duration firstDelay(PriceSnapshot initial) {
+        Duration age = initial == null ? null : initial.age();
+        if (age == null || age.compareTo(config.interval()) >= 0) {
+            return Duration.ZERO;
+        }
+
+        return jittered(config.interval().minus(age));
+    }
+
+    private Duration jittered(Duration delay) {
+        long jitterMillis = config.jitter().toMillis();
+        long offset = jitterMillis == 0 ? 0 : ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1);
+
+        return Duration.ofMillis(Math.max(0, delay.toMillis() + offset));
+    }
+}
@@ -0,0 +1,71 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.Cryptocurrencies;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable view of one price refresh: the offerings as received and an index of them by asset ID.
+ * A new snapshot is built only when prices are refreshed, so lookups never scan the offerings.
+ */
+public record PriceSnapshot(Cryptocurrencies cryptocurrencies, Map<String, CryptoInformation> assetsByID,
+                            LocalDateTime updatedAt, boolean isStale) {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public static PriceSnapshot of(Cryptocurrencies cryptocurrencies) {
+        if (cryptocurrencies == null || cryptocurrencies.cryptocurrencies() == null) {
+            return new PriceSnapshot(cryptocurrencies, Map.of(), updatedAt(cryptocurrencies), false);
+        }
+
+        Map<String, CryptoInformation> assetsByID = new HashMap<>();
+        for (CryptoInformation info : cryptocurrencies.cryptocurrencies()) {
+            if (info.assetID() != null) {
+                assetsByID.putIfAbsent(info.assetID(), info);
+            }
+        }
+
+        return new PriceSnapshot(cryptocurrencies, Map.copyOf(assetsByID), updatedAt(cryptocurrencies), false);
+    }
+
+    /**
+     * Returns the same prices marked as kept only because refreshing them failed.
+     */
+    public PriceSnapshot markedStale() {
+        return isStale ? this : new PriceSnapshot(cryptocurrencies, assetsByID, updatedAt, true);
+    }
+
+    public CryptoInformation get(String assetID) {
+        return assetsByID.get(assetID);
+    }
+
+    /**
+     * Time passed since the prices were fetched, or null when the snapshot carries no valid timestamp.
+     */
+    public Duration age() {
+        if (updatedAt == null) {
+            return null;
+        }
+
+        Duration age = Duration.between(updatedAt, LocalDateTime.now());
+        return age.isNegative() ? Duration.ZERO : age;
+    }
+
+    private static LocalDateTime updatedAt(Cryptocurrencies cryptocurrencies) {
+        if (cryptocurrencies == null || cryptocurrencies.lastUpdateOfInformation() == null) {
+            return null;
+        }
+
+        try {
+            return LocalDateTime.parse(cryptocurrencies.lastUpdateOfInformation(), TIME_FORMATTER);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
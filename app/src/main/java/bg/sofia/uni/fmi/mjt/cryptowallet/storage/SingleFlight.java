@@ -0,0 +1,75 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one call at a time. A caller arriving while a call is in flight gets the future of
+ * that call instead of starting another one, so concurrent callers share a single result.
+ */
+public class SingleFlight<T> {
+
+    private final AtomicReference<CompletableFuture<T>> inFlight;
+    private final LongAdder issuedCount;
+    private final LongAdder coalescedCount;
+
+    public SingleFlight() {
+        this.inFlight = new AtomicReference<>();
+        this.issuedCount = new LongAdder();
+        this.coalescedCount = new LongAdder();
+    }
+
+    /**
+     * Starts the call on the executor unless one is already running and returns the future of the
+     * call in flight. The future completes exceptionally if the call throws or the executor rejects it.
+     */
+    public CompletableFuture<T> run(Supplier<T> call, Executor executor) {
+        return runAsync(() -> CompletableFuture.supplyAsync(call, executor));
+    }
+
+    /**
+     * Starts an asynchronous call unless one is already running and returns the future of the call
+     * in flight. The call only has to start the work; the flight ends when its future completes.
+     */
+    public CompletableFuture<T> runAsync(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> flight = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.compareAndExchange(null, flight);
+        if (existing != null) {
+            coalescedCount.increment();
+            return existing;
+        }
+
+        issuedCount.increment();
+        CompletableFuture<T> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((result, e) -> {
+            inFlight.compareAndSet(flight, null);
+            if (e == null) {
+                flight.complete(result);
+            } else {
+                flight.completeExceptionally(e);
+            }
+        });
+
+        return flight;
+    }
+
+    public boolean isInFlight() {
+        return inFlight.get() != null;
+    }
+
+    public long issuedCount() {
+        return issuedCount.sum();
+    }
+
+    public long coalescedCount() {
+        return coalescedCount.sum();
+    }
+}
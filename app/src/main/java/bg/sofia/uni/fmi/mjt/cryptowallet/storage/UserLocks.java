@@ -0,0 +1,51 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks striped by username. Operations on the same user always take the same
+ * lock and run one at a time, while users on different stripes proceed in parallel.
+ */
+public class UserLocks {
+
+    private static final int DEFAULT_STRIPES_COUNT = 64;
+    private final Lock[] stripes;
+
+    public UserLocks() {
+        this(DEFAULT_STRIPES_COUNT);
+    }
+
+    public UserLocks(int stripesCount) {
+        if (stripesCount <= 0) {
+            throw new IllegalArgumentException("Stripes count must be positive");
+        }
+
+        int size = Integer.highestOneBit(stripesCount);
+        if (size < stripesCount) {
+            size <<= 1;
+        }
+        this.stripes = new Lock[size];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock forUser(String username) {
+        int hash = username.hashCode();
+        hash ^= hash >>> Short.SIZE;
+
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    /**
+     * Takes and releases every stripe in turn, so every operation that held a lock when the call
+     * started has finished when it returns.
+     */
+    public void awaitHolders() {
+        for (Lock stripe : stripes) {
+            stripe.lock();
+            stripe.unlock();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.Log;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.UserFiles;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.MetricsRegistry;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The registered users. An on-disk store keeps every user in UserFiles and only the usernames in memory;
+ * a User is read on first use and pinned while a session needs it. Once more than maxResidentUsers
+ * are on the heap, the least recently used users that are not pinned are dropped. Only users marked
+ * dirty since they were last saved are written: by a background flusher every flushInterval, before
+ * they are dropped, and on writeBack. Reading, writing and evicting a user happen under its lock from
+ * UserLocks, so a user is never read from disk while a newer copy of it is on the heap. An in-memory
+ * store keeps every user on the heap and writes nothing.
+ */
+public class UserStore {
+
+    private static final int ACCESS_ORDER_CAPACITY = 16;
+    private static final float ACCESS_ORDER_LOAD_FACTOR = 0.75f;
+    private static final long FLUSHER_STOP_TIMEOUT_SECONDS = 10;
+    private final Log log = new Log();
+    private final UserFiles files;
+    private final UserLocks userLocks;
+    private final int maxResidentUsers;
+    private final Set<String> usernames;
+    private final Map<String, User> resident;
+    private final Map<String, Integer> pins;
+    private final Map<String, User> dirty;
+    private ScheduledExecutorService flusher;
+
+    private UserStore(UserFiles files, UserLocks userLocks, int maxResidentUsers, Set<String> usernames) {
+        this.files = files;
+        this.userLocks = userLocks;
+        this.maxResidentUsers = maxResidentUsers;
+        this.usernames = usernames;
+        this.resident = new LinkedHashMap<>(ACCESS_ORDER_CAPACITY, ACCESS_ORDER_LOAD_FACTOR, true);
+        this.pins = new HashMap<>();
+        this.dirty = new ConcurrentHashMap<>();
+    }
+
+    public static UserStore inMemory(UserLocks userLocks) {
+        return new UserStore(null, userLocks, Integer.MAX_VALUE, ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * Opens the store under the configured directory, listing the usernames saved there.
+     */
+    public static UserStore open(UserStoreConfig config, UserLocks userLocks) throws IOException {
+        UserFiles files = new UserFiles(config.directory());
+        Set<String> usernames = ConcurrentHashMap.newKeySet();
+        usernames.addAll(files.usernames());
+        UserStore store = new UserStore(files, userLocks, config.maxResidentUsers(), usernames);
+        store.startFlusher(config.flushInterval());
+
+        MetricsRegistry metrics = MetricsRegistry.global();
+        metrics.gauge("wallet_registered_users", "Users registered on the server", usernames::size);
+        metrics.gauge("wallet_resident_users", "Users currently kept on the heap", store::residentCount);
+        metrics.gauge("wallet_dirty_users", "Users changed since they were last saved", store::dirtyCount);
+        return store;
+    }
+
+    private void startFlusher(Duration flushInterval) {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-store-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushDirtyUsers, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushDirtyUsers() {
+        try {
+            writeBack();
+        } catch (IOException e) {
+            log.saveServerException(e);
+        }
+    }
+
+    public boolean isOnDisk() {
+        return files != null;
+    }
+
+    public boolean isEmpty() {
+        return usernames.isEmpty();
+    }
+
+    public synchronized int residentCount() {
+        return resident.size();
+    }
+
+    public synchronized List<User> residentUsers() {
+        return new ArrayList<>(resident.values());
+    }
+
+    public int dirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Adds a newly registered user unless its username is taken and marks it dirty. Must be called
+     * under the user's lock.
+     */
+    public boolean add(User user) {
+        if (!usernames.add(user.username())) {
+            return false;
+        }
+
+        synchronized (this) {
+            resident.put(user.username(), user);
+        }
+        markDirty(user);
+        return true;
+    }
+
+    /**
+     * Forgets a user whose registration was undone, deleting it from disk in case it was already saved.
+     * Must be called under the user's lock.
+     */
+    public void remove(User user) throws IOException {
+        dirty.remove(user.username(), user);
+        synchronized (this) {
+            resident.remove(user.username(), user);
+        }
+        if (files != null) {
+            files.delete(user.username());
+        }
+        usernames.remove(user.username());
+    }
+
+    /**
+     * Adds users saved in another format. An on-disk store writes them without keeping them resident.
+     */
+    public void importUsers(Collection<User> users) throws IOException {
+        for (User user : users) {
+            if (files == null) {
+                add(user);
+            } else if (usernames.add(user.username())) {
+                files.write(user);
+            }
+        }
+    }
+
+    /**
+     * Returns the user, reading it from disk when it is not resident, or null for an unknown username.
+     * Must be called under the user's lock.
+     */
+    public User get(String username) throws IOException {
+        synchronized (this) {
+            User user = resident.get(username);
+            if (user != null || files == null) {
+                return user;
+            }
+        }
+        if (!usernames.contains(username)) {
+            return null;
+        }
+
+        User user = files.read(username);
+        if (user != null) {
+            synchronized (this) {
+                resident.put(username, user);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Returns the user like get and keeps it resident until every pin of it is released.
+     */
+    public User pin(String username) throws IOException {
+        User user = get(username);
+        if (user != null) {
+            synchronized (this) {
+                pins.merge(username, 1, Integer::sum);
+            }
+        }
+
+        return user;
+    }
+
+    public synchronized void unpin(String username) {
+        pins.computeIfPresent(username, (name, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Records that the user changed since it was last saved. Must be called under the user's lock.
+     */
+    public void markDirty(User user) {
+        if (files != null) {
+            dirty.put(user.username(), user);
+        }
+    }
+
+    /**
+     * Saves the user to disk if it is dirty. Must be called under the user's lock.
+     */
+    public void write(User user) throws IOException {
+        if (files == null || !dirty.remove(user.username(), user)) {
+            return;
+        }
+
+        try {
+            files.write(user);
+        } catch (IOException e) {
+            dirty.putIfAbsent(user.username(), user);
+            throw e;
+        }
+    }
+
+    /**
+     * Saves every dirty user, each under its lock.
+     */
+    public void writeBack() throws IOException {
+        for (User user : List.copyOf(dirty.values())) {
+            Lock lock = userLocks.forUser(user.username());
+            lock.lock();
+            try {
+                write(user);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Saves every user changed by an operation that started before the call. Waiting for the lock
+     * holders first makes the changes they are publishing dirty, and waiting again after the write back
+     * lets writes started by other threads, such as the flusher or an eviction, finish.
+     */
+    public void writeBackSettled() throws IOException {
+        userLocks.awaitHolders();
+        writeBack();
+        userLocks.awaitHolders();
+    }
+
+    /**
+     * Stops the background flusher and saves every dirty user.
+     */
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(FLUSHER_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writeBack();
+    }
+
+    /**
+     * Saves if dirty and drops the least recently used users that are not pinned, until at most
+     * maxResidentUsers remain. Users whose lock is held elsewhere are skipped rather than waited for.
+     */
+    public void evictIfNeeded() {
+        if (files == null) {
+            return;
+        }
+
+        Set<String> skipped = new HashSet<>();
+        User victim = nextVictim(skipped);
+        while (victim != null) {
+            Lock lock = userLocks.forUser(victim.username());
+            if (lock.tryLock()) {
+                try {
+                    evict(victim);
+                } catch (IOException e) {
+                    log.saveServerException(e);
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            skipped.add(victim.username());
+            victim = nextVictim(skipped);
+        }
+    }
+
+    private void evict(User victim) throws IOException {
+        synchronized (this) {
+            if (resident.get(victim.username()) != victim || pins.containsKey(victim.username())) {
+                return;
+            }
+        }
+
+        write(victim);
+        synchronized (this) {
+            resident.remove(victim.username(), victim);
+        }
+    }
+
+    private synchronized User nextVictim(Set<String> skipped) {
+        if (resident.size() <= maxResidentUsers) {
+            return null;
+        }
+
+        for (Map.Entry<String, User> entry : resident.entrySet()) {
+            if (!pins.containsKey(entry.getKey()) && !skipped.contains(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of the on-disk user store. Users are saved one file each under directory, and at most
+ * maxResidentUsers of them are kept on the heap unless more are logged in. Users changed since they
+ * were last saved are written every flushInterval, which bounds the changes a crash can lose.
+ */
+public record UserStoreConfig(Path directory, int maxResidentUsers, Duration flushInterval) {
+
+    private static final int DEFAULT_MAX_RESIDENT_USERS = 10000;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    public UserStoreConfig {
+        if (maxResidentUsers <= 0) {
+            throw new IllegalArgumentException("Resident users count must be positive");
+        }
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+    }
+
+    public static UserStoreConfig of(Path directory) {
+        return new UserStoreConfig(directory, DEFAULT_MAX_RESIDENT_USERS,
+                Duration.ofMillis(DEFAULT_FLUSH_INTERVAL_MILLIS));
+    }
+
+    public static int defaultMaxResidentUsers() {
+        return DEFAULT_MAX_RESIDENT_USERS;
+    }
+
+    public static long defaultFlushIntervalMillis() {
+        return DEFAULT_FLUSH_INTERVAL_MILLIS;
+    }
+}
@@ -0,0 +1,86 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.user;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable state of a user's wallet. Every change produces a new Portfolio; version is the
+ * journal sequence of the last event applied to it, or 0 when it isn't journaled.
+ */
+public record Portfolio(double money, Set<BoughtCryptocurrency> boughtCryptocurrencies,
+                        Set<SoldCryptocurrency> soldCryptocurrencies, long version) {
+
+    private static final double INITIAL_MONEY = 0.0;
+
+    public Portfolio {
+        boughtCryptocurrencies = Collections.unmodifiableSet(new HashSet<>(boughtCryptocurrencies));
+        soldCryptocurrencies = Collections.unmodifiableSet(new HashSet<>(soldCryptocurrencies));
+    }
+
+    public Portfolio(double money, Set<BoughtCryptocurrency> boughtCryptocurrencies,
+                     Set<SoldCryptocurrency> soldCryptocurrencies) {
+        this(money, boughtCryptocurrencies, soldCryptocurrencies, 0);
+    }
+
+    public static Portfolio empty() {
+        return new Portfolio(INITIAL_MONEY, Set.of(), Set.of());
+    }
+
+    public Portfolio withMoney(double newMoney) {
+        return new Portfolio(newMoney, boughtCryptocurrencies, soldCryptocurrencies, version);
+    }
+
+    public Portfolio withVersion(long newVersion) {
+        return new Portfolio(money, boughtCryptocurrencies, soldCryptocurrencies, newVersion);
+    }
+
+    public Portfolio deposit(double amount) {
+        return withMoney(money + amount);
+    }
+
+    public Portfolio buy(BoughtCryptocurrency boughtCrypto) {
+        Set<BoughtCryptocurrency> bought = new HashSet<>(boughtCryptocurrencies);
+        BoughtCryptocurrency crypto = boughtCrypto;
+        while (bought.contains(crypto)) {
+            bought.remove(crypto);
+            crypto = new BoughtCryptocurrency(crypto.boughtCrypto(), crypto.buyingPrice() * 2,
+                    crypto.buyingCount() * 2);
+        }
+        bought.add(crypto);
+
+        return new Portfolio(money - boughtCrypto.buyingPrice(), bought, soldCryptocurrencies, version);
+    }
+
+    /**
+     * Returns what selling every held unit of the asset at its given price would yield,
+     * or null when nothing of it is held.
+     */
+    public SoldCryptocurrency sellingOf(CryptoInformation info) {
+        double countBoughtCrypto = INITIAL_MONEY;
+        double givenMoneyBoughtCrypto = INITIAL_MONEY;
+        for (BoughtCryptocurrency boughtCryptocurrency : boughtCryptocurrencies) {
+            if (boughtCryptocurrency.boughtCrypto().assetID().equals(info.assetID())) {
+                countBoughtCrypto += boughtCryptocurrency.buyingCount();
+                givenMoneyBoughtCrypto += boughtCryptocurrency.buyingPrice();
+            }
+        }
+        if (countBoughtCrypto == INITIAL_MONEY) {
+            return null;
+        }
+
+        double sumToEarn = countBoughtCrypto * info.price();
+        return new SoldCryptocurrency(info, sumToEarn, sumToEarn - givenMoneyBoughtCrypto);
+    }
+
+    public Portfolio sell(SoldCryptocurrency soldCrypto) {
+        Set<BoughtCryptocurrency> bought = new HashSet<>(boughtCryptocurrencies);
+        bought.removeIf(crypto -> crypto.boughtCrypto().assetID().equals(soldCrypto.soldCrypto().assetID()));
+        Set<SoldCryptocurrency> sold = new HashSet<>(soldCryptocurrencies);
+        sold.add(soldCrypto);
+
+        return new Portfolio(money + soldCrypto.sellingPrice(), bought, sold, version);
+    }
+}
@@ -1,26 +1,20 @@
 package bg.sofia.uni.fmi.mjt.cryptowallet.user;
 
-import com.google.gson.annotations.SerializedName;
+import com.google.gson.annotations.JsonAdapter;
 
-import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
+@JsonAdapter(UserJsonAdapter.class)
 public class User {
-    private static final double INITIAL_MONEY = 0.0;
     private final String username;
-    @SerializedName("password")
     private final String hashedPassword;
-    private double money;
-    private final Set<BoughtCryptocurrency> boughtCryptocurrencies;
-    private final Set<SoldCryptocurrency> soldCryptocurrencies;
+    private volatile Portfolio portfolio;
 
     public User(String username, String hashedPassword) {
         this.username = username;
         this.hashedPassword = hashedPassword;
-        this.money = INITIAL_MONEY;
-        boughtCryptocurrencies = new HashSet<>();
-        soldCryptocurrencies = new HashSet<>();
+        this.portfolio = Portfolio.empty();
     }
 
     public String username() {
@@ -31,20 +25,28 @@ public class User {
         return hashedPassword;
     }
 
+    public Portfolio portfolio() {
+        return portfolio;
+    }
+
+    public void setPortfolio(Portfolio portfolio) {
+        this.portfolio = portfolio;
+    }
+
     public double money() {
-        return money;
+        return portfolio.money();
     }
 
     public void setMoney(double money) {
-        this.money = money;
+        this.portfolio = portfolio.withMoney(money);
     }
 
     public Set<BoughtCryptocurrency> boughtCryptocurrencies() {
-        return boughtCryptocurrencies;
+        return portfolio.boughtCryptocurrencies();
     }
 
     public Set<SoldCryptocurrency> soldCryptocurrencies() {
-        return soldCryptocurrencies;
+        return portfolio.soldCryptocurrencies();
     }
 
     @Override
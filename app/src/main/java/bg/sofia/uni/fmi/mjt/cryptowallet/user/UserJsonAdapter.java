@@ -0,0 +1,55 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.user;
+
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.Set;
+
+/**
+ * Keeps the flat users file format (username, password, money and both holdings sets) while
+ * the portfolio of a User lives in a single immutable object.
+ */
+public class UserJsonAdapter implements JsonSerializer<User>, JsonDeserializer<User> {
+
+    private static final String USERNAME = "username";
+    private static final String PASSWORD = "password";
+    private static final String MONEY = "money";
+    private static final String BOUGHT = "boughtCryptocurrencies";
+    private static final String SOLD = "soldCryptocurrencies";
+    private static final Type BOUGHT_TYPE = new TypeToken<Set<BoughtCryptocurrency>>() { }.getType();
+    private static final Type SOLD_TYPE = new TypeToken<Set<SoldCryptocurrency>>() { }.getType();
+
+    @Override
+    public JsonElement serialize(User user, Type type, JsonSerializationContext context) {
+        Portfolio portfolio = user.portfolio();
+        JsonObject json = new JsonObject();
+        json.addProperty(USERNAME, user.username());
+        json.addProperty(PASSWORD, user.hashedPassword());
+        json.addProperty(MONEY, portfolio.money());
+        json.add(BOUGHT, context.serialize(portfolio.boughtCryptocurrencies(), BOUGHT_TYPE));
+        json.add(SOLD, context.serialize(portfolio.soldCryptocurrencies(), SOLD_TYPE));
+
+        return json;
+    }
+
+    @Override
+    public User deserialize(JsonElement element, Type type, JsonDeserializationContext context)
+            throws JsonParseException {
+        JsonObject json = element.getAsJsonObject();
+        User user = new User(json.get(USERNAME).getAsString(), json.get(PASSWORD).getAsString());
+
+        double money = json.has(MONEY) ? json.get(MONEY).getAsDouble() : 0;
+        Set<BoughtCryptocurrency> bought = context.deserialize(json.get(BOUGHT), BOUGHT_TYPE);
+        Set<SoldCryptocurrency> sold = context.deserialize(json.get(SOLD), SOLD_TYPE);
+        user.setPortfolio(new Portfolio(money, bought == null ? Set.of() : bought, sold == null ? Set.of() : sold));
+
+        return user;
+    }
+}
@@ -0,0 +1,131 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.Command;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CryptoServerTest {
+
+    private static final int REACTORS_COUNT = 2;
+    private static final int WORKERS_COUNT = 4;
+    private static final long SPLIT_WRITE_PAUSE_MILLIS = 100;
+    private static final int LARGE_ARGUMENT_LENGTH = 9000;
+    private static final int LARGE_RESPONSES_COUNT = 500;
+    private RunningCryptoServer server;
+
+    @Mock
+    private CommandExecutor commandExecutor;
+
+    @BeforeEach
+    void setUp() throws IOException, InterruptedException {
+        when(commandExecutor.execute(any(Command.class), any())).thenAnswer(invocation -> {
+            Command cmd = invocation.getArgument(0);
+            return cmd.type().name() + " " + String.join(" ", cmd.arguments());
+        });
+
+        server = RunningCryptoServer.start(commandExecutor, REACTORS_COUNT, WORKERS_COUNT);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.stop();
+    }
+
+    @Test
+    void testPipelinedCommandsAreAnsweredInOrder() throws IOException, InterruptedException {
+        try (Socket socket = server.connect()) {
+            OutputStream output = socket.getOutputStream();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+            StringBuilder pipelined = new StringBuilder();
+            for (int i = 0; i < 100; i++) {
+                pipelined.append("sell C").append(i).append("\n");
+            }
+            output.write(pipelined.toString().getBytes(StandardCharsets.UTF_8));
+            output.flush();
+
+            for (int i = 0; i < 100; i++) {
+                assertEquals("sell C" + i, reader.readLine(),
+                        "Error: pipelined commands must be answered one by one and in order");
+            }
+        }
+    }
+
+    @Test
+    void testCommandSplitAcrossWrites() throws IOException, InterruptedException {
+        try (Socket socket = server.connect()) {
+            socket.setTcpNoDelay(true);
+            OutputStream output = socket.getOutputStream();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+            output.write("deposit_mo".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            Thread.sleep(SPLIT_WRITE_PAUSE_MILLIS);
+            output.write("ney 1500\r\nlogin user pass\n".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+
+            assertEquals("deposit_money 1500", reader.readLine(),
+                    "Error: command split across two reads must be framed as a single command");
+            assertEquals("login user pass", reader.readLine(),
+                    "Error: unexpected response for the command following a split one");
+        }
+    }
+
+    @Test
+    void testInvalidCommandDoesNotBreakPipeline() throws IOException, InterruptedException {
+        try (Socket socket = server.connect()) {
+            OutputStream output = socket.getOutputStream();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+            output.write("view crypto\nsell BTC\n".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+
+            assertEquals("This request is invalid, please check help menu!", reader.readLine(),
+                    "Error: invalid command must be answered with invalid request");
+            assertEquals("sell BTC", reader.readLine(),
+                    "Error: commands after an invalid one must still be executed");
+        }
+    }
+
+    @Test
+    void testResponseLargerThanSocketBufferIsFullyDelivered() throws IOException, InterruptedException {
+        try (Socket socket = server.connect()) {
+            OutputStream output = socket.getOutputStream();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+            String longArgument = "A".repeat(LARGE_ARGUMENT_LENGTH);
+            StringBuilder pipelined = new StringBuilder();
+            for (int i = 0; i < LARGE_RESPONSES_COUNT; i++) {
+                pipelined.append("sell ").append(longArgument).append("\n");
+            }
+            output.write(pipelined.toString().getBytes(StandardCharsets.UTF_8));
+            output.flush();
+
+            for (int i = 0; i < LARGE_RESPONSES_COUNT; i++) {
+                assertEquals("sell " + longArgument, reader.readLine(),
+                        "Error: responses that don't fit in the socket buffer must be delivered completely");
+            }
+        }
+    }
+}
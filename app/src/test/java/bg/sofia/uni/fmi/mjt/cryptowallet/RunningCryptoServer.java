@@ -0,0 +1,67 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandExecutor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * A CryptoServer on a free local port, running on a thread of its own, for tests that talk to it
+ * over TCP. It is accepting connections once start returns; the probe connection used to find out
+ * is closed at once, so the server also ends a session for it.
+ */
+public final class RunningCryptoServer {
+
+    private static final int CONNECT_ATTEMPTS = 50;
+    private static final long CONNECT_RETRY_MILLIS = 100;
+    private final CryptoServer server;
+    private final Thread serverThread;
+    private final InetSocketAddress address;
+
+    private RunningCryptoServer(CryptoServer server, Thread serverThread, InetSocketAddress address) {
+        this.server = server;
+        this.serverThread = serverThread;
+        this.address = address;
+    }
+
+    public static RunningCryptoServer start(CommandExecutor commandExecutor, int reactorsCount, int workersCount)
+            throws IOException, InterruptedException {
+        InetSocketAddress address;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            address = new InetSocketAddress("localhost", socket.getLocalPort());
+        }
+
+        CryptoServer server = new CryptoServer(address.getPort(), commandExecutor, reactorsCount, workersCount);
+        Thread serverThread = new Thread(server::start);
+        serverThread.start();
+        RunningCryptoServer running = new RunningCryptoServer(server, serverThread, address);
+        running.awaitAccepting();
+        return running;
+    }
+
+    private void awaitAccepting() throws InterruptedException {
+        for (int i = 0; i < CONNECT_ATTEMPTS; i++) {
+            try {
+                connect().close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            }
+        }
+    }
+
+    public InetSocketAddress address() {
+        return address;
+    }
+
+    public Socket connect() throws IOException {
+        return new Socket(address.getHostString(), address.getPort());
+    }
+
+    public void stop() throws InterruptedException {
+        server.stop();
+        serverThread.join();
+    }
+}
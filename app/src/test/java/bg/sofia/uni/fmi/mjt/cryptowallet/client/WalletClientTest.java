@@ -0,0 +1,124 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.client;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.RunningCryptoServer;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.Command;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WalletClientTest {
+
+    private static final long REPLY_TIMEOUT_SECONDS = 10;
+    private static final String DISCONNECT = "User saved and disconnected successfully";
+    private RunningCryptoServer server;
+    private InetSocketAddress address;
+
+    @Mock
+    private CommandExecutor commandExecutor;
+
+    @BeforeEach
+    void setUp() throws IOException, InterruptedException {
+        when(commandExecutor.execute(any(Command.class), any())).thenAnswer(invocation -> {
+            Command cmd = invocation.getArgument(0);
+            if (cmd.type() == CommandType.disconnect) {
+                return DISCONNECT;
+            }
+            return cmd.type().name() + " " + String.join(" ", cmd.arguments());
+        });
+
+        server = RunningCryptoServer.start(commandExecutor, 1, 4);
+        address = server.address();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.stop();
+    }
+
+    private static String await(CompletableFuture<String> reply) {
+        return reply.orTimeout(REPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS).join();
+    }
+
+    @Test
+    void testPipelinedRepliesAreMatchedInOrder() throws IOException {
+        try (WalletClient client = WalletClient.connect(address)) {
+            List<CompletableFuture<String>> replies = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                replies.add(client.sell("asset" + i));
+            }
+
+            for (int i = 0; i < replies.size(); i++) {
+                assertEquals("sell asset" + i, await(replies.get(i)),
+                        "Error: a reply was matched to the wrong command");
+            }
+            assertEquals(0, client.inFlightCount(), "Error: every command was expected to be answered");
+        }
+    }
+
+    @Test
+    void testTypedCommandsAreSentAsCommandLines() throws IOException {
+        try (WalletClient client = WalletClient.connect(address)) {
+            assertEquals("register user pass", await(client.register("user", "pass")),
+                    "Error: unexpected register command");
+            assertEquals("deposit_money 250.5", await(client.depositMoney(250.5)), "Error: unexpected deposit command");
+            assertEquals("buy BTC 1.0E10", await(client.buy("BTC", 1e10)), "Error: unexpected buy command");
+            assertEquals("get_wallet_overall_summary ", await(client.getWalletOverallSummary()),
+                    "Error: unexpected summary command");
+            assertThrows(IllegalArgumentException.class, () -> client.sell("two words"),
+                    "Error: arguments with whitespace would be split by the server");
+        }
+    }
+
+    @Test
+    void testCommandsFailOnceTheServerClosesTheConnection() throws IOException {
+        try (WalletClient client = WalletClient.connect(address)) {
+            assertEquals(DISCONNECT, await(client.disconnect()), "Error: unexpected disconnect reply");
+
+            CompletionException failure = assertThrows(CompletionException.class,
+                    () -> await(client.getWalletSummary()), "Error: the closed connection should fail the command");
+            assertTrue(failure.getCause() instanceof IOException, "Error: unexpected failure " + failure.getCause());
+            assertFalse(client.isOpen(), "Error: the client should be closed with the connection");
+        }
+    }
+
+    @Test
+    void testPoolSpreadsCommandsOverItsConnections() throws IOException {
+        try (WalletClientPool pool = WalletClientPool.connect(address, 4)) {
+            Set<WalletClient> used = new HashSet<>();
+            List<CompletableFuture<String>> replies = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                WalletClient client = pool.next();
+                used.add(client);
+                replies.add(client.sell("asset" + i));
+            }
+
+            for (int i = 0; i < replies.size(); i++) {
+                assertEquals("sell asset" + i, await(replies.get(i)), "Error: unexpected reply through the pool");
+            }
+            assertEquals(4, used.size(), "Error: commands were expected to be spread over every connection");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.coinapi;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.BadRequestToRestApiException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.CircuitOpenException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.TooManyRequestsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CircuitBreakerTest {
+
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(10);
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final List<String> transitions = new ArrayList<>();
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new CircuitBreaker(new CircuitBreakerConfig(2, BASE_BACKOFF, Duration.ofMinutes(10), 0),
+                now::get);
+        breaker.addListener(new CircuitBreaker.Listener() {
+            @Override
+            public void onStateChange(CircuitBreaker.State from, CircuitBreaker.State to, Duration openFor) {
+                transitions.add(from + "->" + to + (openFor == null ? "" : " " + openFor.toSeconds()));
+            }
+        });
+    }
+
+    private Throwable call(Exception failure) {
+        CompletableFuture<String> result = breaker.call(() -> {
+            calls.incrementAndGet();
+            now.addAndGet(Duration.ofMillis(5).toNanos());
+            return failure == null ? CompletableFuture.completedFuture("ok") : CompletableFuture.failedFuture(failure);
+        });
+
+        try {
+            result.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause();
+        }
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void testOpensAfterConsecutiveFailuresAndFailsFast() {
+        call(new BadRequestToRestApiException("down"));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "Error: one failure was not expected to open it");
+        call(new BadRequestToRestApiException("down"));
+
+        assertInstanceOf(CircuitOpenException.class, call(null), "Error: an open breaker was expected to fail fast");
+        assertEquals(2, calls.get(), "Error: an open breaker was not expected to reach CoinAPI");
+        assertEquals(1, breaker.stats().rejectedCount(), "Error: the rejected call was expected to be counted");
+    }
+
+    @Test
+    void testTrialAfterBackoffClosesOrDoublesBackoff() {
+        call(new BadRequestToRestApiException("down"));
+        call(new BadRequestToRestApiException("down"));
+        advance(BASE_BACKOFF);
+        call(new BadRequestToRestApiException("still down"));
+        advance(BASE_BACKOFF);
+
+        assertInstanceOf(CircuitOpenException.class, call(null),
+                "Error: a failed trial was expected to double the backoff");
+        advance(BASE_BACKOFF);
+        assertEquals(null, call(null), "Error: a trial after the backoff was expected to go through");
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state(),
+                "Error: a successful trial was expected to close it");
+        assertEquals(List.of("CLOSED->OPEN 10", "OPEN->HALF_OPEN", "HALF_OPEN->OPEN 20", "OPEN->HALF_OPEN",
+                "HALF_OPEN->CLOSED"), transitions, "Error: unexpected state transitions");
+    }
+
+    @Test
+    void testRateLimitOpensAtOnceForRetryAfter() {
+        call(new TooManyRequestsException("slow down", Duration.ofMinutes(2)));
+
+        assertEquals(List.of("CLOSED->OPEN 120"), transitions,
+                "Error: a rate limit was expected to open the breaker for the wait CoinAPI asked for");
+        advance(BASE_BACKOFF);
+        assertInstanceOf(CircuitOpenException.class, call(null), "Error: Retry-After was expected to be honored");
+    }
+
+    @Test
+    void testLatenciesAreRecorded() {
+        call(null);
+        call(new BadRequestToRestApiException("down"));
+
+        CircuitBreaker.Stats stats = breaker.stats();
+        assertEquals(1, stats.successCount(), "Error: unexpected number of successful calls");
+        assertEquals(1, stats.failureCount(), "Error: unexpected number of failed calls");
+        assertEquals(Duration.ofMillis(10), stats.totalLatency(), "Error: unexpected total latency");
+        assertEquals(Duration.ofMillis(5), stats.maxLatency(), "Error: unexpected max latency");
+        assertThrows(IllegalArgumentException.class,
+                () -> new CircuitBreakerConfig(0, BASE_BACKOFF, BASE_BACKOFF, 0),
+                "Error: a breaker that never closes was expected to be rejected");
+    }
+}
@@ -0,0 +1,52 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.coinapi;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CoinApiAssetsParserTest {
+
+    private static InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testParseKeepsOnlyPricedCryptocurrencies() throws IOException {
+        String body = """
+                [
+                  {"asset_id": "BTC", "name": "Bitcoin", "type_is_crypto": 1, "price_usd": 20525.45,
+                   "data_symbols_count": 1000, "chain_addresses": [{"chain_id": "x", "network_id": "y"}]},
+                  {"asset_id": "USD", "name": "US Dollar", "type_is_crypto": 0, "price_usd": 1},
+                  {"asset_id": "NOP", "name": "No price", "type_is_crypto": 1},
+                  {"asset_id": "NUL", "name": null, "type_is_crypto": 1, "price_usd": null},
+                  {"type_is_crypto": 1, "price_usd": 25.12, "name": "Ethereum", "asset_id": "ETH"}
+                ]""";
+
+        Set<CryptoInformation> expected = Set.of(new CryptoInformation("BTC", "Bitcoin", 1, 20525.45),
+                new CryptoInformation("ETH", "Ethereum", 1, 25.12));
+        assertEquals(expected, CoinApiAssetsParser.parse(json(body), 50),
+                "Error: only cryptocurrencies with a price were expected, whatever the field order");
+    }
+
+    @Test
+    void testParseStopsAtLimit() throws IOException {
+        String body = """
+                [
+                  {"asset_id": "BTC", "name": "Bitcoin", "type_is_crypto": 1, "price_usd": 20525.45},
+                  {"asset_id": "USD", "name": "US Dollar", "type_is_crypto": 0, "price_usd": 1},
+                  {"asset_id": "ETH", "name": "Ethereum", "type_is_crypto": 1, "price_usd": 25.12},
+                  {"asset_id": "broken\"""";
+
+        Set<CryptoInformation> expected = Set.of(new CryptoInformation("BTC", "Bitcoin", 1, 20525.45),
+                new CryptoInformation("ETH", "Ethereum", 1, 25.12));
+        assertEquals(expected, CoinApiAssetsParser.parse(json(body), 2),
+                "Error: reading was expected to stop once the limit was reached");
+    }
+}
@@ -0,0 +1,156 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.coinapi;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.Cryptocurrencies;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.BadRequestToRestApiException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.TooManyRequestsException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UnauthorizedException;
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CoinApiDataHttpTest {
+
+    private static final Set<CryptoInformation> ASSETS = Set.of(
+            new CryptoInformation("BTC", "Bitcoin", 1, 20525.4561),
+            new CryptoInformation("USD", "US Dollar", 0, 1),
+            new CryptoInformation("ZRO", "Zero", 1, 0));
+
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final Map<String, String> responseHeaders = new ConcurrentHashMap<>();
+    private final List<String> acceptedEncodings = new CopyOnWriteArrayList<>();
+    private final List<String> apiKeys = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private CoinApiData coinApiData;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v1/assets", this::handle);
+        server.start();
+
+        URI endpoint = URI.create("http://localhost:" + server.getAddress().getPort() + "/v1/assets");
+        HttpClient client = CoinApiData.newHttpClient();
+        coinApiData = new CoinApiData(client, endpoint, "test-key");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        acceptedEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        apiKeys.add(exchange.getRequestHeaders().getFirst("X-CoinAPI-Key"));
+
+        byte[] body = new Gson().toJson(ASSETS).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(body);
+        }
+
+        responseHeaders.forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(status.get(), gzipped.size());
+        try (OutputStream out = exchange.getResponseBody()) {
+            gzipped.writeTo(out);
+        }
+    }
+
+    @Test
+    void testGzippedResponseIsDecodedAndFiltered() throws TooManyRequestsException, UnauthorizedException,
+            BadRequestToRestApiException {
+        Cryptocurrencies first = coinApiData.getCryptocurrenciesInfoAsync().join();
+        Cryptocurrencies second = coinApiData.getCryptocurrenciesInfo();
+
+        Set<CryptoInformation> expected = Set.of(new CryptoInformation("BTC", "Bitcoin", 1, 20525.4561));
+        assertEquals(expected, first.cryptocurrencies(), "Error: only priced crypto assets were expected");
+        assertEquals(expected, second.cryptocurrencies(), "Error: the shared client was expected to be reusable");
+        assertEquals(List.of("gzip", "gzip"), acceptedEncodings, "Error: gzip was expected to be accepted");
+        assertEquals(List.of("test-key", "test-key"), apiKeys, "Error: the API key was expected to be sent");
+    }
+
+    @Test
+    void testTooManyRequestsCompletesExceptionally() {
+        status.set(CoinApiData.TOO_MANY_REQUESTS);
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> coinApiData.getCryptocurrenciesInfoAsync().join(),
+                "Error: a rate limited request was expected to fail");
+        assertInstanceOf(TooManyRequestsException.class, e.getCause(),
+                "Error: a rate limited request was expected to fail with TooManyRequestsException");
+    }
+
+    @Test
+    void testTooManyRequestsCarriesRetryAfter() {
+        status.set(CoinApiData.TOO_MANY_REQUESTS);
+        responseHeaders.put("Retry-After", "120");
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> coinApiData.getCryptocurrenciesInfoAsync().join(),
+                "Error: a rate limited request was expected to fail");
+        assertEquals(Duration.ofSeconds(120), ((TooManyRequestsException) e.getCause()).retryAfter(),
+                "Error: the wait asked by Retry-After was expected to be kept");
+    }
+
+    @Test
+    void testRetryAfterFallsBackToRateLimitReset() {
+        Instant now = Instant.parse("2023-09-05T11:00:00Z");
+        HttpHeaders reset = HttpHeaders.of(Map.of("X-RateLimit-Reset", List.of("2023-09-05T11:05:00.0000000Z")),
+                (name, value) -> true);
+        HttpHeaders date = HttpHeaders.of(Map.of("Retry-After", List.of("Tue, 05 Sep 2023 11:01:00 GMT")),
+                (name, value) -> true);
+
+        assertEquals(Duration.ofMinutes(5), CoinApiData.retryAfter(reset, now),
+                "Error: the wait was expected to last until the rate limit reset");
+        assertEquals(Duration.ofMinutes(1), CoinApiData.retryAfter(date, now),
+                "Error: a Retry-After date was expected to be supported");
+        assertNull(CoinApiData.retryAfter(HttpHeaders.of(Map.of(), (name, value) -> true), now),
+                "Error: no wait was expected without rate limit headers");
+    }
+
+    @Test
+    void testUnexpectedStatusFails() {
+        status.set(HttpURLConnection.HTTP_UNAVAILABLE);
+
+        assertThrows(BadRequestToRestApiException.class, () -> coinApiData.getCryptocurrenciesInfo(),
+                "Error: an unexpected status was expected to fail the request");
+    }
+
+    @Test
+    void testUnreachableServerIsBadRequest() {
+        server.stop(0);
+
+        assertThrows(BadRequestToRestApiException.class, () -> coinApiData.getCryptocurrenciesInfo(),
+                "Error: a failed connection was expected to be reported as a bad request");
+    }
+}
@@ -16,14 +16,23 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
@@ -39,7 +48,7 @@ public class CoinApiDataTest {
     private HttpClient httpClientMock;
 
     @Mock
-    private HttpResponse<String> httpResponseMock;
+    private HttpResponse<InputStream> httpResponseMock;
 
 
     @BeforeAll
@@ -57,10 +66,11 @@ public class CoinApiDataTest {
     @BeforeEach
     public void setUp() throws IOException, InterruptedException {
 
-        when(httpClientMock.send(Mockito.any(HttpRequest.class), ArgumentMatchers.<HttpResponse.BodyHandler<String>>any()))
-                .thenReturn(httpResponseMock);
+        when(httpClientMock.sendAsync(Mockito.any(HttpRequest.class),
+                ArgumentMatchers.<HttpResponse.BodyHandler<InputStream>>any()))
+                .thenReturn(CompletableFuture.completedFuture(httpResponseMock));
 
-        coinApiData = new CoinApiData(httpClientMock);
+        coinApiData = new CoinApiData(httpClientMock, URI.create("http://localhost/v1/assets"), "key");
     }
 
     @Test
@@ -68,7 +78,9 @@ public class CoinApiDataTest {
             BadRequestToRestApiException {
 
         when(httpResponseMock.statusCode()).thenReturn(HttpURLConnection.HTTP_OK);
-        when(httpResponseMock.body()).thenReturn(cryptocurrenciesToJson);
+        when(httpResponseMock.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+        when(httpResponseMock.body())
+                .thenReturn(new ByteArrayInputStream(cryptocurrenciesToJson.getBytes(StandardCharsets.UTF_8)));
 
         var result = coinApiData.getCryptocurrenciesInfo();
         assertTrue(result.cryptocurrencies().containsAll(cryptocurrencies.cryptocurrencies()),
@@ -77,6 +89,27 @@ public class CoinApiDataTest {
                 "Invalid cryptocurrencies were returned");
     }
 
+    @Test
+    public void testBodyIsReadOffTheCommonPool() throws TooManyRequestsException, UnauthorizedException,
+            BadRequestToRestApiException {
+
+        Set<String> readerThreads = ConcurrentHashMap.newKeySet();
+        when(httpResponseMock.statusCode()).thenReturn(HttpURLConnection.HTTP_OK);
+        when(httpResponseMock.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
+        when(httpResponseMock.body()).thenReturn(new ByteArrayInputStream(
+                cryptocurrenciesToJson.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] bytes, int offset, int length) {
+                readerThreads.add(Thread.currentThread().getName());
+                return super.read(bytes, offset, length);
+            }
+        });
+
+        coinApiData.getCryptocurrenciesInfo();
+        assertEquals(Set.of("coinapi-body-reader"), readerThreads,
+                "Error: the body was expected to be read on the CoinAPI body readers");
+    }
+
     @Test
     public void testGetCryptocurrenciesInfoInvalidRequests() {
         when(httpResponseMock.statusCode()).thenReturn(HttpURLConnection.HTTP_BAD_REQUEST);
@@ -96,6 +129,7 @@ public class CoinApiDataTest {
     @Test
     public void testGetCryptocurrenciesInfoTooManyRequests() {
         when(httpResponseMock.statusCode()).thenReturn(CoinApiData.TOO_MANY_REQUESTS);
+        when(httpResponseMock.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
 
         assertThrows(TooManyRequestsException.class, () -> coinApiData.getCryptocurrenciesInfo()
                 ,"You have made too many requests for today, try again later");
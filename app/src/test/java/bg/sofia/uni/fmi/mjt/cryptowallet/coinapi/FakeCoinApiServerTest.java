@@ -0,0 +1,100 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.coinapi;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.BadRequestToRestApiException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.TooManyRequestsException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UnauthorizedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FakeCoinApiServerTest {
+
+    @TempDir
+    Path directory;
+
+    private FakeCoinApiServer fake;
+
+    @AfterEach
+    void tearDown() {
+        fake.close();
+    }
+
+    private CoinApiData client() {
+        return new CoinApiData(CoinApiData.newHttpClient(), fake.endpoint(), "key");
+    }
+
+    @Test
+    void testReplaysRecordedPayload() throws IOException, BadRequestToRestApiException, TooManyRequestsException,
+            UnauthorizedException {
+        Path recorded = directory.resolve("assets.json");
+        Files.writeString(recorded, "[{\"asset_id\":\"BTC\",\"name\":\"Bitcoin\",\"type_is_crypto\":1,"
+                + "\"price_usd\":20525.45}]", StandardCharsets.UTF_8);
+        fake = FakeCoinApiServer.replaying(0, recorded).start();
+
+        assertEquals(Set.of(new CryptoInformation("BTC", "Bitcoin", 1, 20525.45)),
+                client().getCryptocurrenciesInfo().cryptocurrencies(), "Error: the recorded payload was expected");
+    }
+
+    @Test
+    void testGeneratedPayloadWithLatencyAndDrip() throws IOException, BadRequestToRestApiException,
+            TooManyRequestsException, UnauthorizedException {
+        fake = FakeCoinApiServer.generating(0, 5000).start();
+        fake.setBehavior(FakeCoinApiServer.Behavior.normal()
+                .withLatency(Duration.ofMillis(100))
+                .withDrip(1024, Duration.ofMillis(1)));
+
+        long start = System.nanoTime();
+        int keptCount = client().getCryptocurrenciesInfo().cryptocurrencies().size();
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals(CoinApiData.MAX_CRYPTOCURRENCIES, keptCount, "Error: the limit was expected to be applied");
+        assertTrue(elapsedMillis >= 100, "Error: the injected latency was expected to delay the response");
+    }
+
+    @Test
+    void testStalledBodyFailsAtTheDeadline() throws IOException {
+        fake = FakeCoinApiServer.generating(0, 100).start();
+        fake.setBehavior(FakeCoinApiServer.Behavior.normal().withDrip(1, Duration.ofSeconds(30)));
+        CoinApiData client = new CoinApiData(CoinApiData.newHttpClient(), fake.endpoint(), "key",
+                CoinApiData.MAX_CRYPTOCURRENCIES, Duration.ofMillis(500));
+
+        long start = System.nanoTime();
+        assertThrows(BadRequestToRestApiException.class, client::getCryptocurrenciesInfo,
+                "Error: a body that stalls was expected to fail the fetch");
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertTrue(elapsedMillis < 10_000, "Error: the fetch was expected to fail at its deadline");
+    }
+
+    @Test
+    void testBurstsOfTooManyRequests() throws IOException, BadRequestToRestApiException, TooManyRequestsException,
+            UnauthorizedException {
+        fake = FakeCoinApiServer.generating(0, 100).start();
+        fake.setBehavior(FakeCoinApiServer.Behavior.normal().withBursts(2, 2, Duration.ofSeconds(7)));
+        CoinApiData client = client();
+
+        client.getCryptocurrenciesInfo();
+        client.getCryptocurrenciesInfo();
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class, client::getCryptocurrenciesInfo,
+                "Error: the third request was expected to start a burst of 429");
+        assertThrows(TooManyRequestsException.class, client::getCryptocurrenciesInfo,
+                "Error: the burst was expected to last two requests");
+        client.getCryptocurrenciesInfo();
+
+        assertEquals(Duration.ofSeconds(7), e.retryAfter(), "Error: the burst was expected to send Retry-After");
+        assertEquals(5, fake.requestsCount(), "Error: unexpected number of requests");
+        assertEquals(2, fake.rejectedCount(), "Error: unexpected number of rejected requests");
+    }
+}
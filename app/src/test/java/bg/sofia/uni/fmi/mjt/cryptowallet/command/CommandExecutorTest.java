@@ -6,6 +6,10 @@ import bg.sofia.uni.fmi.mjt.cryptowallet.exception.InvalidSellingException;
 import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserAlreadyDefined;
 import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserNotFound;
 import bg.sofia.uni.fmi.mjt.cryptowallet.log.Log;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.LogRateLimitConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.LogRateLimiter;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.UserFiles;
+import bg.sofia.uni.fmi.mjt.cryptowallet.metrics.MetricsRegistry;
 import bg.sofia.uni.fmi.mjt.cryptowallet.storage.CryptoCurrencyWallet;
 import bg.sofia.uni.fmi.mjt.cryptowallet.user.BoughtCryptocurrency;
 import bg.sofia.uni.fmi.mjt.cryptowallet.user.SoldCryptocurrency;
@@ -18,12 +22,20 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -75,6 +87,17 @@ public class CommandExecutorTest {
                 "Error: unexpected output, when arguments are empty");
     }
 
+    @Test
+    void testRegisterTooLongUsername() {
+        doNothing().when(log).saveServerError(any(String.class));
+
+        String username = "u".repeat(UserFiles.MAX_USERNAME_BYTES + 1);
+        Command cmd = new Command(CommandType.register, new String[]{username, "pass"});
+        assertEquals(INVALID_INPUT, commandExecutor.execute(cmd, channel),
+                "Error: unexpected output, when the username is too long to be saved");
+        verifyNoInteractions(cryptoCurrencyWallet);
+    }
+
     @Test
     void testRegisterUserAlreadyDefined() throws UserAlreadyDefined {
         doNothing().when(log).saveServerException(any(Exception.class));
@@ -192,6 +215,34 @@ public class CommandExecutorTest {
                 "Error: unexpected output for list_offerings");
     }
 
+    @Test
+    void testOfferingsAgeSuccessfully() {
+        Command cmd = new Command(CommandType.get_offerings_age, new String[]{});
+        when(cryptoCurrencyWallet.getOfferingsAge()).thenReturn(Duration.ofSeconds(42));
+
+        assertEquals("Offerings were updated 42 seconds ago", commandExecutor.execute(cmd, channel),
+                "Error: unexpected output for get_offerings_age");
+    }
+
+    @Test
+    void testOfferingsAgeWhenStale() {
+        Command cmd = new Command(CommandType.get_offerings_age, new String[]{});
+        when(cryptoCurrencyWallet.getOfferingsAge()).thenReturn(Duration.ofSeconds(3600));
+        when(cryptoCurrencyWallet.areOfferingsStale()).thenReturn(true);
+
+        assertEquals("Offerings were updated 3600 seconds ago (CoinAPI is unavailable, prices may be outdated)",
+                commandExecutor.execute(cmd, channel), "Error: stale offerings were expected to be reported");
+    }
+
+    @Test
+    void testOfferingsAgeUnknown() {
+        Command cmd = new Command(CommandType.get_offerings_age, new String[]{});
+        when(cryptoCurrencyWallet.getOfferingsAge()).thenReturn(null);
+
+        assertEquals("Offerings update time is unknown", commandExecutor.execute(cmd, channel),
+                "Error: unexpected output for get_offerings_age without a valid update time");
+    }
+
     @Test
     void testBuyInvalidNumberOfParameters() {
         doNothing().when(log).saveServerError(any(String.class));
@@ -385,4 +436,58 @@ public class CommandExecutorTest {
         assertEquals(SUCCESSFUL_DISCONNECT, commandExecutor.execute(cmd, channel),
                 "Error: unexpected output, when disconnecting successfully");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRepeatedInvalidInputIsLoggedOnlyUpToTheLimit() {
+        LogRateLimiter logLimiter = new LogRateLimiter(LogRateLimitConfig.of(1, 3, 0, 60), log);
+        CommandExecutor limitedExecutor = new CommandExecutor(cryptoCurrencyWallet, log, logLimiter);
+        Command cmd = new Command(CommandType.register, new String[]{"user"});
+        for (int i = 0; i < 50; i++) {
+            assertEquals(INVALID_INPUT, limitedExecutor.execute(cmd, channel),
+                    "Error: unexpected output, when arguments are invalid");
+        }
+
+        verify(log, times(3)).saveServerError(any(String.class));
+        assertEquals(47, logLimiter.suppressedCount(), "Error: events over the limit were expected to be suppressed");
+    }
+
+    @Test
+    void testRepeatedInvalidCommandsAreLoggedOnlyUpToTheLimit() {
+        LogRateLimiter logLimiter = new LogRateLimiter(LogRateLimitConfig.of(1, 3, 0, 60), log);
+        CommandExecutor limitedExecutor = new CommandExecutor(cryptoCurrencyWallet, log, logLimiter);
+        for (int i = 0; i < 50; i++) {
+            limitedExecutor.invalidCommand(channel, ParseResult.UNKNOWN_COMMAND);
+        }
+
+        verify(log, times(3)).saveServerError(any(String.class));
+        assertEquals(47, logLimiter.suppressedCount(),
+                "Error: invalid commands over the limit were expected to be suppressed");
+    }
+
+    @Test
+    void testStatsAreNotShownToRemoteClients() {
+        doNothing().when(log).saveServerError(any(String.class));
+
+        Command cmd = new Command(CommandType.stats, new String[]{});
+        assertEquals("Server statistics are only available on the server machine",
+                commandExecutor.execute(cmd, channel), "Error: unexpected output, when stats are not allowed");
+    }
+
+    @Test
+    void testStatsShowCommandLatencies() throws IOException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        CommandExecutor executor = new CommandExecutor(cryptoCurrencyWallet, log,
+                new LogRateLimiter(LogRateLimitConfig.defaults(), log), metrics);
+        when(cryptoCurrencyWallet.listOfferings()).thenReturn(new StringBuilder("offerings"));
+        executor.execute(new Command(CommandType.list_offerings, new String[]{}), channel);
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+             SocketChannel localClient = SocketChannel.open(server.getLocalAddress())) {
+            String stats = executor.execute(new Command(CommandType.stats, new String[]{}), localClient);
+
+            assertTrue(stats.contains("wallet_command_duration_seconds{command=\"list_offerings\"} count=1"),
+                    "Error: the executed command was expected in the stats: " + stats);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.command;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CommandParserTest {
+
+    private final CommandParser parser = new CommandParser();
+
+    private ParseResult parse(String input) {
+        ByteBuffer buffer = ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
+        return parser.parse(buffer, 0, buffer.limit());
+    }
+
+    @Test
+    void testParseAllCommandTypes() {
+        for (CommandType type : CommandType.values()) {
+            assertEquals(ParseResult.OK, parse(type.name()), "Error: every command name should be recognized");
+            assertEquals(type, parser.command().type(), "Error: command type is invalid");
+        }
+    }
+
+    @Test
+    void testParseCommandWithArguments() {
+        assertEquals(ParseResult.OK, parse("register user pass"), "Error: valid command was not parsed");
+        assertEquals(CommandType.register, parser.command().type(), "Error: command type is invalid");
+        assertArrayEquals(new String[]{"user", "pass"}, parser.command().arguments(),
+                "Error: command arguments are invalid");
+    }
+
+    @Test
+    void testParseCollapsesWhitespace() {
+        assertEquals(ParseResult.OK, parse("  buy \t BTC   100  "), "Error: valid command was not parsed");
+        assertArrayEquals(new String[]{"BTC", "100"}, parser.command().arguments(),
+                "Error: command arguments are invalid");
+        assertEquals(100.0, parser.command().number(1), "Error: numeric argument is invalid");
+    }
+
+    @Test
+    void testParseUnknownCommand() {
+        assertEquals(ParseResult.UNKNOWN_COMMAND, parse("view crypto"), "Error: unknown command was accepted");
+        assertEquals(ParseResult.UNKNOWN_COMMAND, parse("sel BTC"), "Error: command prefix was accepted");
+        assertEquals(ParseResult.UNKNOWN_COMMAND, parse("SELL BTC"), "Error: command names are case sensitive");
+        assertNull(parser.command(), "Error: no command was expected after a failed parse");
+    }
+
+    @Test
+    void testParseEmptyInput() {
+        assertEquals(ParseResult.EMPTY_INPUT, parse(""), "Error: empty input was not reported");
+        assertEquals(ParseResult.EMPTY_INPUT, parse(" \t "), "Error: blank input was not reported");
+    }
+
+    @Test
+    void testParseTooManyArguments() {
+        String input = "sell" + " BTC".repeat(17);
+
+        assertEquals(ParseResult.TOO_MANY_ARGUMENTS, parse(input), "Error: too many arguments were accepted");
+    }
+
+    @Test
+    void testParseNumbers() {
+        assertParsedDeposit(1500, "1500");
+        assertParsedDeposit(-2.5, "-2.5");
+        assertParsedDeposit(1000, "1e3");
+        assertParsedDeposit(0.1, "0.1");
+        assertParsedDeposit(0.5, ".5");
+        assertParsedDeposit(123456789.123456789, "123456789.123456789");
+        assertParsedDeposit(1.5e-30, "1.5e-30");
+    }
+
+    @Test
+    void testParseInvalidNumber() {
+        assertEquals(ParseResult.INVALID_NUMBER, parse("deposit_money abc"), "Error: invalid number was accepted");
+        assertEquals(ParseResult.INVALID_NUMBER, parse("deposit_money 1e"), "Error: invalid number was accepted");
+        assertEquals(ParseResult.INVALID_NUMBER, parse("deposit_money 1.2.3"), "Error: invalid number was accepted");
+        assertEquals(ParseResult.INVALID_NUMBER, parse("buy BTC -"), "Error: invalid number was accepted");
+        assertEquals(ParseResult.INVALID_NUMBER, parse("buy BTC 1e400"), "Error: infinite number was accepted");
+    }
+
+    @Test
+    void testParseDirectBuffer() {
+        byte[] bytes = "sell ETH".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+        assertEquals(ParseResult.OK, parser.parse(buffer, 0, buffer.limit()), "Error: valid command was not parsed");
+        assertArrayEquals(new String[]{"ETH"}, parser.command().arguments(), "Error: command arguments are invalid");
+    }
+
+    private void assertParsedDeposit(double expected, String number) {
+        assertEquals(ParseResult.OK, parse("deposit_money " + number), "Error: valid number was not parsed");
+        assertEquals(expected, parser.command().number(0), "Error: numeric argument is invalid");
+        assertEquals(Double.parseDouble(number), parser.command().number(0),
+                "Error: numeric argument differs from Double.parseDouble");
+    }
+}
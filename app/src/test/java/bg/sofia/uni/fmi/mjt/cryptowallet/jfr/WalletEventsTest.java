@@ -0,0 +1,103 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.jfr;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.CoinApiData;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.FakeCoinApiServer;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.Command;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandType;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.JournalConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.Log;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.WalletEvent;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.WalletJournal;
+import bg.sofia.uni.fmi.mjt.cryptowallet.storage.CryptoCurrencyWallet;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class WalletEventsTest {
+
+    @TempDir
+    Path directory;
+
+    private List<RecordedEvent> stopAndRead(Recording recording, String eventName) throws IOException {
+        recording.stop();
+        Path dump = directory.resolve("wallet.jfr");
+        recording.dump(dump);
+        return RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getEventType().getName().equals(eventName))
+                .toList();
+    }
+
+    @Test
+    void testCommandExecutionIsRecordedWithOutcome() throws IOException {
+        CommandExecutor executor = new CommandExecutor(mock(CryptoCurrencyWallet.class), mock(Log.class));
+        try (Recording recording = new Recording()) {
+            recording.enable(CommandExecutionEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            executor.execute(new Command(CommandType.register, new String[]{"user"}), null);
+
+            List<RecordedEvent> events = stopAndRead(recording, "bg.sofia.uni.fmi.mjt.cryptowallet.CommandExecution");
+            assertEquals(1, events.size(), "Error: one command execution event was expected");
+            assertEquals("register", events.get(0).getString("command"), "Error: unexpected command");
+            assertEquals("invalid_input", events.get(0).getString("outcome"), "Error: unexpected outcome");
+        }
+    }
+
+    @Test
+    void testFastCommandsStayUnderTheDefaultThreshold() throws IOException {
+        CommandExecutor executor = new CommandExecutor(mock(CryptoCurrencyWallet.class), mock(Log.class));
+        try (Recording recording = new Recording()) {
+            recording.enable(CommandExecutionEvent.class);
+            recording.start();
+            executor.execute(new Command(CommandType.register, new String[]{"user"}), null);
+
+            assertTrue(stopAndRead(recording, "bg.sofia.uni.fmi.mjt.cryptowallet.CommandExecution").isEmpty(),
+                    "Error: commands faster than the threshold were not expected to be recorded");
+        }
+    }
+
+    @Test
+    void testCoinApiFetchIsRecordedWithStatusAndBytes() throws Exception {
+        try (FakeCoinApiServer fake = FakeCoinApiServer.generating(0, 1000).start();
+             Recording recording = new Recording()) {
+            recording.enable(CoinApiFetchEvent.class);
+            recording.start();
+            new CoinApiData(CoinApiData.newHttpClient(), fake.endpoint(), "key").getCryptocurrenciesInfo();
+
+            List<RecordedEvent> events = stopAndRead(recording, "bg.sofia.uni.fmi.mjt.cryptowallet.CoinApiFetch");
+            assertEquals(1, events.size(), "Error: one fetch event was expected");
+            assertEquals(200, events.get(0).getInt("statusCode"), "Error: unexpected status code");
+            assertTrue(events.get(0).getLong("bodyBytes") > 0, "Error: the body bytes were expected to be counted");
+            assertEquals(CoinApiData.MAX_CRYPTOCURRENCIES, events.get(0).getInt("assetsCount"),
+                    "Error: unexpected assets count");
+        }
+    }
+
+    @Test
+    void testJournalFlushIsRecorded() throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.enable(PersistenceEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            try (WalletJournal journal = new WalletJournal(new JournalConfig(directory, 16, 1, false, 60))) {
+                journal.start(0);
+                journal.append(WalletEvent.register("User", "hash")).written().join();
+            }
+
+            List<RecordedEvent> events = stopAndRead(recording, "bg.sofia.uni.fmi.mjt.cryptowallet.Persistence");
+            assertEquals(1, events.size(), "Error: one persistence event was expected");
+            assertEquals("journal", events.get(0).getString("target"), "Error: unexpected target");
+            assertEquals(1, events.get(0).getLong("recordsCount"), "Error: unexpected records count");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.loadgen;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandType;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CommandMixTest {
+
+    @Test
+    void testCommandsArePickedByTheirWeights() {
+        CommandMix mix = CommandMix.parse("buy:3, sell:1");
+        SplittableRandom random = new SplittableRandom(42);
+        Map<CommandType, Integer> counts = new EnumMap<>(CommandType.class);
+        for (int i = 0; i < 100_000; i++) {
+            counts.merge(mix.next(random.nextDouble()), 1, Integer::sum);
+        }
+
+        assertEquals(Set.of(CommandType.buy, CommandType.sell), counts.keySet(),
+                "Error: only the mixed commands were expected");
+        assertEquals(75_000, counts.get(CommandType.buy), 1_000, "Error: buy was expected in 3 of 4 requests");
+        assertEquals(CommandType.buy, mix.next(0), "Error: the lowest random number should pick the first command");
+        assertEquals(CommandType.sell, mix.next(0.75), "Error: the weight boundary should pick the next command");
+    }
+
+    @Test
+    void testInvalidMixesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> CommandMix.parse("buy"),
+                "Error: an entry without weight should be rejected");
+        assertThrows(IllegalArgumentException.class, () -> CommandMix.parse("buy:0"),
+                "Error: a weight that is not positive should be rejected");
+        assertThrows(IllegalArgumentException.class, () -> CommandMix.parse("disconnect:1"),
+                "Error: commands that end the session should be rejected");
+        assertThrows(IllegalArgumentException.class, () -> CommandMix.parse("withdraw:1"),
+                "Error: unknown commands should be rejected");
+    }
+}
@@ -0,0 +1,94 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.loadgen;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.RunningCryptoServer;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.Command;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.cryptowallet.command.CommandType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LoadGeneratorTest {
+
+    private static final long SLOW_COMMAND_MILLIS = 20;
+    private static final long PROBE_CLOSED_TIMEOUT_MILLIS = 5000;
+    private RunningCryptoServer server;
+    private InetSocketAddress address;
+
+    @Mock
+    private CommandExecutor commandExecutor;
+
+    @BeforeEach
+    void setUp() throws IOException, InterruptedException {
+        server = RunningCryptoServer.start(commandExecutor, 1, 2);
+        address = server.address();
+        // The server ends the session of the probe on a worker; stubbing while it runs could be lost
+        verify(commandExecutor, timeout(PROBE_CLOSED_TIMEOUT_MILLIS)).connectionClosed(any());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.stop();
+    }
+
+    @Test
+    void testEveryMeasuredRequestIsAnsweredAndReported() throws IOException {
+        when(commandExecutor.execute(any(Command.class), any())).thenAnswer(invocation -> {
+            Command cmd = invocation.getArgument(0);
+            return cmd.type() == CommandType.list_offerings ? "ID:BTC Name:Bitcoin Price:1.0  " : "done";
+        });
+        LoadConfig config = new LoadConfig(20, 200, Duration.ofSeconds(1), Duration.ofMillis(200),
+                CommandMix.parse("buy:1,sell:1,get_wallet_summary:1"));
+
+        LoadReport report = new LoadGenerator(address, config).run();
+
+        assertEquals(0, report.failedConnectionsCount(), "Error: no connection was expected to fail");
+        assertEquals(0, report.unansweredCount(), "Error: every request was expected to be answered");
+        assertEquals(200, report.answeredCount(), 2, "Error: the requests due in the measured second were expected");
+        assertTrue(report.latency(CommandType.buy).count() > 0 && report.latency(CommandType.sell).count() > 0,
+                "Error: every mixed command was expected to be reported");
+        assertTrue(report.render().contains("get_wallet_summary"), "Error: the report should list every command");
+    }
+
+    @Test
+    void testLatencyIncludesTimeQueuedBehindASlowServer() throws IOException {
+        when(commandExecutor.execute(any(Command.class), any())).thenAnswer(invocation -> {
+            Command cmd = invocation.getArgument(0);
+            if (cmd.type() == CommandType.list_offerings) {
+                return "ID:BTC Name:Bitcoin Price:1.0  ";
+            }
+            if (cmd.type() == CommandType.get_wallet_summary) {
+                TimeUnit.MILLISECONDS.sleep(SLOW_COMMAND_MILLIS);
+            }
+            return "done";
+        });
+        LoadConfig config = new LoadConfig(1, 100, Duration.ofMillis(500), Duration.ZERO,
+                CommandMix.parse("get_wallet_summary:1"));
+
+        LoadReport report = new LoadGenerator(address, config).run();
+
+        long serviceTime = report.serviceTime(CommandType.get_wallet_summary).percentile(99);
+        long latency = report.latency(CommandType.get_wallet_summary).percentile(99);
+        assertTrue(serviceTime < TimeUnit.MILLISECONDS.toNanos(SLOW_COMMAND_MILLIS * 5),
+                "Error: each request was expected to be served quickly, took " + serviceTime + " ns");
+        assertTrue(latency > TimeUnit.MILLISECONDS.toNanos(200),
+                "Error: requests queued behind the slow server were expected to count that time, got "
+                        + latency + " ns");
+    }
+}
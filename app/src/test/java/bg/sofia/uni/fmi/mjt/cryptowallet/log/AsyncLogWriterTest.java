@@ -0,0 +1,89 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncLogWriterTest {
+
+    @TempDir
+    Path directory;
+
+    private List<Path> files(String category) throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve(category))) {
+            return files.sorted().toList();
+        }
+    }
+
+    private List<String> lines(String category) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Path file : files(category)) {
+            lines.addAll(Files.readAllLines(file));
+        }
+
+        return lines;
+    }
+
+    @Test
+    void testEventsOfOneCategoryGoToOneFile() throws IOException {
+        try (AsyncLogWriter writer = new AsyncLogWriter(LogConfig.of(directory))) {
+            writer.start();
+            Log log = new Log(writer);
+            for (int i = 0; i < 100; i++) {
+                log.saveServerError("Error occurred: event " + i);
+            }
+            log.saveUserError("User", new IllegalStateException("Insufficient balance"));
+        }
+
+        assertEquals(1, files("server").size(), "Error: server events were expected in a single file");
+        List<String> serverLines = lines("server");
+        assertEquals(100, serverLines.size(), "Error: every server event was expected to be written");
+        assertTrue(serverLines.get(99).endsWith("Error occurred: event 99"), "Error: events were written out of order");
+        assertTrue(lines("user/User").get(0).endsWith("Insufficient balance"),
+                "Error: user errors were expected in the folder of the user");
+    }
+
+    @Test
+    void testFileIsRolledOverWhenFullOrTooOld() throws IOException {
+        AtomicLong clock = new AtomicLong(1_000_000);
+        try (AsyncLogWriter writer = new AsyncLogWriter(LogConfig.of(directory, 16, 64, 60), clock::get)) {
+            writer.write("server", "first event that fills the whole file at once ....................", null);
+            writer.write("server", "second event", null);
+            clock.addAndGet(61_000);
+            writer.write("server", "third event", null);
+        }
+
+        assertEquals(3, files("server").size(), "Error: a new file was expected after each rotation");
+        assertEquals(3, lines("server").size(), "Error: no event was expected to be lost on rotation");
+    }
+
+    @Test
+    void testEventsAreDroppedInsteadOfBlockingWhenBufferIsFull() throws IOException {
+        AsyncLogWriter writer = new AsyncLogWriter(LogConfig.of(directory, 4, 1024, 60));
+        int acceptedCount = 0;
+        for (int i = 0; i < 10; i++) {
+            if (writer.write("server", "event " + i, null)) {
+                acceptedCount++;
+            }
+        }
+        writer.close();
+
+        assertEquals(4, acceptedCount, "Error: only as many events as the buffer holds were expected to be accepted");
+        assertEquals(6, writer.droppedCount(), "Error: dropped events were expected to be counted");
+        List<String> serverLines = lines("server");
+        assertEquals(5, serverLines.size(), "Error: the accepted events and a drop report were expected");
+        assertTrue(serverLines.get(4).contains("6 log events were dropped"), "Error: drops were not reported");
+        assertFalse(writer.write("server", "late event", null), "Error: a closed writer should not accept events");
+    }
+}
@@ -0,0 +1,73 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+public class LogRateLimiterTest {
+
+    private static final String ERROR = "Error occurred: Invalid use of login - argument list is not as expected";
+
+    @Mock
+    private Log log;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private int acquiredCount(LogRateLimiter limiter, String client, String username, int attempts) {
+        int acquired = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (limiter.tryAcquire(client, username, ERROR)) {
+                acquired++;
+            }
+        }
+
+        return acquired;
+    }
+
+    @Test
+    void testBucketsAreKeptPerClientAndRefilledOverTime() {
+        LogRateLimiter limiter = new LogRateLimiter(LogRateLimitConfig.of(2, 5, 0, 60), log, clock::get);
+
+        assertEquals(5, acquiredCount(limiter, "10.0.0.1", null, 20), "Error: only a burst was expected to pass");
+        assertEquals(5, acquiredCount(limiter, "10.0.0.2", null, 20),
+                "Error: another client was expected to have its own bucket");
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(2, acquiredCount(limiter, "10.0.0.1", null, 20),
+                "Error: the bucket was expected to refill at the configured rate");
+        verifyNoInteractions(log);
+    }
+
+    @Test
+    void testUserIsLimitedAcrossClients() {
+        LogRateLimiter limiter = new LogRateLimiter(LogRateLimitConfig.of(1, 3, 0, 60), log, clock::get);
+
+        assertEquals(3, acquiredCount(limiter, "10.0.0.1", "User", 2) + acquiredCount(limiter, "10.0.0.2", "User", 2),
+                "Error: events of one user from many clients were expected to share a bucket");
+    }
+
+    @Test
+    void testSuppressedEventsAreSampledAndSummarized() {
+        LogRateLimiter limiter = new LogRateLimiter(LogRateLimitConfig.of(1, 1, 10, 60), log, clock::get);
+
+        assertEquals(3, acquiredCount(limiter, "10.0.0.1", null, 21),
+                "Error: every tenth event over the limit was expected to be sampled");
+        assertEquals(18, limiter.suppressedCount(), "Error: the rest of the events were expected to be suppressed");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertTrue(limiter.tryAcquire("10.0.0.1", null, ERROR), "Error: the bucket was expected to be refilled");
+        verify(log).saveServerError(
+                "Error occurred: 18 similar events suppressed - " + ERROR + " from client 10.0.0.1");
+        assertFalse(limiter.tryAcquire("10.0.0.1", null, ERROR), "Error: the bucket was expected to be empty again");
+    }
+}
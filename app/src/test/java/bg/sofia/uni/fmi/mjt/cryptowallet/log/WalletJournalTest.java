@@ -0,0 +1,251 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.BoughtCryptocurrency;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class WalletJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private JournalConfig config() {
+        return new JournalConfig(directory, 16, 1, true, 60);
+    }
+
+    private List<WalletEvent> replay(List<Long> sequences) throws IOException {
+        List<WalletEvent> events = new ArrayList<>();
+        try (WalletJournal journal = new WalletJournal(config())) {
+            journal.replay((sequence, event) -> {
+                sequences.add(sequence);
+                events.add(event);
+            });
+        }
+
+        return events;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("journal-")).sorted().toList();
+        }
+    }
+
+    @Test
+    void testReplayReturnsAppendedEventsInOrder() throws IOException {
+        CryptoInformation btc = new CryptoInformation("BTC", "Bitcoin", 1, 20253.00);
+        List<WalletEvent> appended = List.of(WalletEvent.register("User", "hash"),
+                WalletEvent.deposit("User", 1500), WalletEvent.buy("User", new BoughtCryptocurrency(btc, 100, 0.005)));
+        try (WalletJournal journal = new WalletJournal(config())) {
+            journal.start(0);
+            for (WalletEvent event : appended) {
+                journal.append(event).written().join();
+            }
+        }
+
+        List<Long> sequences = new ArrayList<>();
+        assertEquals(appended, replay(sequences), "Error: replayed events differ from the appended ones");
+        assertEquals(List.of(1L, 2L, 3L), sequences, "Error: events were expected to have consecutive sequences");
+    }
+
+    @Test
+    void testReplaySkipsTornRecord() throws IOException {
+        try (WalletJournal journal = new WalletJournal(config())) {
+            journal.start(0);
+            journal.append(WalletEvent.register("User", "hash")).written().join();
+            journal.append(WalletEvent.deposit("User", 1500)).written().join();
+        }
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        List<Long> sequences = new ArrayList<>();
+        assertEquals(List.of(WalletEvent.register("User", "hash")), replay(sequences),
+                "Error: a torn record was expected to be skipped");
+    }
+
+    @Test
+    void testStartAfterReplayContinuesSequence() throws IOException {
+        try (WalletJournal journal = new WalletJournal(config())) {
+            journal.start(0);
+            journal.append(WalletEvent.register("User", "hash")).written().join();
+        }
+        try (WalletJournal journal = new WalletJournal(config())) {
+            journal.replay((sequence, event) -> { });
+            journal.start(0);
+            assertEquals(2, journal.append(WalletEvent.deposit("User", 10)).sequence(),
+                    "Error: sequence was expected to continue after the replayed events");
+        }
+
+        assertEquals(2, segments().size(), "Error: a restarted journal was expected to open a new segment");
+    }
+
+    @Test
+    void testTruncateBeforeDeletesCoveredSegments() throws IOException {
+        try (WalletJournal journal = new WalletJournal(config())) {
+            journal.start(0);
+            journal.append(WalletEvent.register("User", "hash")).written().join();
+            long fromSequence = journal.rotate();
+            journal.append(WalletEvent.deposit("User", 10)).written().join();
+            journal.truncateBefore(fromSequence);
+            journal.append(WalletEvent.deposit("User", 20)).written().join();
+        }
+
+        List<Long> sequences = new ArrayList<>();
+        assertEquals(List.of(WalletEvent.deposit("User", 10), WalletEvent.deposit("User", 20)), replay(sequences),
+                "Error: only events after the truncation point were expected to remain");
+        assertEquals(1, segments().size(), "Error: the covered segment was expected to be deleted");
+    }
+
+    @Test
+    void testAppendsAfterATornWriteAreRejected() throws IOException {
+        AtomicBoolean isTearingNextWrite = new AtomicBoolean();
+        WalletEvent first = WalletEvent.deposit("User", 1);
+        long committedBytes;
+        try (WalletJournal journal = new WalletJournal(config(), segmentFile -> new TearingChannel(
+                FileChannel.open(segmentFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING), isTearingNextWrite))) {
+            journal.start(0);
+            journal.append(first).written().join();
+            committedBytes = Files.size(segments().get(0));
+            isTearingNextWrite.set(true);
+            WalletEvent torn = WalletEvent.deposit("User", 2);
+            assertThrows(CompletionException.class, () -> journal.append(torn).written().join(),
+                    "Error: a torn write was expected to fail its events");
+            assertThrows(IllegalStateException.class, () -> journal.append(WalletEvent.deposit("User", 3)),
+                    "Error: appends after a failed write were expected to be rejected");
+        }
+
+        assertEquals(committedBytes, Files.size(segments().get(0)),
+                "Error: the torn bytes were expected to be cut from the segment");
+        List<Long> sequences = new ArrayList<>();
+        assertEquals(List.of(first), replay(sequences), "Error: only the committed record was expected to be replayed");
+        assertEquals(List.of(1L), sequences, "Error: unexpected sequences of the replayed events");
+    }
+
+    /**
+     * Writes only half of the bytes of a write and fails it, once asked to, like a disk that fills up.
+     */
+    private static final class TearingChannel extends FileChannel {
+
+        private final FileChannel channel;
+        private final AtomicBoolean isTearingNextWrite;
+
+        private TearingChannel(FileChannel channel, AtomicBoolean isTearingNextWrite) {
+            this.channel = channel;
+            this.isTearingNextWrite = isTearingNextWrite;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (isTearingNextWrite.getAndSet(false)) {
+                channel.write(src.slice(src.position(), src.remaining() / 2));
+                throw new IOException("Torn write");
+            }
+            return channel.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return channel.write(srcs, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return channel.write(src, position);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return channel.read(dsts, offset, length);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return channel.read(dst, position);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            channel.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return channel.transferFrom(src, position, count);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return channel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return channel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+    }
+}
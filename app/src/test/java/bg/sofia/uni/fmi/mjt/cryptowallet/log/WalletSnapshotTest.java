@@ -0,0 +1,142 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.log;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.BoughtCryptocurrency;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.Portfolio;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.SoldCryptocurrency;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WalletSnapshotTest {
+
+    private static final CryptoInformation BTC = new CryptoInformation("BTC", "Bitcoin", 1, 20253.00);
+    private static final CryptoInformation ETH = new CryptoInformation("ETH", null, 1, 1500.50);
+
+    @TempDir
+    Path directory;
+
+    private static List<User> users(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User("user" + i, "hash" + i);
+            user.setPortfolio(new Portfolio(100 + i, Set.of(new BoughtCryptocurrency(BTC, 50, 0.0025 * i)),
+                    Set.of(new SoldCryptocurrency(ETH, 30, i - 5)), i));
+            users.add(user);
+        }
+
+        return users;
+    }
+
+    private static Map<String, Portfolio> portfolios(List<User> users) {
+        return users.stream().collect(Collectors.toMap(User::username, User::portfolio));
+    }
+
+    @Test
+    void testSnapshotKeepsEveryUserAndSharesTheirAssets() throws IOException {
+        List<User> written = users(1000);
+        WalletSnapshot.write(directory, 42, written);
+
+        WalletSnapshot snapshot = WalletSnapshot.read(directory);
+        assertEquals(42, snapshot.fromSequence(), "Error: unexpected snapshot sequence");
+        assertEquals(portfolios(written), portfolios(snapshot.users()), "Error: users changed through the snapshot");
+        Map<String, User> read = snapshot.users().stream()
+                .collect(Collectors.toMap(User::username, Function.identity()));
+        assertEquals("hash7", read.get("user7").hashedPassword(), "Error: unexpected password hash");
+        assertSame(read.get("user1").boughtCryptocurrencies().iterator().next().boughtCrypto(),
+                read.get("user2").boughtCryptocurrencies().iterator().next().boughtCrypto(),
+                "Error: an asset held by many users was expected to be loaded once");
+    }
+
+    @Test
+    void testCorruptedSnapshotIsRejected() throws IOException {
+        WalletSnapshot.write(directory, 1, users(10));
+        Path file = directory.resolve("snapshot.bin");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        IOException thrown = assertThrows(IOException.class, () -> WalletSnapshot.read(directory),
+                "Error: a corrupted snapshot should not be loaded");
+        assertTrue(thrown.getMessage().contains("checksum"), "Error: unexpected failure " + thrown.getMessage());
+    }
+
+    @Test
+    void testSnapshotOfTheFirstFormatIsStillRead() throws IOException {
+        List<User> written = users(3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0x43575331);
+            out.writeInt(1);
+            out.writeLong(7);
+            out.writeInt(written.size());
+            for (User user : written) {
+                out.writeUTF(user.username());
+                out.writeUTF(user.hashedPassword());
+                WalletCodec.writePortfolio(out, user.portfolio());
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        bytes.writeBytes(ByteBuffer.allocate(Long.BYTES).putLong(crc.getValue()).array());
+        Files.write(directory.resolve("snapshot.bin"), bytes.toByteArray());
+
+        WalletSnapshot snapshot = WalletSnapshot.read(directory);
+        assertEquals(7, snapshot.fromSequence(), "Error: unexpected snapshot sequence");
+        assertEquals(portfolios(written), portfolios(snapshot.users()), "Error: users changed through the snapshot");
+    }
+
+    @Test
+    void testJsonUsersAreMigratedOnce() throws IOException {
+        Path usersFile = directory.resolve("UsersInformation.bin");
+        Path jsonUsersFile = directory.resolve("UsersInformation.txt");
+        List<User> written = users(20);
+        try (Writer writer = Files.newBufferedWriter(jsonUsersFile)) {
+            new Gson().toJson(Set.copyOf(written), writer);
+        }
+
+        Map<String, Portfolio> expected = new HashMap<>();
+        for (User user : written) {
+            expected.put(user.username(), user.portfolio().withVersion(0));
+        }
+        assertEquals(expected, portfolios(List.copyOf(DataSaver.loadUsers(usersFile, jsonUsersFile))),
+                "Error: users changed through the migration");
+        assertTrue(Files.exists(usersFile), "Error: the migrated users were expected to be saved");
+
+        Files.delete(jsonUsersFile);
+        assertEquals(expected, portfolios(List.copyOf(DataSaver.loadUsers(usersFile, jsonUsersFile))),
+                "Error: the migrated users were expected to be read from the binary file");
+    }
+
+    @Test
+    void testNoUsersFileMeansNoUsers() throws IOException {
+        Path usersFile = directory.resolve("UsersInformation.bin");
+
+        assertTrue(DataSaver.loadUsers(usersFile, directory.resolve("UsersInformation.txt")).isEmpty(),
+                "Error: no users were expected without a users file");
+        assertFalse(Files.exists(usersFile), "Error: nothing was expected to be migrated");
+    }
+}
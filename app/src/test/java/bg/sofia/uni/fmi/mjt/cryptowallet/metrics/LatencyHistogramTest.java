@@ -0,0 +1,63 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void testBucketsCoverValuesWithBoundedError() {
+        long[] values = {0, 1, 63, 64, 65, 127, 128, 1_000, 123_456, 1_000_000_007L, Long.MAX_VALUE};
+        int previousBucket = -1;
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long upperBound = LatencyHistogram.upperBound(bucket);
+            assertTrue(bucket >= previousBucket, "Error: buckets were expected to grow with the values");
+            assertTrue(upperBound >= value && upperBound - value <= value / 32,
+                    "Error: the bucket of " + value + " ends too far from it, at " + upperBound);
+            previousBucket = bucket;
+        }
+    }
+
+    @Test
+    void testPercentilesOfRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.count(), "Error: every recorded value was expected to be counted");
+        assertEquals(1_000_000, snapshot.maxNanos(), "Error: unexpected maximum");
+        assertEquals(500_500, snapshot.meanNanos(), "Error: unexpected mean");
+        assertEquals(500_000, snapshot.percentile(50), 500_000 / 32, "Error: unexpected median");
+        assertEquals(990_000, snapshot.percentile(99), 990_000 / 32, "Error: unexpected 99th percentile");
+        assertEquals(1_000_000, snapshot.percentile(100), "Error: the 100th percentile should be the maximum");
+    }
+
+    @Test
+    void testConcurrentRecordingLosesNoValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<Void>> recorders = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            recorders.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            }, executor));
+        }
+        recorders.forEach(CompletableFuture::join);
+        executor.shutdown();
+
+        assertEquals(80_000, histogram.snapshot().count(), "Error: concurrent records were lost");
+    }
+}
@@ -0,0 +1,75 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsRegistryTest {
+
+    private MetricsRegistry registry() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("wallet_received_bytes_total", "Bytes received from clients").add(42);
+        registry.gauge("wallet_connected_clients", "Clients currently connected", () -> 3);
+        LatencyHistogram buy = registry.histogram("wallet_command_duration_seconds", "Time spent executing a command",
+                MetricsRegistry.label("command", "buy"));
+        buy.record(2_000_000);
+        buy.record(4_000_000);
+        return registry;
+    }
+
+    @Test
+    void testPrometheusTextFormat() {
+        String text = registry().toPrometheus();
+
+        assertTrue(text.contains("# TYPE wallet_received_bytes_total counter\nwallet_received_bytes_total 42\n"),
+                "Error: unexpected counter output:\n" + text);
+        assertTrue(text.contains("# TYPE wallet_connected_clients gauge\nwallet_connected_clients 3\n"),
+                "Error: unexpected gauge output:\n" + text);
+        assertTrue(text.contains("# TYPE wallet_command_duration_seconds summary\n"),
+                "Error: histograms were expected to be exported as summaries:\n" + text);
+        assertTrue(text.contains("wallet_command_duration_seconds{command=\"buy\",quantile=\"0.5\"} 0.002"),
+                "Error: unexpected median output:\n" + text);
+        assertTrue(text.contains("wallet_command_duration_seconds_sum{command=\"buy\"} 0.006\n")
+                        && text.contains("wallet_command_duration_seconds_count{command=\"buy\"} 2\n"),
+                "Error: unexpected sum and count output:\n" + text);
+    }
+
+    @Test
+    void testDescribeFitsOnOneLine() {
+        String description = registry().describe();
+
+        assertEquals(3, description.split("; ").length, "Error: every series was expected to be described");
+        assertTrue(description.contains("wallet_command_duration_seconds{command=\"buy\"} count=2 mean=3.000ms"),
+                "Error: unexpected histogram description: " + description);
+        assertTrue(!description.contains("\n"), "Error: the description was expected to fit on one line");
+    }
+
+    @Test
+    void testMetricCannotChangeType() {
+        MetricsRegistry registry = registry();
+
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("wallet_connected_clients", "Clients"),
+                "Error: a gauge should not be registered again as a histogram");
+    }
+
+    @Test
+    void testMetricsAreServedOverHttp() throws IOException, InterruptedException {
+        try (MetricsHttpServer server = new MetricsHttpServer(0, registry()).start()) {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(server.endpoint()).build(), HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode(), "Error: the scrape was expected to succeed");
+            assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"),
+                    "Error: unexpected content type");
+            assertTrue(response.body().contains("wallet_connected_clients 3"),
+                    "Error: the scrape was expected to return the metrics");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClientConnectionTest {
+
+    private static final int OUTBOUND_HIGH_WATER_MARK = 1024;
+    private static final int PENDING_COMMANDS_HIGH_WATER_MARK = 4;
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private Queue<Runnable> workerTasks;
+    private ClientConnection connection;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        client.configureBlocking(false);
+        SelectionKey key = client.register(selector, SelectionKey.OP_READ);
+        workerTasks = new ArrayDeque<>();
+        connection = new ClientConnection(key, workerTasks::add,
+                ServerConfig.of(1, 1, OUTBOUND_HIGH_WATER_MARK, PENDING_COMMANDS_HIGH_WATER_MARK));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.close();
+        selector.close();
+    }
+
+    @Test
+    void testReadingPausesWhileTooManyCommandsAreQueued() {
+        for (int i = 0; i <= PENDING_COMMANDS_HIGH_WATER_MARK; i++) {
+            connection.submit(() -> { });
+        }
+        assertFalse(connection.shouldRead(), "Error: reading was expected to pause over the high-water mark");
+
+        workerTasks.poll().run();
+        workerTasks.poll().run();
+        assertEquals(3, connection.pendingCommands(), "Error: started commands were expected to leave the queue");
+        assertFalse(connection.shouldRead(), "Error: reading was expected to stay paused above half of the mark");
+
+        workerTasks.poll().run();
+        assertTrue(connection.shouldRead(), "Error: reading was expected to resume at half of the mark");
+    }
+
+    @Test
+    void testReadingPausesWhileTooManyResponseBytesAreQueued() throws IOException {
+        connection.addResponse(ByteBuffer.allocate(OUTBOUND_HIGH_WATER_MARK / 2));
+        assertTrue(connection.shouldRead(), "Error: reading was expected to go on up to the high-water mark");
+
+        connection.addResponse(ByteBuffer.allocate(OUTBOUND_HIGH_WATER_MARK / 2 + 1));
+        assertFalse(connection.shouldRead(), "Error: reading was expected to pause over the high-water mark");
+
+        assertTrue(connection.flush(), "Error: the queued responses were expected to be written");
+        assertEquals(0, connection.outboundBytes(), "Error: written responses were expected to leave the queue");
+        assertTrue(connection.shouldRead(), "Error: reading was expected to resume once the responses were written");
+    }
+}
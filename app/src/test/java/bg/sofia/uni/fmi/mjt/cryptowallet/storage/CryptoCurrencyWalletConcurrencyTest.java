@@ -0,0 +1,182 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.Cryptocurrencies;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.InsufficientAvailabilityException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.InvalidSellingException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserAlreadyDefined;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserNotFound;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.DataSaver;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.BoughtCryptocurrency;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.Portfolio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+public class CryptoCurrencyWalletConcurrencyTest {
+
+    private static final int USERS_COUNT = 4;
+    private static final int SESSIONS_PER_USER = 4;
+    private static final int OPERATIONS_PER_SESSION = 2000;
+    private static final double DEPOSIT = 100;
+    private static final double INVESTMENT = 30;
+    private static final double DELTA = 1e-6;
+    private static final String[] ASSETS = {"BTC", "ETH"};
+
+    private final List<SocketChannel> channels = new ArrayList<>();
+    private CryptoCurrencyWallet cryptoCurrencyWallet;
+
+    @Mock
+    DataSaver infoSaver;
+
+    @BeforeEach
+    void setUp() throws UserAlreadyDefined {
+        cryptoCurrencyWallet = new CryptoCurrencyWallet(infoSaver);
+        CryptoInformation btc = new CryptoInformation("BTC", "Bitcoin", 1, 20253.00);
+        CryptoInformation eth = new CryptoInformation("ETH", "Ethereum", 1, 10265.00);
+        cryptoCurrencyWallet.setCryptocurrencies(new Cryptocurrencies(Set.of(btc, eth), "2023-09-05 11:00:00"));
+
+        for (int i = 0; i < USERS_COUNT; i++) {
+            cryptoCurrencyWallet.register("user" + i, "pass" + i);
+        }
+    }
+
+    @AfterEach
+    void closeChannels() throws IOException {
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    @Test
+    void testBalancesAreConservedUnderContention() throws Exception {
+        DoubleAdder[] deposited = new DoubleAdder[USERS_COUNT];
+        List<SocketChannel> userChannels = new ArrayList<>();
+        for (int i = 0; i < USERS_COUNT; i++) {
+            deposited[i] = new DoubleAdder();
+            for (int j = 0; j < SESSIONS_PER_USER; j++) {
+                SocketChannel channel = SocketChannel.open();
+                channels.add(channel);
+                cryptoCurrencyWallet.login(channel, "user" + i, "pass" + i);
+                userChannels.add(channel);
+            }
+        }
+
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(userChannels.size());
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < userChannels.size(); i++) {
+            SocketChannel channel = userChannels.get(i);
+            DoubleAdder userDeposits = deposited[i / SESSIONS_PER_USER];
+            Random random = new Random(i);
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int op = 0; op < OPERATIONS_PER_SESSION; op++) {
+                        runRandomOperation(channel, random, userDeposits);
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS), "Error: sessions did not finish in time");
+        assertTrue(failures.isEmpty(), "Error: unexpected failures under contention: " + failures);
+        for (int i = 0; i < USERS_COUNT; i++) {
+            Portfolio portfolio = cryptoCurrencyWallet.user(userChannels.get(i * SESSIONS_PER_USER)).portfolio();
+            double invested = 0;
+            for (BoughtCryptocurrency bought : portfolio.boughtCryptocurrencies()) {
+                invested += bought.buyingCount() * bought.boughtCrypto().price();
+            }
+
+            assertTrue(portfolio.money() >= -DELTA, "Error: balance went negative under contention");
+            assertEquals(deposited[i].sum(), portfolio.money() + invested, DELTA * deposited[i].sum(),
+                    "Error: money plus holdings must equal all deposits when prices don't change");
+        }
+    }
+
+    @Test
+    void testSummariesWhileUserIsModified() throws Exception {
+        SocketChannel writer = SocketChannel.open();
+        SocketChannel reader = SocketChannel.open();
+        channels.add(writer);
+        channels.add(reader);
+        cryptoCurrencyWallet.login(writer, "user0", "pass0");
+        cryptoCurrencyWallet.login(reader, "user0", "pass0");
+
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        executor.execute(() -> {
+            Random random = new Random();
+            try {
+                for (int op = 0; op < OPERATIONS_PER_SESSION; op++) {
+                    runRandomOperation(writer, random, new DoubleAdder());
+                }
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        });
+        executor.execute(() -> {
+            try {
+                for (int op = 0; op < OPERATIONS_PER_SESSION; op++) {
+                    cryptoCurrencyWallet.getWalletSummary(reader);
+                    cryptoCurrencyWallet.getWalletOverAllSummary(reader);
+                }
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        });
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS), "Error: sessions did not finish in time");
+        assertTrue(failures.isEmpty(), "Error: summaries failed while the user was modified: " + failures);
+    }
+
+    private void runRandomOperation(SocketChannel channel, Random random, DoubleAdder deposited)
+            throws UserNotFound {
+        String asset = ASSETS[random.nextInt(ASSETS.length)];
+        switch (random.nextInt(3)) {
+            case 0 -> {
+                cryptoCurrencyWallet.depositMoney(channel, DEPOSIT);
+                deposited.add(DEPOSIT);
+            }
+            case 1 -> {
+                try {
+                    cryptoCurrencyWallet.buy(channel, asset, INVESTMENT);
+                } catch (InsufficientAvailabilityException e) {
+                    // another session of the same user spent the money first
+                }
+            }
+            default -> {
+                try {
+                    cryptoCurrencyWallet.sell(channel, asset);
+                } catch (InvalidSellingException e) {
+                    // nothing of this asset is held right now
+                }
+            }
+        }
+    }
+}
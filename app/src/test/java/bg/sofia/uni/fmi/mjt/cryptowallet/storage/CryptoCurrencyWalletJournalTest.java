@@ -0,0 +1,125 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.Cryptocurrencies;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.InsufficientAvailabilityException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.InvalidSellingException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserAlreadyDefined;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserNotFound;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.DataSaver;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.JournalConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.Portfolio;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class CryptoCurrencyWalletJournalTest {
+
+    private static final Cryptocurrencies CRYPTOCURRENCIES = new Cryptocurrencies(Set.of(
+            new CryptoInformation("BTC", "Bitcoin", 1, 20000.00),
+            new CryptoInformation("ETH", "Ethereum", 1, 1000.00)), "2023-09-05 11:00:00");
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    DataSaver infoSaver;
+
+    private SocketChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        channel = SocketChannel.open();
+    }
+
+    @AfterEach
+    void closeChannel() throws IOException {
+        channel.close();
+    }
+
+    private CryptoCurrencyWallet openWallet() {
+        CryptoCurrencyWallet wallet = new CryptoCurrencyWallet(infoSaver,
+                new JournalConfig(directory, 16, 0, true, 3600));
+        wallet.setCryptocurrencies(CRYPTOCURRENCIES);
+        return wallet;
+    }
+
+    private Portfolio portfolioAfterRestart(String username, String password) throws UserNotFound {
+        CryptoCurrencyWallet restarted = openWallet();
+        return restarted.login(channel, username, password).portfolio();
+    }
+
+    private long segmentsCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("journal-")).count();
+        }
+    }
+
+    @Test
+    void testChangesSurviveRestartWithoutCheckpoint() throws UserAlreadyDefined, UserNotFound,
+            InsufficientAvailabilityException, InvalidSellingException, IOException {
+        CryptoCurrencyWallet wallet = openWallet();
+        wallet.register("User", "Pass");
+        wallet.login(channel, "User", "Pass");
+        wallet.depositMoney(channel, 1500);
+        wallet.buy(channel, "BTC", 500);
+        wallet.buy(channel, "ETH", 200);
+        wallet.sell(channel, "ETH");
+
+        Portfolio expected = wallet.user(channel).portfolio();
+        Portfolio actual = portfolioAfterRestart("User", "Pass");
+
+        assertEquals(expected, actual, "Error: journal replay was expected to restore the portfolio");
+        verify(infoSaver, never()).saveUsersInfoToFile(ArgumentMatchers.<Set<User>>any());
+    }
+
+    @Test
+    void testRestartFromSnapshotAndJournalTail() throws UserAlreadyDefined, UserNotFound, IOException {
+        CryptoCurrencyWallet wallet = openWallet();
+        wallet.register("User", "Pass");
+        wallet.login(channel, "User", "Pass");
+        wallet.depositMoney(channel, 1000);
+        wallet.checkpoint();
+        wallet.depositMoney(channel, 500);
+        wallet.register("Other", "Pass");
+
+        assertEquals(1500, portfolioAfterRestart("User", "Pass").money(),
+                "Error: snapshot and journal tail were expected to be combined without applying events twice");
+        assertEquals(0, portfolioAfterRestart("Other", "Pass").money(),
+                "Error: registration after the snapshot was expected to be replayed");
+    }
+
+    @Test
+    void testCheckpointDropsCoveredSegments() throws UserAlreadyDefined, UserNotFound, IOException {
+        CryptoCurrencyWallet wallet = openWallet();
+        wallet.register("User", "Pass");
+        wallet.login(channel, "User", "Pass");
+        wallet.depositMoney(channel, 1000);
+        wallet.checkpoint();
+        wallet.checkpoint();
+        wallet.close();
+
+        assertTrue(segmentsCount() <= 2, "Error: segments covered by a snapshot were expected to be deleted");
+        assertEquals(1000, portfolioAfterRestart("User", "Pass").money(),
+                "Error: unexpected money after restarting from the snapshot");
+    }
+}
@@ -24,6 +24,11 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -86,6 +91,38 @@ public class CryptoCurrencyWalletTest {
                 "Error: unexpected result, when registering new user successfully");
     }
 
+    @Test
+    void testRegisterSameUsernameConcurrently() throws InterruptedException {
+        int threadsCount = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger registered = new AtomicInteger();
+        for (int i = 0; i < threadsCount; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    cryptoCurrencyWallet.register("User", "Pass");
+                    registered.incrementAndGet();
+                } catch (UserAlreadyDefined | InterruptedException e) {
+                    // expected for every registration but one
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS), "Error: registrations did not finish in time");
+        assertEquals(1, registered.get(), "Error: only one registration of the same username was expected to succeed");
+    }
+
+    @Test
+    void testLoginWrongPassword() throws UserAlreadyDefined {
+        cryptoCurrencyWallet.register("User", "Pass");
+
+        assertThrows(UserNotFound.class, () -> cryptoCurrencyWallet.login(channel, "User", "Wrong"),
+                "Error: UserNotFound was expected to be thrown, when logging with a wrong password");
+    }
+
     @Test
     void testLoginWithoutRegistration() {
         assertThrows(UserNotFound.class, () -> cryptoCurrencyWallet.login(channel, "Invalid", "AnyPass"),
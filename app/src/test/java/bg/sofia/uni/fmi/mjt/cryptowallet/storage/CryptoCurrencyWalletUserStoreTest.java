@@ -0,0 +1,174 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.Cryptocurrencies;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.InsufficientAvailabilityException;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserAlreadyDefined;
+import bg.sofia.uni.fmi.mjt.cryptowallet.exception.UserNotFound;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.DataSaver;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.JournalConfig;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.Portfolio;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class CryptoCurrencyWalletUserStoreTest {
+
+    private static final Cryptocurrencies CRYPTOCURRENCIES = new Cryptocurrencies(Set.of(
+            new CryptoInformation("BTC", "Bitcoin", 1, 20000.00)), "2023-09-05 11:00:00");
+    private static final int USERS_COUNT = 10;
+    private static final int MAX_RESIDENT_USERS = 2;
+    private static final Duration FLUSH_INTERVAL = Duration.ofHours(1);
+    private static final int TRADERS_COUNT = 4;
+    private static final int DEPOSITS_COUNT = 2000;
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    DataSaver infoSaver;
+
+    private SocketChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        channel = SocketChannel.open();
+    }
+
+    @AfterEach
+    void closeChannel() throws IOException {
+        channel.close();
+    }
+
+    private CryptoCurrencyWallet openWallet(boolean isJournaled) {
+        JournalConfig journalConfig = isJournaled
+                ? new JournalConfig(directory.resolve("journal"), 16, 0, true, 3600) : null;
+        CryptoCurrencyWallet wallet = new CryptoCurrencyWallet(infoSaver, journalConfig, null,
+                new UserStoreConfig(directory.resolve("users"), MAX_RESIDENT_USERS, FLUSH_INTERVAL));
+        wallet.setCryptocurrencies(CRYPTOCURRENCIES);
+        return wallet;
+    }
+
+    private static void trade(CryptoCurrencyWallet wallet, SocketChannel channel) throws UserAlreadyDefined,
+            UserNotFound, InsufficientAvailabilityException, IOException {
+        for (int i = 0; i < USERS_COUNT; i++) {
+            wallet.register("User" + i, "Pass");
+            wallet.login(channel, "User" + i, "Pass");
+            wallet.depositMoney(channel, 100 * (i + 1));
+            wallet.buy(channel, "BTC", 10 * (i + 1));
+            wallet.disconnect(channel);
+            assertTrue(wallet.users().residentCount() <= MAX_RESIDENT_USERS,
+                    "Error: users without a session were expected to be evicted");
+        }
+    }
+
+    private void assertRestored(CryptoCurrencyWallet wallet) throws UserNotFound {
+        for (int i = 0; i < USERS_COUNT; i++) {
+            Portfolio portfolio = wallet.login(channel, "User" + i, "Pass").portfolio();
+            assertEquals(90 * (i + 1), portfolio.money(), "Error: unexpected money of User" + i);
+            assertEquals(1, portfolio.boughtCryptocurrencies().size(),
+                    "Error: unexpected holdings of User" + i);
+        }
+    }
+
+    @Test
+    void testUsersAreSavedOneByOneWithoutJournal() throws UserAlreadyDefined, UserNotFound,
+            InsufficientAvailabilityException, IOException {
+        trade(openWallet(false), channel);
+
+        assertRestored(openWallet(false));
+        verify(infoSaver, never()).saveUsersInfoToFile(ArgumentMatchers.<Set<User>>any());
+    }
+
+    @Test
+    void testEvictedUsersAreReplayedFromTheJournal() throws UserAlreadyDefined, UserNotFound,
+            InsufficientAvailabilityException, IOException {
+        trade(openWallet(true), channel);
+
+        assertRestored(openWallet(true));
+    }
+
+    @Test
+    void testCheckpointWritesBackResidentUsers() throws UserAlreadyDefined, UserNotFound,
+            InsufficientAvailabilityException, IOException {
+        CryptoCurrencyWallet wallet = openWallet(true);
+        trade(wallet, channel);
+        wallet.close();
+
+        assertRestored(openWallet(true));
+    }
+
+    @Test
+    void testSessionOfClosedConnectionReleasesItsUser() throws UserAlreadyDefined, UserNotFound, IOException {
+        CryptoCurrencyWallet wallet = openWallet(false);
+        for (int i = 0; i <= MAX_RESIDENT_USERS; i++) {
+            try (SocketChannel other = SocketChannel.open()) {
+                wallet.register("User" + i, "Pass");
+                wallet.login(other, "User" + i, "Pass");
+                wallet.endSession(other);
+            }
+        }
+
+        assertEquals(MAX_RESIDENT_USERS, wallet.users().residentCount(),
+                "Error: users of closed connections were expected to be evictable");
+    }
+
+    @Test
+    void testChangesJournaledDuringCheckpointSurviveRecovery() throws Exception {
+        CryptoCurrencyWallet wallet = openWallet(true);
+        ExecutorService traders = Executors.newFixedThreadPool(TRADERS_COUNT);
+        List<Future<?>> trades = new ArrayList<>();
+        for (int i = 0; i < TRADERS_COUNT; i++) {
+            String username = "Trader" + i;
+            wallet.register(username, "Pass");
+            trades.add(traders.submit(() -> {
+                try (SocketChannel traderChannel = SocketChannel.open()) {
+                    wallet.login(traderChannel, username, "Pass");
+                    for (int j = 0; j < DEPOSITS_COUNT; j++) {
+                        wallet.depositMoney(traderChannel, 1);
+                    }
+                }
+                return null;
+            }));
+        }
+        while (trades.stream().anyMatch(trade -> !trade.isDone())) {
+            wallet.checkpoint();
+        }
+        for (Future<?> trade : trades) {
+            trade.get();
+        }
+        traders.shutdown();
+        wallet.login(channel, "Trader0", "Pass");
+        wallet.depositMoney(channel, 1);
+
+        CryptoCurrencyWallet recovered = openWallet(true);
+        for (int i = 0; i < TRADERS_COUNT; i++) {
+            double expected = i == 0 ? DEPOSITS_COUNT + 1 : DEPOSITS_COUNT;
+            assertEquals(expected, recovered.login(channel, "Trader" + i, "Pass").money(),
+                    "Error: deposits acknowledged during checkpoints were expected to be recovered");
+        }
+    }
+}
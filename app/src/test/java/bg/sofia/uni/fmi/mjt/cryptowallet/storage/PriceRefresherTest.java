@@ -0,0 +1,151 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.CryptoInformation;
+import bg.sofia.uni.fmi.mjt.cryptowallet.coinapi.dto.Cryptocurrencies;
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.DataSaver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PriceRefresherTest {
+
+    private static final PriceSnapshot OLD_PRICES = PriceSnapshot.of(new Cryptocurrencies(
+            Set.of(new CryptoInformation("BTC", "Bitcoin", 1, 20000.00)), "2023-09-05 11:00:00"));
+    private static final Cryptocurrencies NEW_PRICES = new Cryptocurrencies(
+            Set.of(new CryptoInformation("BTC", "Bitcoin", 1, 25000.00)), "2023-09-05 11:30:00");
+
+    @Mock
+    DataSaver infoSaver;
+
+    @Test
+    void testStaleSnapshotIsServedWhileRefreshing() {
+        CompletableFuture<Cryptocurrencies> fetch = new CompletableFuture<>();
+        when(infoSaver.getCryptocurrenciesFromApiAsync()).thenReturn(fetch);
+
+        try (PriceRefresher refresher = new PriceRefresher(infoSaver, OLD_PRICES,
+                new PriceRefreshConfig(Duration.ofHours(1), Duration.ZERO, Duration.ZERO))) {
+            verify(infoSaver, timeout(2000)).getCryptocurrenciesFromApiAsync();
+            when(infoSaver.checkCryptocurrenciesForUpdate(OLD_PRICES.cryptocurrencies())).thenReturn(true);
+
+            assertSame(OLD_PRICES, refresher.revalidateIfStale(),
+                    "Error: readers were expected to get the old snapshot while a refresh is running");
+            fetch.complete(NEW_PRICES);
+
+            assertEquals(NEW_PRICES, refresher.current().cryptocurrencies(),
+                    "Error: the refreshed snapshot was expected to replace the old one");
+            assertFalse(refresher.isRefreshing(), "Error: the refresh was expected to be finished");
+        }
+    }
+
+    @Test
+    void testFailedRefreshKeepsSnapshot() {
+        when(infoSaver.checkCryptocurrenciesForUpdate(OLD_PRICES.cryptocurrencies())).thenReturn(true);
+        when(infoSaver.getCryptocurrenciesFromApi()).thenThrow(new RuntimeException("CoinAPI is unavailable"));
+
+        PriceRefresher refresher = new PriceRefresher(infoSaver, OLD_PRICES);
+        PriceSnapshot served = refresher.revalidateIfStale();
+
+        assertEquals(OLD_PRICES.cryptocurrencies(), served.cryptocurrencies(),
+                "Error: a failed refresh was expected to keep the last snapshot");
+        assertTrue(served.isStale(), "Error: the kept snapshot was expected to be marked stale");
+    }
+
+    @Test
+    void testConcurrentReadersShareOneRefresh() throws InterruptedException {
+        int readersCount = 8;
+        PriceRefresher refresher = new PriceRefresher(infoSaver, OLD_PRICES);
+        when(infoSaver.checkCryptocurrenciesForUpdate(any())).thenReturn(true);
+        when(infoSaver.getCryptocurrenciesFromApi()).thenAnswer(invocation -> {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (refresher.coalescedRefreshes() < readersCount - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            return NEW_PRICES;
+        });
+
+        ExecutorService readers = Executors.newFixedThreadPool(readersCount);
+        List<Future<PriceSnapshot>> results = new ArrayList<>();
+        for (int i = 0; i < readersCount; i++) {
+            results.add(readers.submit(refresher::revalidateIfStale));
+        }
+        readers.shutdown();
+        assertTrue(readers.awaitTermination(5, TimeUnit.SECONDS), "Error: readers were expected to finish");
+
+        for (Future<PriceSnapshot> result : results) {
+            assertEquals(NEW_PRICES, assertDoesNotThrow(() -> result.get()).cryptocurrencies(),
+                    "Error: every reader was expected to get the result of the shared refresh");
+        }
+        verify(infoSaver, times(1)).getCryptocurrenciesFromApi();
+        assertEquals(1, refresher.issuedRefreshes(), "Error: only one refresh was expected to call CoinAPI");
+        assertEquals(readersCount - 1, refresher.coalescedRefreshes(),
+                "Error: the other readers were expected to join the refresh in flight");
+    }
+
+    @Test
+    void testWaitTimeoutFallsBackToLastSnapshot() {
+        CompletableFuture<Cryptocurrencies> fetch = new CompletableFuture<>();
+        when(infoSaver.getCryptocurrenciesFromApiAsync()).thenReturn(fetch);
+
+        try (PriceRefresher refresher = new PriceRefresher(infoSaver, OLD_PRICES,
+                new PriceRefreshConfig(Duration.ofHours(1), Duration.ZERO, Duration.ofMillis(50)))) {
+            verify(infoSaver, timeout(2000)).getCryptocurrenciesFromApiAsync();
+            when(infoSaver.checkCryptocurrenciesForUpdate(OLD_PRICES.cryptocurrencies())).thenReturn(true);
+
+            assertSame(OLD_PRICES, refresher.revalidateIfStale(),
+                    "Error: a reader was expected to get the last snapshot once the wait timed out");
+            assertEquals(1, refresher.issuedRefreshes(), "Error: the reader was not expected to call CoinAPI");
+            assertEquals(1, refresher.coalescedRefreshes(),
+                    "Error: the reader was expected to join the refresh in flight");
+            fetch.complete(NEW_PRICES);
+        }
+    }
+
+    @Test
+    void testScheduledRefreshRepeats() {
+        when(infoSaver.getCryptocurrenciesFromApiAsync()).thenReturn(CompletableFuture.completedFuture(NEW_PRICES));
+
+        try (PriceRefresher refresher = new PriceRefresher(infoSaver, OLD_PRICES,
+                new PriceRefreshConfig(Duration.ofMillis(50), Duration.ofMillis(10), Duration.ZERO))) {
+            verify(infoSaver, timeout(2000).atLeast(3)).getCryptocurrenciesFromApiAsync();
+            assertTrue(refresher.issuedRefreshes() >= 3, "Error: every scheduled refresh was expected to be issued");
+        }
+    }
+
+    @Test
+    void testSnapshotAge() {
+        String updatedAt = LocalDateTime.now().minusMinutes(5)
+                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        PriceSnapshot snapshot = PriceSnapshot.of(new Cryptocurrencies(Set.of(), updatedAt));
+
+        long ageSeconds = snapshot.age().toSeconds();
+        assertTrue(ageSeconds >= 299 && ageSeconds <= 301, "Error: unexpected age of the snapshot");
+        assertNull(PriceSnapshot.of(new Cryptocurrencies(Set.of(), "not a time")).age(),
+                "Error: a snapshot without a valid timestamp was expected to have unknown age");
+    }
+}
@@ -0,0 +1,186 @@
+package bg.sofia.uni.fmi.mjt.cryptowallet.storage;
+
+import bg.sofia.uni.fmi.mjt.cryptowallet.log.UserFiles;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.Portfolio;
+import bg.sofia.uni.fmi.mjt.cryptowallet.user.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UserStoreTest {
+
+    private static final Duration FLUSH_INTERVAL = Duration.ofHours(1);
+    private static final long FLUSH_TIMEOUT_MILLIS = 5000;
+
+    @TempDir
+    Path directory;
+
+    private UserStore open(int maxResidentUsers) throws IOException {
+        return UserStore.open(new UserStoreConfig(directory, maxResidentUsers, FLUSH_INTERVAL), new UserLocks());
+    }
+
+    private static User user(String username, double money) {
+        User user = new User(username, "hash-" + username);
+        user.setPortfolio(new Portfolio(money, Set.of(), Set.of(), 7));
+        return user;
+    }
+
+    @Test
+    void testLeastRecentlyUsedUsersAreWrittenBackAndEvicted() throws IOException {
+        UserStore store = open(2);
+        User first = user("first", 100);
+        store.add(first);
+        for (int i = 0; i < 4; i++) {
+            store.add(user("user" + i, i));
+        }
+        store.evictIfNeeded();
+
+        assertEquals(2, store.residentCount(), "Error: resident users were expected to stay within the budget");
+        User loaded = store.get("first");
+        assertNotSame(first, loaded, "Error: the least recently used user was expected to be evicted");
+        assertEquals(first.portfolio(), loaded.portfolio(), "Error: the evicted user was expected to be written back");
+        assertEquals("hash-first", loaded.hashedPassword(), "Error: unexpected password hash after loading");
+    }
+
+    @Test
+    void testPinnedUsersAreNotEvicted() throws IOException {
+        UserStore store = open(1);
+        User pinned = user("pinned", 1);
+        store.add(pinned);
+        store.pin("pinned");
+        store.add(user("other", 2));
+        store.add(user("another", 3));
+        store.evictIfNeeded();
+
+        assertEquals(List.of(pinned), store.residentUsers(), "Error: only the pinned user was expected to stay");
+
+        store.unpin("pinned");
+        store.add(user("last", 4));
+        store.evictIfNeeded();
+        assertNotSame(pinned, store.get("pinned"), "Error: an unpinned user was expected to be evictable");
+    }
+
+    @Test
+    void testReopenedStoreKnowsEveryUsernameWithoutLoadingUsers() throws IOException {
+        UserStore store = open(10);
+        store.add(user("Niki", 10));
+        store.importUsers(List.of(user("Imported", 20)));
+        store.writeBack();
+
+        UserStore reopened = open(10);
+        assertEquals(0, reopened.residentCount(), "Error: no user was expected to be loaded when opening the store");
+        assertFalse(reopened.add(user("Niki", 0)), "Error: a saved username was expected to be taken");
+        assertEquals(20, reopened.get("Imported").money(), "Error: unexpected money of an imported user");
+        assertSame(reopened.get("Niki"), reopened.get("Niki"), "Error: a loaded user was expected to stay resident");
+        assertNull(reopened.get("Unknown"), "Error: an unknown username was expected to have no user");
+    }
+
+    @Test
+    void testRemovedUserIsForgottenAndDeleted() throws IOException {
+        UserStore store = open(10);
+        User removed = user("Removed", 1);
+        store.add(removed);
+        store.writeBack();
+        store.remove(removed);
+
+        assertEquals(0, store.dirtyCount(), "Error: a removed user was expected not to be written");
+        assertNull(store.get("Removed"), "Error: a removed user was expected to be forgotten");
+        assertTrue(store.add(user("Removed", 2)), "Error: the username of a removed user was expected to be free");
+        assertNull(open(10).get("Removed"), "Error: a removed user was expected to be deleted from disk");
+    }
+
+    @Test
+    void testLongestUsernameIsSaved() throws IOException {
+        String username = "\u0436".repeat(UserFiles.MAX_USERNAME_BYTES / 2);
+        UserStore store = open(10);
+        store.add(user(username, 5));
+        store.writeBack();
+
+        assertEquals(5, open(10).get(username).money(),
+                "Error: a user with the longest username was expected to be saved");
+    }
+
+    @Test
+    void testCleanUsersAreEvictedWithoutBeingWritten() throws IOException {
+        UserStore store = open(1);
+        store.add(user("clean", 1));
+        store.writeBack();
+        assertEquals(0, store.dirtyCount(), "Error: no user was expected to be dirty after writing back");
+
+        UserStore other = open(1);
+        User changed = other.get("clean");
+        changed.setPortfolio(new Portfolio(2, Set.of(), Set.of(), 8));
+        other.markDirty(changed);
+        other.writeBack();
+
+        store.add(user("dirty", 3));
+        store.evictIfNeeded();
+        assertEquals(2, open(1).get("clean").money(), "Error: a clean user was not expected to be written");
+        assertEquals(1, store.dirtyCount(), "Error: the newly added user was expected to stay dirty");
+    }
+
+    @Test
+    void testDirtyUsersAreFlushedInTheBackground() throws IOException, InterruptedException {
+        UserStore store = UserStore.open(new UserStoreConfig(directory, 10, Duration.ofMillis(10)), new UserLocks());
+        store.add(user("Niki", 10));
+
+        long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MILLIS;
+        while (store.dirtyCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        store.close();
+
+        assertEquals(0, store.dirtyCount(), "Error: dirty users were expected to be flushed");
+        assertEquals(10, new UserFiles(directory).read("Niki").money(), "Error: unexpected money of a flushed user");
+    }
+
+    @Test
+    void testSettledWriteBackWaitsForChangesBeingPublished() throws IOException, InterruptedException {
+        UserLocks locks = new UserLocks();
+        UserStore store = UserStore.open(new UserStoreConfig(directory, 10, FLUSH_INTERVAL), locks);
+        User racer = user("racer", 1);
+        store.add(racer);
+        store.writeBack();
+
+        ReentrantLock lock = (ReentrantLock) locks.forUser("racer");
+        lock.lock();
+        Thread checkpointer = new Thread(() -> {
+            try {
+                store.writeBackSettled();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        try {
+            checkpointer.start();
+            long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MILLIS;
+            while (!lock.hasQueuedThreads() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertTrue(lock.hasQueuedThreads(), "Error: the write back was expected to wait for the lock holder");
+
+            racer.setPortfolio(new Portfolio(2, Set.of(), Set.of(), 8));
+            store.markDirty(racer);
+        } finally {
+            lock.unlock();
+        }
+        checkpointer.join();
+
+        assertEquals(2, new UserFiles(directory).read("racer").money(),
+                "Error: a change published during the write back was expected to be saved");
+    }
+}